@@ -61,7 +61,8 @@ public interface AddonRegistry extends AddonView
     * The {@link EventManager} bound to this {@link AddonRegistry}
     * 
     * @return a composite {@link EventManager} that delegates calls to {@link Addon#getEventManager()} in
-    *         {@link AddonStatus#STARTED} state
+    *         {@link AddonStatus#STARTED} state. The returned instance is an
+    *         {@link org.jboss.forge.furnace.event.AsyncEventManager} when running in the default container.
     */
    EventManager getEventManager();
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.event;
+
+import java.lang.annotation.Annotation;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link EventManager} that can also deliver events without blocking the caller.
+ */
+public interface AsyncEventManager extends EventManager
+{
+   /**
+    * How an asynchronous event is delivered to the {@link EventManager} instances it fans out to.
+    */
+   enum Delivery
+   {
+      /**
+       * Deliver to one {@link EventManager} at a time, in a stable order.
+       */
+      ORDERED,
+      /**
+       * Deliver to all {@link EventManager} instances in parallel.
+       */
+      UNORDERED
+   }
+
+   /**
+    * Fire an event asynchronously, notifying observers in parallel.
+    * 
+    * @see #fireEventAsync(Object, Delivery, Annotation...)
+    */
+   default CompletableFuture<Void> fireEventAsync(Object event, Annotation... qualifiers)
+   {
+      return fireEventAsync(event, Delivery.UNORDERED, qualifiers);
+   }
+
+   /**
+    * Fire an event asynchronously using the given {@link Delivery} mode. The returned {@link CompletableFuture}
+    * completes once every observer has been notified, or completes exceptionally with an {@link EventException} if any
+    * observer failed. A failing observer does not prevent delivery to the others.
+    */
+   CompletableFuture<Void> fireEventAsync(Object event, Delivery delivery, Annotation... qualifiers);
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.event;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * Describes the events accepted by an observer: events assignable to the observed type, fired with at least the
+ * observed qualifier types. Qualifier members are not compared, so an {@link ObservedEvent} may match events its
+ * observer ignores, but never the other way around.
+ * 
+ * @see ObservingEventManager
+ */
+public final class ObservedEvent
+{
+   private final Class<?> type;
+   private final Set<Class<? extends Annotation>> qualifiers;
+
+   @SafeVarargs
+   public ObservedEvent(Class<?> type, Class<? extends Annotation>... qualifiers)
+   {
+      Assert.notNull(type, "Observed type must not be null.");
+      this.type = type;
+      Set<Class<? extends Annotation>> set = new HashSet<>();
+      for (Class<? extends Annotation> qualifier : qualifiers)
+      {
+         set.add(qualifier);
+      }
+      this.qualifiers = Collections.unmodifiableSet(set);
+   }
+
+   public Class<?> getType()
+   {
+      return type;
+   }
+
+   public Set<Class<? extends Annotation>> getQualifiers()
+   {
+      return qualifiers;
+   }
+
+   /**
+    * Returns <code>true</code> if the observed type is the same as, or a supertype of, the given event type. Types are
+    * compared by name when they are not loaded by the same {@link ClassLoader}.
+    */
+   public boolean matchesType(Class<?> eventType)
+   {
+      if (type.isAssignableFrom(eventType))
+         return true;
+      for (Class<?> current = eventType; current != null; current = current.getSuperclass())
+      {
+         if (matchesName(current))
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Returns <code>true</code> if every observed qualifier type is present in the given qualifiers.
+    */
+   public boolean matchesQualifiers(Annotation... fired)
+   {
+      if (qualifiers.isEmpty())
+         return true;
+      Set<String> names = new HashSet<>();
+      for (Annotation annotation : fired)
+      {
+         names.add(annotation.annotationType().getName());
+      }
+      for (Class<? extends Annotation> qualifier : qualifiers)
+      {
+         if (!names.contains(qualifier.getName()))
+            return false;
+      }
+      return true;
+   }
+
+   private boolean matchesName(Class<?> candidate)
+   {
+      if (candidate.getName().equals(type.getName()))
+         return true;
+      for (Class<?> iface : candidate.getInterfaces())
+      {
+         if (matchesName(iface))
+            return true;
+      }
+      return false;
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return 31 * type.hashCode() + qualifiers.hashCode();
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!(obj instanceof ObservedEvent))
+         return false;
+      ObservedEvent other = (ObservedEvent) obj;
+      return type.equals(other.type) && qualifiers.equals(other.qualifiers);
+   }
+
+   @Override
+   public String toString()
+   {
+      return type.getName() + (qualifiers.isEmpty() ? "" : " " + qualifiers);
+   }
+}
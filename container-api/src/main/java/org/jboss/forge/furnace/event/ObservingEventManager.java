@@ -0,0 +1,23 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.event;
+
+/**
+ * An {@link EventManager} that advertises which events its observers accept, so that the container only delivers
+ * events an addon is interested in. Events are always delivered to {@link EventManager} instances that do not
+ * implement this interface.
+ */
+public interface ObservingEventManager extends EventManager
+{
+   /**
+    * Get the events accepted by the observers of this {@link EventManager}. Must not change while the enclosing addon
+    * is started.
+    * 
+    * @return the {@link ObservedEvent} instances. (Never null.)
+    */
+   Iterable<ObservedEvent> getObservedEvents();
+}
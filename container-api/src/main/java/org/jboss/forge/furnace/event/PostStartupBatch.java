@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * This event is fired by the container to every started addon in an {@link org.jboss.forge.furnace.addons.AddonView}
+ * after a group of addons in that view has started. Replaces one {@link PostStartup} per started addon unless
+ * per-addon lifecycle events are enabled.
+ */
+public final class PostStartupBatch
+{
+   private final List<Addon> addons;
+
+   public PostStartupBatch(List<Addon> addons)
+   {
+      Assert.notNull(addons, "Addons must not be null.");
+      this.addons = Collections.unmodifiableList(new ArrayList<>(addons));
+   }
+
+   /**
+    * Get the addons that have started, which may include the observing addon.
+    */
+   public List<Addon> getAddons()
+   {
+      return addons;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "PostStartupBatch [addons=" + addons + "]";
+   }
+}
@@ -8,6 +8,7 @@ package org.jboss.forge.furnace.lock;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 /**
  * An interface that provides read and write {@link Lock} instances for interacting with the underlying locking
@@ -24,4 +25,38 @@ public interface LockManager
     * the result, if any.
     */
    <T> T performLocked(LockMode mode, Callable<T> task);
+
+   /**
+    * Perform the given {@link Callable} task after acquiring a {@link Lock} of the given {@link LockMode} type that is
+    * specific to the given stripe (for instance an {@link org.jboss.forge.furnace.addons.AddonView} or a repository
+    * directory.) Tasks on different stripes do not block each other, and are not excluded by tasks performed with
+    * {@link #performLocked(LockMode, Callable)}, which must acquire the stripe themselves to exclude them. A task
+    * holding a stripe must not perform tasks with {@link #performLocked(LockMode, Callable)} unless its thread already
+    * holds that lock. Return the result, if any.
+    * <p>
+    * Implementations that do not support striping perform the task as {@link #performLocked(LockMode, Callable)}.
+    */
+   default <T> T performLocked(Object stripe, LockMode mode, Callable<T> task)
+   {
+      return performLocked(mode, task);
+   }
+
+   /**
+    * Perform the given read-only task without acquiring a {@link Lock} if no task performed with
+    * {@link #performLocked(LockMode, Callable)} in {@link LockMode#WRITE} mode runs concurrently, otherwise perform it
+    * again holding a {@link LockMode#READ} lock. The task must be free of side effects, since it may run more than
+    * once and may observe inconsistent state (in which case its result, or any {@link RuntimeException} it throws, is
+    * discarded.) State guarded by a lock stripe must be read holding that stripe instead. Return the result, if any.
+    */
+   default <T> T performOptimisticRead(final Supplier<T> task)
+   {
+      return performLocked(LockMode.READ, new Callable<T>()
+      {
+         @Override
+         public T call() throws Exception
+         {
+            return task.get();
+         }
+      });
+   }
 }
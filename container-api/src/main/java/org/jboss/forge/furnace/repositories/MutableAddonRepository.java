@@ -27,4 +27,29 @@ public interface MutableAddonRepository extends AddonRepository
    public boolean enable(AddonId addon);
 
    public boolean undeploy(AddonId addonEntry);
+
+   /**
+    * Begin a batch of changes in the calling thread. Until the matching {@link #commitBatch()}, calls to
+    * {@link #enable(AddonId)} and {@link #disable(AddonId)} made by this thread are collected in memory and are not
+    * visible to readers of this repository. Batches may be nested, in which case only the outermost
+    * {@link #commitBatch()} publishes the changes. Changes made by other threads are not part of the batch.
+    */
+   default void beginBatch()
+   {
+   }
+
+   /**
+    * Publish all changes made since the matching {@link #beginBatch()} at once.
+    */
+   default void commitBatch()
+   {
+   }
+
+   /**
+    * Discard the changes made since the matching {@link #beginBatch()}, and end that batch. Enclosing batches remain
+    * open.
+    */
+   default void rollbackBatch()
+   {
+   }
 }
@@ -8,17 +8,19 @@ package test.org.jboss.forge.furnace.lifecycle;
 
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.jboss.forge.furnace.event.EventException;
-import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.event.ObservedEvent;
+import org.jboss.forge.furnace.event.ObservingEventManager;
 import org.jboss.forge.furnace.event.PostStartup;
 import org.jboss.forge.furnace.event.PreShutdown;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class RecordingEventManager implements EventManager
+public class RecordingEventManager implements ObservingEventManager
 {
    private static List<Object> events = new ArrayList<Object>();
    private static List<Annotation[]> qualifiers = new ArrayList<Annotation[]>();
@@ -37,6 +39,13 @@ public class RecordingEventManager implements EventManager
       RecordingEventManager.qualifiers.add(qualifiers);
    }
 
+   @Override
+   public Iterable<ObservedEvent> getObservedEvents()
+   {
+      return Arrays.asList(new ObservedEvent(Object.class), new ObservedEvent(PostStartup.class),
+               new ObservedEvent(PreShutdown.class));
+   }
+
    public List<Object> getEvents()
    {
       return RecordingEventManager.events;
@@ -19,6 +19,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -26,6 +27,7 @@ import java.util.stream.Collectors;
 import org.jboss.forge.furnace.ContainerStatus;
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.AddonCompatibilityStrategy;
+import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
@@ -36,6 +38,9 @@ import org.jboss.forge.furnace.impl.addons.DirtyChecker;
 import org.jboss.forge.furnace.impl.addons.ImmutableAddonRepository;
 import org.jboss.forge.furnace.impl.addons.VersionDirtyChecker;
 import org.jboss.forge.furnace.impl.lock.LockManagerImpl;
+import org.jboss.forge.furnace.impl.util.RescanCoalescer;
+import org.jboss.forge.furnace.impl.util.Signal;
+import org.jboss.forge.furnace.impl.util.VirtualThreads;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -60,15 +65,28 @@ public class FurnaceImpl implements Furnace
    public static final String FURNACE_LOGGING_LEAK_CLASSLOADERS_PROPERTY = "furnace.logging.leak";
    public static final String FURNACE_DEBUG_PROPERTY = "furnace.debug";
    public static final String TEST_MODE_PROPERTY = "furnace.test.mode";
+   public static final String FURNACE_VIRTUAL_THREADS_PROPERTY = "furnace.threads.virtual";
+   public static final String FURNACE_RESCAN_QUIET_PERIOD_PROPERTY = "furnace.rescan.quiet_period";
 
    private static Logger logger = Logger.getLogger(FurnaceImpl.class.getName());
 
+   /**
+    * How often repositories that cannot signal their own changes are polled.
+    */
+   private static final long POLL_INTERVAL_MILLIS = 100;
+
+   /**
+    * How long repositories must stay unchanged before a detected change triggers a configuration rescan.
+    */
+   private static final long DEFAULT_RESCAN_QUIET_PERIOD_MILLIS = 100;
+
    private volatile boolean alive = false;
    private volatile ContainerStatus status = ContainerStatus.STOPPED;
 
-   private final ExecutorService executor = Executors.newSingleThreadExecutor();
+   private ExecutorService executor;
 
    private boolean serverMode = true;
+   private boolean virtualThreads = Boolean.getBoolean(FURNACE_VIRTUAL_THREADS_PROPERTY);
    private AddonLifecycleManager manager;
    private final List<ContainerLifecycleListener> registeredListeners = new ArrayList<>();
    private final List<ListenerRegistration<ContainerLifecycleListener>> loadedListenerRegistrations = new ArrayList<>();
@@ -79,6 +97,17 @@ public class FurnaceImpl implements Furnace
 
    private final LockManager lock = new LockManagerImpl();
 
+   private final Signal signal = new Signal();
+
+   private final RescanCoalescer rescans = new RescanCoalescer(
+            Long.getLong(FURNACE_RESCAN_QUIET_PERIOD_PROPERTY, DEFAULT_RESCAN_QUIET_PERIOD_MILLIS),
+            TimeUnit.MILLISECONDS);
+
+   /**
+    * Addons whose contents changed since the last configuration rescan. Guarded by the {@link LockMode#WRITE} lock.
+    */
+   private final Set<AddonId> changedAddons = new HashSet<>();
+
    private String[] args;
 
    private int registryCount = 0;
@@ -172,12 +201,12 @@ public class FurnaceImpl implements Furnace
    @Override
    public Future<Furnace> startAsync(final ClassLoader loader)
    {
-      return executor.submit(new Callable<Furnace>()
+      return getExecutor().submit(new Callable<Furnace>()
       {
          @Override
          public Furnace call() throws Exception
          {
-            Thread thread = new Thread()
+            Thread thread = VirtualThreads.newThread("Furnace Container", new Runnable()
             {
                @Override
                public void run()
@@ -185,11 +214,16 @@ public class FurnaceImpl implements Furnace
                   Thread.currentThread().setName("Furnace Container " + FurnaceImpl.this);
                   FurnaceImpl.this.start(loader);
                }
-            };
+            }, isVirtualThreads());
             thread.start();
 
-            while (!ContainerStatus.STARTED.equals(getStatus()))
-               Thread.sleep(25);
+            while (true)
+            {
+               long seen = signal.getGeneration();
+               if (ContainerStatus.STARTED.equals(getStatus()))
+                  break;
+               signal.await(seen, 0, TimeUnit.MILLISECONDS);
+            }
 
             return FurnaceImpl.this;
          }
@@ -224,27 +258,40 @@ public class FurnaceImpl implements Furnace
          getAddonRegistry();
          do
          {
-            lock.performLocked(LockMode.WRITE, new Callable<Void>()
+            long seen = signal.getGeneration();
+            boolean observable = lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
             {
                @Override
-               public Void call() throws Exception
+               public Boolean call() throws Exception
                {
                   boolean dirty = false;
+                  boolean observable = true;
                   if (!getLifecycleManager().isStartingAddons())
                   {
                      for (RepositoryEntry entry : repositories)
                      {
+                        observable &= entry.isObservable();
                         DirtyChecker dirtyChecker = entry.getDirtyChecker();
                         if (dirtyChecker.isDirty())
                         {
                            logger.log(Level.FINE, "Detected changes in repository [" + entry.getRepository() + "].");
                            dirty = true;
                         }
+                        changedAddons.addAll(dirtyChecker.pollDirtyAddons());
                         dirtyChecker.resetDirtyStatus();
                      }
 
+                     /*
+                      * A single install touches several files, each reported separately. Once started, wait for
+                      * the repositories to settle so that the whole change is picked up by one rescan.
+                      */
+                     long now = System.nanoTime();
                      if (dirty)
+                        rescans.markDirty(now);
+
+                     if (rescans.isDue(now) || (rescans.isPending() && !firedAfterStart))
                      {
+                        rescans.rescanned();
                         reloadConfiguration();
                      }
                   }
@@ -255,16 +302,33 @@ public class FurnaceImpl implements Furnace
                      fireAfterContainerStartedEvent();
                      firedAfterStart = true;
                   }
-                  return null;
+                  return observable;
                }
             });
-            Thread.sleep(100);
+            signal.signal();
+
+            /*
+             * Block until a repository reports a change, an addon finishes starting, or the container is stopped. Only
+             * fall back to polling if a repository cannot notify us of its own changes. (The generation has already
+             * been advanced once by the signal above, which notifies threads waiting in startAsync.)
+             */
+            if (isAlive() && serverMode)
+            {
+               long timeout = observable ? 0 : POLL_INTERVAL_MILLIS;
+               long pending = rescans.getRemainingMillis(System.nanoTime());
+               if (pending > 0 && (timeout == 0 || pending < timeout))
+                  timeout = pending;
+               signal.await(seen + 1, timeout, TimeUnit.MILLISECONDS);
+            }
          }
          while (isAlive() && serverMode);
 
-         while (isAlive() && getLifecycleManager().isStartingAddons())
+         while (true)
          {
-            Thread.sleep(100);
+            long seen = signal.getGeneration();
+            if (!isAlive() || !getLifecycleManager().isStartingAddons())
+               break;
+            signal.await(seen, 0, TimeUnit.MILLISECONDS);
          }
       }
       catch (Exception e)
@@ -286,6 +350,7 @@ public class FurnaceImpl implements Furnace
    public Furnace stop()
    {
       alive = false;
+      signal.signal();
       return this;
    }
 
@@ -316,6 +381,14 @@ public class FurnaceImpl implements Furnace
       return this;
    }
 
+   /**
+    * Wake up the container so that it re-examines its repositories and the state of starting addons.
+    */
+   public void wakeUp()
+   {
+      signal.signal();
+   }
+
    @Override
    public AddonRegistry getAddonRegistry(final AddonRepository... repositories)
    {
@@ -432,6 +505,8 @@ public class FurnaceImpl implements Furnace
          }
       }
 
+      newEntry.setObservable(dirtyChecker.setChangeListener(signal::signal));
+
       lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
          @Override
@@ -449,6 +524,7 @@ public class FurnaceImpl implements Furnace
             return null;
          }
       });
+      signal.signal();
 
       return repository;
    }
@@ -534,9 +610,55 @@ public class FurnaceImpl implements Furnace
       return this.addonCompatibilityStrategy;
    }
 
+   /**
+    * Run the container loop and addon lifecycle on virtual threads, if supported by the running JDK. Defaults to the
+    * value of the {@value #FURNACE_VIRTUAL_THREADS_PROPERTY} system property.
+    */
+   public FurnaceImpl setVirtualThreads(boolean virtualThreads)
+   {
+      assertNotAlive();
+      this.virtualThreads = virtualThreads;
+      return this;
+   }
+
+   /**
+    * Returns <code>true</code> if virtual threads were requested and are supported by the running JDK.
+    */
+   public boolean isVirtualThreads()
+   {
+      return virtualThreads && VirtualThreads.isSupported();
+   }
+
+   /**
+    * Set how long repositories must stay unchanged before a detected change triggers a configuration rescan. Defaults
+    * to the value of the {@value #FURNACE_RESCAN_QUIET_PERIOD_PROPERTY} system property, in milliseconds, or
+    * <code>100</code> milliseconds. Zero rescans as soon as a change is detected.
+    */
+   public FurnaceImpl setRescanQuietPeriod(long quietPeriod, TimeUnit unit)
+   {
+      rescans.setQuietPeriod(quietPeriod, unit);
+      return this;
+   }
+
+   /**
+    * Get the number of repository changes that were merged into an already pending configuration rescan.
+    */
+   public long getMergedRescanCount()
+   {
+      return rescans.getMergedRescanCount();
+   }
+
    /*
     * Internal methods.
     */
+   private synchronized ExecutorService getExecutor()
+   {
+      if (executor == null)
+         executor = Executors.newSingleThreadExecutor(VirtualThreads.newThreadFactory("Furnace Startup",
+                  isVirtualThreads()));
+      return executor;
+   }
+
    private AddonLifecycleManager getLifecycleManager()
    {
       if (manager == null)
@@ -557,7 +679,9 @@ public class FurnaceImpl implements Furnace
       try
       {
          fireBeforeConfigurationScanEvent();
-         getLifecycleManager().forceUpdate();
+         Set<AddonId> changed = new HashSet<>(changedAddons);
+         changedAddons.clear();
+         getLifecycleManager().forceUpdate(changed);
          fireAfterConfigurationScanEvent();
       }
       catch (Exception e)
@@ -584,6 +708,8 @@ public class FurnaceImpl implements Furnace
          try
          {
             entry.getDirtyChecker().close();
+            if (entry.getRepository() instanceof AutoCloseable)
+               ((AutoCloseable) entry.getRepository()).close();
          }
          catch (Exception e)
          {
@@ -591,8 +717,17 @@ public class FurnaceImpl implements Furnace
          }
       }
       repositories.clear();
-      executor.shutdownNow();
+      synchronized (this)
+      {
+         if (executor != null)
+         {
+            executor.shutdownNow();
+            executor = null;
+         }
+      }
       firedAfterStart = false;
+      if (lock instanceof LockManagerImpl)
+         ((LockManagerImpl) lock).dispose();
    }
 
    private void fireBeforeConfigurationScanEvent()
@@ -649,6 +784,8 @@ public class FurnaceImpl implements Furnace
 
       private final DirtyChecker dirtyChecker;
 
+      private boolean observable;
+
       public RepositoryEntry(AddonRepository repository, DirtyChecker dirtyChecker)
       {
          this.repository = repository;
@@ -665,6 +802,19 @@ public class FurnaceImpl implements Furnace
          return dirtyChecker;
       }
 
+      /**
+       * Returns <code>true</code> if the {@link DirtyChecker} of this entry signals its own changes.
+       */
+      public boolean isObservable()
+      {
+         return observable;
+      }
+
+      public void setObservable(boolean observable)
+      {
+         this.observable = observable;
+      }
+
       @Override
       public boolean equals(Object o)
       {
@@ -38,7 +38,7 @@ public abstract class AbstractFileSystemAddonRepository
     {
         if (!addonDir.exists() || !addonDir.isDirectory())
         {
-            lock.performLocked(LockMode.READ, new Callable<File>()
+            lock.performLocked(addonDir, LockMode.READ, new Callable<File>()
             {
                 @Override
                 public File call() throws Exception
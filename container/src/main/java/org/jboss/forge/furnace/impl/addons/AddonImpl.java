@@ -83,21 +83,24 @@ public class AddonImpl implements Addon
    @Override
    public AddonStatus getStatus()
    {
+      // Read a single snapshot so that the status is derived from consistent state
+      AddonState state = manager.getStateOf(this);
       AddonStatus result = AddonStatus.NEW;
-      if (getClassLoader() != null)
+      if (state.getClassLoader() != null)
          result = AddonStatus.LOADED;
 
-      if (manager.getMissingDependenciesOf(this).size() > 0)
+      if (state.getMissingDependencies().size() > 0)
          result = AddonStatus.MISSING;
 
-      if (getFuture() != null)
+      Future<Void> future = state.getFuture();
+      if (future != null)
       {
-         if (!(getFuture() instanceof NullFuture))
+         if (!(future instanceof NullFuture))
          {
-            if (getFuture().isDone())
+            if (future.isDone())
                result = AddonStatus.STARTED;
 
-            if (getFuture() instanceof ExceptionFuture || getFuture().isCancelled())
+            if (future instanceof ExceptionFuture || future.isCancelled())
                result = AddonStatus.FAILED;
          }
       }
@@ -6,16 +6,30 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -25,14 +39,25 @@ import org.jboss.forge.furnace.addons.AddonFilter;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
 import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.event.AsyncEventManager;
 import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.event.ObservedEvent;
+import org.jboss.forge.furnace.event.ObservingEventManager;
+import org.jboss.forge.furnace.event.PostStartup;
+import org.jboss.forge.furnace.event.PostStartupBatch;
+import org.jboss.forge.furnace.event.PreShutdown;
+import org.jboss.forge.furnace.event.PreShutdownBatch;
 import org.jboss.forge.furnace.impl.FurnaceImpl;
 import org.jboss.forge.furnace.impl.event.AddonViewEventManager;
+import org.jboss.forge.furnace.impl.event.EventRoutingTable;
+import org.jboss.forge.furnace.impl.graph.AddonVertex;
 import org.jboss.forge.furnace.impl.graph.CompleteAddonGraph;
 import org.jboss.forge.furnace.impl.graph.MasterGraph;
 import org.jboss.forge.furnace.impl.graph.MasterGraphChangeHandler;
 import org.jboss.forge.furnace.impl.graph.OptimizedAddonGraph;
+import org.jboss.forge.furnace.impl.lock.LockManagerImpl;
 import org.jboss.forge.furnace.impl.modules.AddonModuleLoader;
+import org.jboss.forge.furnace.impl.util.VirtualThreads;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -47,6 +72,12 @@ import org.jgrapht.Graph;
  */
 public class AddonLifecycleManager
 {
+   /**
+    * When <code>true</code>, every addon also receives one {@link PostStartup} or {@link PreShutdown} event for each
+    * other addon that starts or stops, in addition to the {@link PostStartupBatch} and {@link PreShutdownBatch} events.
+    */
+   public static final String PER_ADDON_LIFECYCLE_EVENTS_PROPERTY = "furnace.lifecycle.per_addon_events";
+
    private static final Logger logger = Logger.getLogger(AddonLifecycleManager.class.getName());
 
    private final LockManager lock;
@@ -56,8 +87,26 @@ public class AddonLifecycleManager
 
    private final Map<AddonView, Set<Addon>> addonViews = new ConcurrentHashMap<>();
    private final Map<AddonView, Long> views = new ConcurrentHashMap<AddonView, Long>();
+   private final Map<AddonView, EventRoutingTable> eventRoutes = new ConcurrentHashMap<>();
+
+   /**
+    * The {@link CompleteAddonGraph} of each {@link AddonView}, kept between updates so that only changes need to be
+    * applied. Guarded by the {@link LockMode#WRITE} lock.
+    */
+   private final Map<AddonView, CompleteAddonGraph> completeGraphs = new HashMap<AddonView, CompleteAddonGraph>();
    private final AtomicInteger starting = new AtomicInteger(-1);
-   private final ExecutorService executor = Executors.newCachedThreadPool();
+   private final Queue<Addon> startedAddons = new ConcurrentLinkedQueue<>();
+
+   /**
+    * Started addons whose {@link ObservingEventManager} observes {@link PostStartup} or {@link PreShutdown} for every
+    * other addon. Each addon is checked once, when it has started.
+    */
+   private final Set<Addon> postStartupObservers = ConcurrentHashMap.newKeySet();
+   private final Set<Addon> preShutdownObservers = ConcurrentHashMap.newKeySet();
+   private final boolean perAddonLifecycleEvents = Boolean.getBoolean(PER_ADDON_LIFECYCLE_EVENTS_PROPERTY);
+   private ExecutorService executor;
+   private ExecutorService eventExecutor;
+   private final ForkJoinPool loadExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
    private final AddonModuleLoader moduleLoader;
 
@@ -73,6 +122,67 @@ public class AddonLifecycleManager
       this.loader = new AddonLoader(furnace, this, stateManager, moduleLoader);
    }
 
+   /**
+    * Addons are started on a pool sized to the machine. Queued {@link AddonStartTask} instances are ordered by priority.
+    * In virtual thread mode every addon gets its own virtual thread instead.
+    */
+   private synchronized ExecutorService getExecutor()
+   {
+      if (executor == null)
+      {
+         if (furnace.isVirtualThreads())
+            executor = VirtualThreads.newThreadPerTaskExecutor();
+         if (executor == null)
+            executor = createStartExecutor();
+      }
+      return executor;
+   }
+
+   /**
+    * Shut down the start executor, if one was created, so that the next start creates a new one. Returns the tasks that
+    * never started.
+    */
+   private synchronized List<Runnable> shutdownExecutor()
+   {
+      if (executor == null)
+         return Collections.emptyList();
+
+      List<Runnable> result = executor.shutdownNow();
+      executor = null;
+      return result == null ? Collections.<Runnable> emptyList() : result;
+   }
+
+   private static ExecutorService createStartExecutor()
+   {
+      int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+      ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+               new PriorityBlockingQueue<Runnable>());
+      result.allowCoreThreadTimeOut(true);
+      return result;
+   }
+
+   /**
+    * Asynchronous events are delivered on a pool sized to the machine, made of daemon threads that time out when idle.
+    */
+   private synchronized ExecutorService getEventExecutor()
+   {
+      if (eventExecutor == null)
+      {
+         final ThreadFactory factory = VirtualThreads.newThreadFactory("Furnace Events", furnace.isVirtualThreads());
+         int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+         ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                  new LinkedBlockingQueue<Runnable>(), runnable -> {
+                     Thread thread = factory.newThread(runnable);
+                     if (!thread.isDaemon())
+                        thread.setDaemon(true);
+                     return thread;
+                  });
+         result.allowCoreThreadTimeOut(true);
+         eventExecutor = result;
+      }
+      return eventExecutor;
+   }
+
    public void dispose()
    {
       for (AddonView view : views.keySet())
@@ -80,11 +190,26 @@ public class AddonLifecycleManager
          view.dispose();
       }
       this.views.clear();
+      this.eventRoutes.clear();
+      this.completeGraphs.clear();
+      this.postStartupObservers.clear();
+      this.preShutdownObservers.clear();
+      this.loadExecutor.shutdownNow();
+      synchronized (this)
+      {
+         if (eventExecutor != null)
+            eventExecutor.shutdown();
+      }
       this.stateManager.dispose();
       this.loader.dispose();
       this.moduleLoader.dispose();
    }
 
+   AddonStateManager getStateManager()
+   {
+      return stateManager;
+   }
+
    public long getVersion(AddonView view)
    {
       Long version = views.get(view);
@@ -124,20 +249,21 @@ public class AddonLifecycleManager
    }
 
    /**
-    * Requires a {@link LockMode#WRITE} lock.
+    * Requires a {@link LockMode#WRITE} lock on the given {@link AddonView}, and never acquires the container-wide lock,
+    * so that it is not blocked while another view is being updated.
     */
    public Addon getAddon(final AddonView view, final AddonId id)
    {
       Assert.notNull(view, "AddonView must not be null.");
       Assert.notNull(id, "AddonId must not be null.");
-      return lock.performLocked(LockMode.WRITE, new Callable<Addon>()
+      return lock.performLocked(view, LockMode.WRITE, new Callable<Addon>()
       {
          @Override
          public Addon call() throws Exception
          {
             Addon result = null;
 
-            for (Addon addon : getAddons(view))
+            for (Addon addon : _getAddonsForView(view))
             {
                if (id.equals(addon.getId()))
                {
@@ -193,13 +319,26 @@ public class AddonLifecycleManager
       Set<Addon> addons = addonViews.get(view);
       if (addons == null)
       {
-         addons = Sets.getConcurrentSet();
-         addonViews.put(view, addons);
+         // Views are registered without the container-wide lock, so another thread may register the same one
+         Set<Addon> created = Sets.getConcurrentSet();
+         addons = addonViews.putIfAbsent(view, created);
+         if (addons == null)
+            addons = created;
       }
       return addons;
    }
 
    public void forceUpdate()
+   {
+      forceUpdate(Collections.<AddonId> emptySet());
+   }
+
+   /**
+    * Rebuild the master graph, additionally restarting the given addons (and their dependents) whose contents are known
+    * to have changed. Holds the container-wide {@link LockMode#WRITE} lock, which only blocks tasks on the lock stripe of
+    * an {@link AddonView} or repository while the update itself holds that stripe.
+    */
+   public void forceUpdate(final Set<AddonId> changedAddons)
    {
       lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
@@ -208,14 +347,14 @@ public class AddonLifecycleManager
          public Void call() throws Exception
          {
             MasterGraph master = new MasterGraph();
+            completeGraphs.keySet().retainAll(views.keySet());
 
             for (AddonView view : views.keySet())
             {
                if (starting.get() == -1)
                   starting.set(0);
 
-               OptimizedAddonGraph graph = new OptimizedAddonGraph(view,
-                        new CompleteAddonGraph(view.getRepositories()).getGraph());
+               OptimizedAddonGraph graph = new OptimizedAddonGraph(view, getCompleteGraph(view).getGraph());
 
                master.merge(graph);
 
@@ -233,13 +372,46 @@ public class AddonLifecycleManager
             MasterGraph last = stateManager.getCurrentGraph();
             stateManager.setCurrentGraph(master);
 
-            new MasterGraphChangeHandler(AddonLifecycleManager.this, last, master).hotSwapChanges();
+            new MasterGraphChangeHandler(AddonLifecycleManager.this, last, master, changedAddons).hotSwapChanges();
 
             return null;
          }
       });
    }
 
+   /**
+    * Assign the given {@link Addon} to the given {@link AddonVertex} of the current {@link MasterGraph}. Requires a
+    * {@link LockMode#WRITE} lock.
+    */
+   public void setAddon(AddonVertex vertex, Addon addon)
+   {
+      stateManager.setAddon(vertex, addon);
+   }
+
+   private CompleteAddonGraph getCompleteGraph(AddonView view)
+   {
+      CompleteAddonGraph result = completeGraphs.get(view);
+      try
+      {
+         if (result == null)
+         {
+            result = new CompleteAddonGraph(view.getRepositories());
+            completeGraphs.put(view, result);
+         }
+         else
+         {
+            result.update(view.getRepositories());
+         }
+      }
+      catch (RuntimeException e)
+      {
+         // Start from scratch next time, rather than from a graph that may be incomplete or cyclic
+         completeGraphs.remove(view);
+         throw e;
+      }
+      return result;
+   }
+
    public void loadAddon(Addon addon)
    {
       try
@@ -252,20 +424,53 @@ public class AddonLifecycleManager
       }
    }
 
+   /**
+    * Load the given {@link Addon} on the loading pool as soon as all of the given dependency loads have completed.
+    * Requires a {@link LockMode#WRITE} lock, which must be held until the returned {@link CompletableFuture} is done.
+    * If the {@link LockManager} does not support delegation, the {@link Addon} is loaded on the calling thread.
+    */
+   public CompletableFuture<Void> loadAddonAsync(final Addon addon, Collection<CompletableFuture<Void>> dependencies)
+   {
+      CompletableFuture<Void> ready = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[dependencies
+               .size()]));
+
+      if (lock instanceof LockManagerImpl)
+      {
+         final Callable<Void> task = ((LockManagerImpl) lock).delegate(new Callable<Void>()
+         {
+            @Override
+            public Void call() throws Exception
+            {
+               if (!addon.getStatus().isLoaded())
+                  loadAddon(addon);
+               return null;
+            }
+         });
+         return ready.thenRunAsync(() -> Callables.call(task), loadExecutor);
+      }
+
+      return ready.thenRun(() -> {
+         if (!addon.getStatus().isLoaded())
+            loadAddon(addon);
+      });
+   }
+
    public void stopAddon(Addon addon)
    {
+      postStartupObservers.remove(addon);
+      preShutdownObservers.remove(addon);
       Callables.call(new StopAddonCallable(stateManager, addon));
       incrementViewVersions(addon);
    }
 
    private void incrementViewVersions(Addon addon)
    {
-      for (Entry<AddonView, Long> entry : views.entrySet())
+      for (AddonView view : stateManager.getViewsOf(addon))
       {
-         if (stateManager.getViewsOf(addon).contains(entry.getKey()))
-         {
-            entry.setValue(entry.getValue() + 1);
-         }
+         /*
+          * Atomic per key, so concurrent starts and stops never lose an increment; absent views stay absent.
+          */
+         views.computeIfPresent(view, (key, version) -> version + 1);
       }
    }
 
@@ -276,6 +481,13 @@ public class AddonLifecycleManager
          @Override
          public Void call() throws Exception
          {
+            Set<Addon> stopping = new LinkedHashSet<>();
+            for (Set<Addon> addons : addonViews.values())
+            {
+               stopping.addAll(addons);
+            }
+            fireStopping(stopping);
+
             for (Entry<AddonView, Set<Addon>> entry : addonViews.entrySet())
             {
                for (Addon addon : entry.getValue())
@@ -284,9 +496,16 @@ public class AddonLifecycleManager
                }
             }
 
-            List<Runnable> waiting = executor.shutdownNow();
-            if (waiting != null && !waiting.isEmpty())
+            List<Runnable> waiting = shutdownExecutor();
+            if (!waiting.isEmpty())
+            {
+               for (Runnable runnable : waiting)
+               {
+                  if (runnable instanceof Future)
+                     ((Future<?>) runnable).cancel(false);
+               }
                logger.info("(" + waiting.size() + ") addons were aborted while loading due to forced shutdown.");
+            }
             starting.set(-1);
             return null;
          }
@@ -295,8 +514,146 @@ public class AddonLifecycleManager
 
    public void finishedStarting(Addon addon)
    {
-      starting.decrementAndGet();
+      int remaining = starting.decrementAndGet();
       incrementViewVersions(addon);
+      if (remaining <= 0)
+         firePostStartupBatch();
+      furnace.wakeUp();
+   }
+
+   /**
+    * Returns <code>true</code> if addons should receive a {@link PostStartup} or {@link PreShutdown} event for each
+    * other addon, see {@link #PER_ADDON_LIFECYCLE_EVENTS_PROPERTY}.
+    */
+   public boolean isPerAddonLifecycleEvents()
+   {
+      return perAddonLifecycleEvents;
+   }
+
+   /**
+    * Record that the given {@link Addon} has started. Other addons are notified with a single {@link PostStartupBatch}
+    * once no more addons are starting.
+    */
+   public void addonStarted(Addon addon)
+   {
+      if (!perAddonLifecycleEvents)
+      {
+         if (isObserving(addon, PostStartup.class))
+            postStartupObservers.add(addon);
+         if (isObserving(addon, PreShutdown.class))
+            preShutdownObservers.add(addon);
+      }
+      startedAddons.add(addon);
+   }
+
+   /**
+    * Returns the addons sharing an {@link AddonView} with the given {@link Addon} that should receive a
+    * {@link PostStartup} or {@link PreShutdown} event for it: all of them if per-addon lifecycle events are enabled,
+    * otherwise only the started addons that observe the given event type.
+    */
+   public Collection<Addon> getPerAddonEventObservers(Addon addon, Class<?> eventType)
+   {
+      Set<AddonView> viewsOfAddon = stateManager.getViewsOf(addon);
+      if (perAddonLifecycleEvents)
+      {
+         Set<Addon> result = new LinkedHashSet<>();
+         for (AddonView view : viewsOfAddon)
+         {
+            result.addAll(view.getAddons());
+         }
+         result.remove(addon);
+         return result;
+      }
+
+      Set<Addon> observers = PostStartup.class.equals(eventType) ? postStartupObservers : preShutdownObservers;
+      if (observers.isEmpty())
+         return Collections.emptySet();
+
+      List<Addon> result = new ArrayList<>();
+      for (Addon observer : observers)
+      {
+         if (!observer.equals(addon) && !Collections.disjoint(stateManager.getViewsOf(observer), viewsOfAddon))
+            result.add(observer);
+      }
+      return result;
+   }
+
+   private boolean isObserving(Addon addon, Class<?> eventType)
+   {
+      EventManager eventManager = addon.getEventManager();
+      if (eventManager instanceof ObservingEventManager)
+      {
+         for (ObservedEvent observed : ((ObservingEventManager) eventManager).getObservedEvents())
+         {
+            if (observed.getType().getName().equals(eventType.getName()))
+               return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Notify the addons of each {@link AddonView} that the given {@link Addon} instances are about to be stopped.
+    */
+   public void fireStopping(Collection<Addon> addons)
+   {
+      List<Addon> stopping = new ArrayList<>();
+      for (Addon addon : addons)
+      {
+         if (addon != null && addon.getStatus().isStarted())
+            stopping.add(addon);
+      }
+      fireLifecycleBatch(stopping, false);
+   }
+
+   private void firePostStartupBatch()
+   {
+      List<Addon> started = new ArrayList<>();
+      Addon addon;
+      while ((addon = startedAddons.poll()) != null)
+      {
+         if (addon.getStatus().isStarted())
+            started.add(addon);
+      }
+      fireLifecycleBatch(started, true);
+   }
+
+   /**
+    * Fire one {@link PostStartupBatch} or {@link PreShutdownBatch} to each started {@link Addon} of every
+    * {@link AddonView} containing any of the given addons.
+    */
+   private void fireLifecycleBatch(List<Addon> addons, boolean started)
+   {
+      if (addons.isEmpty())
+         return;
+
+      for (AddonView view : views.keySet())
+      {
+         List<Addon> inView = new ArrayList<>();
+         for (Addon addon : addons)
+         {
+            if (stateManager.getViewsOf(addon).contains(view))
+               inView.add(addon);
+         }
+         if (inView.isEmpty())
+            continue;
+
+         Object event = started ? new PostStartupBatch(inView) : new PreShutdownBatch(inView);
+         for (Addon receiver : view.getAddons())
+         {
+            if (receiver.getStatus().isStarted())
+            {
+               try
+               {
+                  receiver.getEventManager().fireEvent(event);
+               }
+               catch (Throwable t)
+               {
+                  logger.log(Level.WARNING, "Failed to deliver [" + event + "] to [" + receiver.getId() + "]", t);
+               }
+            }
+         }
+      }
    }
 
    /**
@@ -311,9 +668,19 @@ public class AddonLifecycleManager
    }
 
    public void startAddon(Addon addon)
+   {
+      startAddon(addon, 0);
+   }
+
+   /**
+    * Start the given {@link Addon} once all of its dependencies have started. Addons with a higher priority are started
+    * first when more addons are ready than there are threads available.
+    */
+   public void startAddon(Addon addon, int priority)
    {
       Assert.notNull(addon, "Addon to start must not be null.");
-      Callables.call(new StartEnabledAddonCallable(furnace, this, stateManager, executor, starting, addon));
+      Callables.call(new StartEnabledAddonCallable(furnace, this, stateManager, getExecutor(), starting, addon,
+               priority));
    }
 
    public AddonView getRootView()
@@ -357,6 +724,9 @@ public class AddonLifecycleManager
       if (!views.keySet().contains(view))
          throw new IllegalArgumentException("The given view does not belong to this Furnace instance.");
       views.remove(view);
+      eventRoutes.remove(view);
+      if (lock instanceof LockManagerImpl)
+         ((LockManagerImpl) lock).disposeStripe(view);
    }
 
    @Override
@@ -381,9 +751,17 @@ public class AddonLifecycleManager
    /**
     * Return an {@link EventManager} for the given {@link AddonView}
     */
-   public EventManager getEventManager(AddonView addonView)
+   public AsyncEventManager getEventManager(AddonView addonView)
    {
-      return new AddonViewEventManager(addonView, lock);
+      EventRoutingTable routes = eventRoutes.get(addonView);
+      if (routes == null)
+      {
+         routes = new EventRoutingTable(addonView, () -> getVersion(addonView));
+         EventRoutingTable existing = eventRoutes.putIfAbsent(addonView, routes);
+         if (existing != null)
+            routes = existing;
+      }
+      return new AddonViewEventManager(addonView, lock, getEventExecutor(), routes);
    }
 
 }
@@ -8,19 +8,18 @@ package org.jboss.forge.furnace.impl.addons;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonFilter;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonRegistry;
-import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.event.AsyncEventManager;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.repositories.AddonRepository;
@@ -41,9 +40,10 @@ public class AddonRegistryImpl implements AddonRegistry
    private final Set<AddonRepository> repositories;
    private final AddonLifecycleManager manager;
    private final String name;
+   private final ServiceTypeIndex serviceIndex = new ServiceTypeIndex(this);
 
-   private static Map<String, Imported<?>> importedCache = new ConcurrentHashMap<>();
-   private long cacheVersion = -1;
+   private final ServiceCache serviceCache = new ServiceCache();
+   private volatile long cacheVersion = -1;
 
    public AddonRegistryImpl(LockManager lock, AddonLifecycleManager manager, List<AddonRepository> repositories,
             String name)
@@ -62,7 +62,7 @@ public class AddonRegistryImpl implements AddonRegistry
    @Override
    public void dispose()
    {
-      importedCache.clear();
+      serviceCache.clear();
       manager.removeView(this);
       repositories.clear();
    }
@@ -71,7 +71,7 @@ public class AddonRegistryImpl implements AddonRegistry
    public Addon getAddon(final AddonId id)
    {
       Assert.notNull(id, "AddonId must not be null.");
-      return lock.performLocked(LockMode.WRITE, new Callable<Addon>()
+      return lock.performLocked(this, LockMode.WRITE, new Callable<Addon>()
       {
          @Override
          public Addon call() throws Exception
@@ -130,24 +130,63 @@ public class AddonRegistryImpl implements AddonRegistry
    }
 
    @Override
-   @SuppressWarnings("unchecked")
    public <T> Imported<T> getServices(final Class<T> type)
    {
-      if (getVersion() != cacheVersion)
+      refreshServiceCache();
+      Imported<T> imported = serviceCache.get(type);
+      if (imported == null)
       {
-         cacheVersion = getVersion();
-         importedCache.clear();
+         imported = new ImportedImpl<>(this, lock, type);
+         serviceCache.put(type, imported, isAddonType(type));
       }
+      return imported;
+   }
 
-      String cacheKey = type.getName()
-               + (type.getClassLoader() == null ? "SystemCL" : type.getClassLoader().toString());
-      Imported<?> imported = importedCache.get(cacheKey);
-      if (imported == null)
+   /**
+    * Get the cache backing {@link #getServices(Class)}.
+    */
+   public ServiceCache getServiceCache()
+   {
+      return serviceCache;
+   }
+
+   /**
+    * Evict cached {@link Imported} instances for types whose addon {@link ClassLoader} went away since the last
+    * version. Cached instances for other types refresh themselves when the version changes.
+    */
+   private void refreshServiceCache()
+   {
+      long version = getVersion();
+      if (version != cacheVersion)
       {
-         imported = new ImportedImpl<>(this, lock, type);
-         importedCache.put(cacheKey, imported);
+         Set<ClassLoader> loaders = Collections.newSetFromMap(new IdentityHashMap<ClassLoader, Boolean>());
+         for (Addon addon : getAddons())
+         {
+            ClassLoader loader = addon.getClassLoader();
+            if (loader != null)
+               loaders.add(loader);
+         }
+         serviceCache.retainLoaders(loaders);
+         cacheVersion = version;
+      }
+   }
+
+   /**
+    * Tell whether the given type may belong to an addon, i.e. it was not loaded by the bootstrap {@link ClassLoader}
+    * nor by the {@link ClassLoader} of the container or one of its parents. The type may come from an addon that is
+    * not started yet, or not part of this view, so the {@link ClassLoader} instances of the current addons cannot be
+    * used to decide.
+    */
+   private static boolean isAddonType(Class<?> type)
+   {
+      ClassLoader loader = type.getClassLoader();
+      for (ClassLoader container = AddonRegistryImpl.class.getClassLoader(); container != null; container = container
+               .getParent())
+      {
+         if (loader == container)
+            return false;
       }
-      return (Imported<T>) imported;
+      return loader != null;
    }
 
    @Override
@@ -165,13 +204,10 @@ public class AddonRegistryImpl implements AddonRegistry
          public Set<Class<?>> call() throws Exception
          {
             Set<Class<?>> result = new HashSet<>();
-            for (Addon addon : getAddons())
+            for (Addon addon : serviceIndex.getProviders())
             {
-               if (addon.getStatus().isStarted())
-               {
-                  ServiceRegistry serviceRegistry = addon.getServiceRegistry();
-                  result.addAll(serviceRegistry.getExportedTypes());
-               }
+               ServiceRegistry serviceRegistry = addon.getServiceRegistry();
+               result.addAll(serviceRegistry.getExportedTypes());
             }
             return result;
          }
@@ -187,19 +223,24 @@ public class AddonRegistryImpl implements AddonRegistry
          public Set<Class<T>> call() throws Exception
          {
             Set<Class<T>> result = new HashSet<>();
-            for (Addon addon : getAddons())
+            for (Addon addon : serviceIndex.getProviders(type.getName()))
             {
-               if (addon.getStatus().isStarted())
-               {
-                  ServiceRegistry serviceRegistry = addon.getServiceRegistry();
-                  result.addAll(serviceRegistry.getExportedTypes(type));
-               }
+               ServiceRegistry serviceRegistry = addon.getServiceRegistry();
+               result.addAll(serviceRegistry.getExportedTypes(type));
             }
             return result;
          }
       });
    }
 
+   /**
+    * Get the started addons of this view that export a service assignable to the type with the given name.
+    */
+   Set<Addon> getServiceProviders(String typeName)
+   {
+      return serviceIndex.getProviders(typeName);
+   }
+
    @Override
    public long getVersion()
    {
@@ -207,7 +248,7 @@ public class AddonRegistryImpl implements AddonRegistry
    }
 
    @Override
-   public EventManager getEventManager()
+   public AsyncEventManager getEventManager()
    {
       return manager.getEventManager(this);
    }
@@ -28,7 +28,7 @@ import org.jboss.forge.furnace.versions.Versions;
  * @author <a href="mailto:koen.aers@gmail.com">Koen Aers</a>
  * @author <a href="mailto:ggastald@redhat.com">George Gastaldi</a>
  */
-public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyCheckableRepository
+public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyCheckableRepository, AutoCloseable
 {
 
    private static final String DEFAULT_ADDON_DIR = ".forge/addons";
@@ -71,20 +71,44 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
 
    private final File addonDir;
 
+   private final RepositoryIndex index;
+
    private AddonRepositoryImpl(Furnace furnace, File addonDir)
    {
-      this(new AddonRepositoryStorageStrategyImpl(furnace.getLockManager(), addonDir),
-              new AddonRepositoryStateStrategyImpl(furnace, addonDir), addonDir);
+      this(furnace, addonDir, RepositoryIndex.isEnabled() ? new RepositoryIndex(addonDir) : null);
+   }
+
+   private AddonRepositoryImpl(Furnace furnace, File addonDir, RepositoryIndex index)
+   {
+      this(new AddonRepositoryStorageStrategyImpl(furnace.getLockManager(), addonDir, index),
+              new AddonRepositoryStateStrategyImpl(furnace, addonDir, index), addonDir, index);
    }
 
    public AddonRepositoryImpl(MutableAddonRepositoryStorageStrategy storageRepository,
                               MutableAddonRepositoryStateStrategy stateRepository, File addonDir)
+   {
+      this(storageRepository, stateRepository, addonDir, null);
+   }
+
+   private AddonRepositoryImpl(MutableAddonRepositoryStorageStrategy storageRepository,
+            MutableAddonRepositoryStateStrategy stateRepository, File addonDir, RepositoryIndex index)
    {
       Assert.notNull(addonDir, "Addon directory must not be null.");
 
       this.storageRepository = storageRepository;
       this.stateRepository = stateRepository;
       this.addonDir = addonDir;
+      this.index = index;
+   }
+
+   /**
+    * Release the resources held by this repository, writing its {@link RepositoryIndex} if it has one.
+    */
+   @Override
+   public void close()
+   {
+      if (index != null)
+         index.close();
    }
 
    @Override
@@ -176,6 +200,24 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
       return storageRepository.undeploy(addonEntry);
    }
 
+   @Override
+   public void beginBatch()
+   {
+      stateRepository.beginBatch();
+   }
+
+   @Override
+   public void commitBatch()
+   {
+      stateRepository.commitBatch();
+   }
+
+   @Override
+   public void rollbackBatch()
+   {
+      stateRepository.rollbackBatch();
+   }
+
    @Override
    public File getAddonBaseDir(AddonId addon)
    {
@@ -221,6 +263,20 @@ public final class AddonRepositoryImpl implements MutableAddonRepository, DirtyC
    @Override
    public DirtyChecker createDirtyChecker()
    {
-      return new CompositeDirtyChecker(storageRepository.createDirtyChecker(), stateRepository.createDirtyChecker());
+      return new CompositeDirtyChecker(storageRepository.createDirtyChecker(this::getAddonForSlot),
+               stateRepository.createDirtyChecker());
+   }
+
+   /**
+    * Get the installed addon deployed to the slot directory with the given name, or <code>null</code> if none.
+    */
+   private AddonId getAddonForSlot(String slot)
+   {
+      for (AddonId addon : listAll())
+      {
+         if (slot.equals(getAddonBaseDir(addon).getName()))
+            return addon;
+      }
+      return null;
    }
 }
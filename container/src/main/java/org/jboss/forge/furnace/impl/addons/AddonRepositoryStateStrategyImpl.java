@@ -10,11 +10,18 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,6 +29,7 @@ import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.AddonCompatibilityStrategy;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.spi.ListenerRegistration;
 import org.jboss.forge.furnace.util.Streams;
 import org.jboss.forge.furnace.versions.Version;
 import org.jboss.forge.furnace.versions.Versions;
@@ -48,48 +56,58 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
 
    private static final String REGISTRY_DESCRIPTOR_NAME = "installed.xml";
 
+   private static final int PARSE_ATTEMPTS = 10;
+   private static final long PARSE_RETRY_DELAY_MILLIS = 50;
+
    private final Furnace furnace;
+   private final RepositoryIndex index;
+
+   private final List<Runnable> versionListeners = new CopyOnWriteArrayList<>();
 
    private int version = 1;
 
+   /**
+    * The last parsed contents of the registry file, reused until the file is modified.
+    */
+   private volatile InstalledAddons installed;
+
+   /**
+    * The open batches of each thread, innermost first. Changes are only replayed against the registry file when the
+    * outermost batch is committed, so that modifications made meanwhile by other threads are not lost.
+    */
+   private final ThreadLocal<Deque<List<RegistryChange>>> batches = new ThreadLocal<>();
+
    public AddonRepositoryStateStrategyImpl(Furnace furnace, File addonDir)
+   {
+      this(furnace, addonDir, null);
+   }
+
+   /**
+    * Create a new instance that also reads and maintains the given {@link RepositoryIndex}, which may be
+    * <code>null</code>.
+    */
+   public AddonRepositoryStateStrategyImpl(Furnace furnace, File addonDir, RepositoryIndex index)
    {
       super(furnace.getLockManager(), addonDir);
       this.furnace = furnace;
+      this.index = index;
    }
 
    @Override
    public boolean disable(final AddonId addon)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      if (addon == null)
+      {
+         throw new RuntimeException("Addon must not be null");
+      }
+      return change(new RegistryChange()
       {
          @Override
-         public Boolean call() throws Exception
+         public void apply(Node installed)
          {
-            if (addon == null)
-            {
-               throw new RuntimeException("Addon must not be null");
-            }
-
-            File registryFile = getRepositoryRegistryFile();
-            if (registryFile.exists())
-            {
-               try
-               {
-                  Node installed = getXmlRoot(registryFile);
-
-                  Node child = installed.getSingle("addon@" + ATTR_NAME + "=" + addon.getName() + "&"
-                           + ATTR_VERSION + "=" + addon.getVersion());
-                  installed.removeChild(child);
-                  saveRegistryFile(installed);
-                  return true;
-               }
-               catch (IOException e)
-               {
-                  throw new RuntimeException("Could not modify [" + registryFile.getAbsolutePath() + "] - ", e);
-               }
-            }
-            return false;
+            Node child = installed.getSingle("addon@" + ATTR_NAME + "=" + addon.getName() + "&"
+                     + ATTR_VERSION + "=" + addon.getVersion());
+            installed.removeChild(child);
          }
       });
    }
@@ -97,39 +115,126 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
    @Override
    public boolean enable(final AddonId addon)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      if (addon == null)
+      {
+         throw new RuntimeException("AddonId must not be null");
+      }
+      return change(new RegistryChange()
+      {
+         @Override
+         public void apply(Node installed)
+         {
+            installed.getOrCreate("addon@" + ATTR_NAME + "=" + (addon.getName() == null ? "" : addon.getName()) +
+                     "&" + ATTR_VERSION + "=" + addon.getVersion())
+                     .attribute(ATTR_API_VERSION, (addon.getApiVersion() == null ? "" : addon.getApiVersion()));
+         }
+      });
+   }
+
+   /**
+    * Apply the given change to the registry file, or record it in the innermost batch of the current thread.
+    */
+   private boolean change(final RegistryChange change)
+   {
+      Deque<List<RegistryChange>> batches = this.batches.get();
+      if (batches != null)
+      {
+         batches.peek().add(change);
+         return true;
+      }
+      return lock.performLocked(addonDir, LockMode.WRITE, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
          {
-            if (addon == null)
+            save(Collections.singletonList(change));
+            return true;
+         }
+      });
+   }
+
+   @Override
+   public void beginBatch()
+   {
+      Deque<List<RegistryChange>> batches = this.batches.get();
+      if (batches == null)
+      {
+         batches = new ArrayDeque<>();
+         this.batches.set(batches);
+      }
+      batches.push(new ArrayList<RegistryChange>());
+   }
+
+   @Override
+   public void commitBatch()
+   {
+      final List<RegistryChange> changes = endBatch();
+      Deque<List<RegistryChange>> batches = this.batches.get();
+      if (batches != null)
+      {
+         // Nested batch: its changes become part of the enclosing one
+         batches.peek().addAll(changes);
+      }
+      else if (!changes.isEmpty())
+      {
+         lock.performLocked(addonDir, LockMode.WRITE, new Callable<Void>()
+         {
+            @Override
+            public Void call() throws Exception
             {
-               throw new RuntimeException("AddonId must not be null");
+               save(changes);
+               return null;
             }
+         });
+      }
+   }
 
-            File registryFile = getRepositoryRegistryFile();
-            try
-            {
-               Node installed = getXmlRoot(registryFile);
+   @Override
+   public void rollbackBatch()
+   {
+      endBatch();
+   }
 
-               installed.getOrCreate("addon@" + ATTR_NAME + "=" + (addon.getName() == null ? "" : addon.getName()) +
-                        "&" + ATTR_VERSION + "=" + addon.getVersion())
-                        .attribute(ATTR_API_VERSION, (addon.getApiVersion() == null ? "" : addon.getApiVersion()));
+   /**
+    * Remove the innermost batch of the current thread and return its changes.
+    */
+   private List<RegistryChange> endBatch()
+   {
+      Deque<List<RegistryChange>> batches = this.batches.get();
+      if (batches == null)
+         throw new IllegalStateException("No batch in progress for [" + addonDir + "] in this thread");
 
-               saveRegistryFile(installed);
-               return true;
-            }
-            catch (FileNotFoundException e)
-            {
-               throw new RuntimeException("Could not read [" + registryFile.getAbsolutePath() + "] - ", e);
-            }
+      List<RegistryChange> changes = batches.pop();
+      if (batches.isEmpty())
+         this.batches.remove();
+      return changes;
+   }
+
+   /**
+    * Apply the given changes to the current contents of the registry file and write it once. Must be called with the
+    * {@link LockMode#WRITE} lock of this repository held.
+    */
+   private void save(List<RegistryChange> changes) throws InterruptedException
+   {
+      File registryFile = getRepositoryRegistryFile();
+      try
+      {
+         Node installed = getXmlRoot(registryFile);
+         for (RegistryChange change : changes)
+         {
+            change.apply(installed);
          }
-      });
+         saveRegistryFile(installed);
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException("Could not modify [" + registryFile.getAbsolutePath() + "] - ", e);
+      }
    }
 
    private File getRepositoryRegistryFile()
    {
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<File>()
       {
          @Override
          public File call() throws Exception
@@ -155,12 +260,21 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
    @Override
    public boolean isEnabled(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Boolean>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
          {
-            return listEnabled().contains(addon);
+            if (addon == null)
+               return false;
+
+            AddonCompatibilityStrategy strategy = furnace.getAddonCompatibilityStrategy();
+            for (AddonId entry : getInstalledAddons().getByName(addon.getName()))
+            {
+               if (entry.equals(addon) && strategy.isCompatible(furnace, entry))
+                  return true;
+            }
+            return false;
          }
       });
    }
@@ -169,12 +283,12 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
    public List<AddonId> listEnabled()
    {
       final AddonCompatibilityStrategy strategy = furnace.getAddonCompatibilityStrategy();
-      return lock.performLocked(LockMode.READ, new Callable<List<AddonId>>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<List<AddonId>>()
       {
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> list = listAll();
+            List<AddonId> list = getInstalledAddons().getAll();
             List<AddonId> result = new ArrayList<>();
             for (AddonId entry : list)
             {
@@ -192,12 +306,12 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
    @Override
    public List<AddonId> listEnabledCompatibleWithVersion(final Version version)
    {
-      return lock.performLocked(LockMode.READ, new Callable<List<AddonId>>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<List<AddonId>>()
       {
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> list = listAll();
+            List<AddonId> list = getInstalledAddons().getAll();
             List<AddonId> result = new ArrayList<>();
             for (AddonId entry : list)
             {
@@ -215,60 +329,95 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
    @Override
    public List<AddonId> listAll()
    {
-      return lock.performLocked(LockMode.READ, new Callable<List<AddonId>>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<List<AddonId>>()
       {
          @Override
          public List<AddonId> call() throws Exception
          {
-            List<AddonId> result = new ArrayList<AddonId>();
-            File registryFile = getRepositoryRegistryFile();
-            try
+            return new ArrayList<AddonId>(getInstalledAddons().getAll());
+         }
+      });
+   }
+
+   /**
+    * Get the parsed contents of the registry file. The file is only parsed again if it has been written by this
+    * repository, or its timestamp or size has changed, since it was last read.
+    */
+   private InstalledAddons getInstalledAddons()
+   {
+      File registryFile = getRepositoryRegistryFile();
+      long lastModified = registryFile.lastModified();
+      long length = registryFile.length();
+
+      InstalledAddons result = installed;
+      if (result == null || !result.isCurrent(version, lastModified, length))
+      {
+         List<AddonId> indexed = index == null ? null : index.getInstalled(lastModified, length);
+         if (indexed != null)
+         {
+            result = new InstalledAddons(version, lastModified, length, indexed);
+            installed = result;
+            return result;
+         }
+
+         List<AddonId> addons = new ArrayList<AddonId>();
+         try
+         {
+            Node root = getXmlRoot(registryFile);
+            if (root != null)
             {
-               Node installed = getXmlRoot(registryFile);
-               if (installed == null)
-               {
-                  return Collections.emptyList();
-               }
-               List<Node> list = installed.get("addon");
+               List<Node> list = root.get("addon");
                for (Node addon : list)
                {
                   AddonId entry = AddonId.from(addon.getAttribute(ATTR_NAME),
                            addon.getAttribute(ATTR_VERSION),
                            addon.getAttribute(ATTR_API_VERSION));
-                  result.add(entry);
+                  addons.add(entry);
                }
             }
-            catch (XMLParserException e)
-            {
-               throw new RuntimeException("Invalid syntax in [" + registryFile.getAbsolutePath()
-                        + "] - Please delete this file and restart Furnace", e);
-            }
-            catch (FileNotFoundException e)
-            {
-               // this is OK, no addons installed
-            }
-            return result;
          }
-      });
+         catch (XMLParserException e)
+         {
+            throw new RuntimeException("Invalid syntax in [" + registryFile.getAbsolutePath()
+                     + "] - Please delete this file and restart Furnace", e);
+         }
+         catch (FileNotFoundException e)
+         {
+            // this is OK, no addons installed
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading [" + registryFile.getAbsolutePath() + "]", e);
+         }
+         result = new InstalledAddons(version, lastModified, length, addons);
+         installed = result;
+         if (index != null)
+            index.putInstalled(lastModified, length, addons);
+      }
+      return result;
    }
 
    private Node getXmlRoot(File registryFile) throws FileNotFoundException, InterruptedException
    {
-      Node installed = null;
-
-      while (installed == null)
+      /*
+       * The registry file is replaced atomically, but may still be caught mid-write by a process that does not, so
+       * retry a bounded number of times before giving up.
+       */
+      for (int attempt = 1;; attempt++)
       {
          try
          {
-            installed = XMLParser.parse(registryFile);
+            return XMLParser.parse(registryFile);
          }
          catch (XMLParserException e)
          {
-            logger.log(Level.WARNING, "Error occurred while parsing [" + registryFile + "]", e);
+            if (attempt >= PARSE_ATTEMPTS)
+               throw e;
+            logger.log(Level.FINE, "Error occurred while parsing [" + registryFile + "], retrying.", e);
+            Thread.sleep(PARSE_RETRY_DELAY_MILLIS);
          }
       }
-
-      return installed;
    }
 
    @Override
@@ -277,28 +426,124 @@ public final class AddonRepositoryStateStrategyImpl extends AbstractFileSystemAd
       return version;
    }
 
-   private void saveRegistryFile(Node installed) throws FileNotFoundException
+   /**
+    * Write the registry to a temporary file and move it over the registry file, so that readers never observe a
+    * partially written registry.
+    */
+   private void saveRegistryFile(Node installed) throws IOException
    {
-      FileOutputStream outStream = null;
+      File registryFile = getRepositoryRegistryFile();
+      File temp = File.createTempFile(REGISTRY_DESCRIPTOR_NAME, ".tmp", registryFile.getParentFile());
       try
       {
-         outStream = new FileOutputStream(getRepositoryRegistryFile());
-         incrementVersion();
-         Streams.write(XMLParser.toXMLInputStream(installed), outStream);
+         FileOutputStream outStream = null;
+         try
+         {
+            outStream = new FileOutputStream(temp);
+            Streams.write(XMLParser.toXMLInputStream(installed), outStream);
+            outStream.getFD().sync();
+         }
+         finally
+         {
+            Streams.closeQuietly(outStream);
+         }
+
+         try
+         {
+            java.nio.file.Files.move(temp.toPath(), registryFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                     StandardCopyOption.REPLACE_EXISTING);
+         }
+         catch (AtomicMoveNotSupportedException e)
+         {
+            java.nio.file.Files.move(temp.toPath(), registryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+         }
       }
       finally
       {
-         Streams.closeQuietly(outStream);
+         temp.delete();
       }
+      incrementVersion();
    }
 
    private void incrementVersion()
    {
       version++;
+      for (Runnable listener : versionListeners)
+      {
+         listener.run();
+      }
+   }
+
+   private ListenerRegistration<Runnable> addVersionListener(final Runnable listener)
+   {
+      versionListeners.add(listener);
+      return new ListenerRegistration<Runnable>()
+      {
+         @Override
+         public Runnable removeListener()
+         {
+            versionListeners.remove(listener);
+            return listener;
+         }
+      };
    }
 
    @Override
    public DirtyChecker createDirtyChecker() {
-      return new VersionDirtyChecker(this::getVersion);
+      return new VersionDirtyChecker(this::getVersion, this::addVersionListener);
+   }
+
+   /**
+    * A pending modification of the registry document.
+    */
+   private interface RegistryChange
+   {
+      void apply(Node installed);
+   }
+
+   /**
+    * An immutable view of the registry file contents, indexed by addon name.
+    */
+   private static class InstalledAddons
+   {
+      private final int version;
+      private final long lastModified;
+      private final long length;
+      private final List<AddonId> all;
+      private final Map<String, List<AddonId>> byName = new HashMap<>();
+
+      InstalledAddons(int version, long lastModified, long length, List<AddonId> all)
+      {
+         this.version = version;
+         this.lastModified = lastModified;
+         this.length = length;
+         this.all = Collections.unmodifiableList(all);
+         for (AddonId id : all)
+         {
+            List<AddonId> named = byName.get(id.getName());
+            if (named == null)
+            {
+               named = new ArrayList<>();
+               byName.put(id.getName(), named);
+            }
+            named.add(id);
+         }
+      }
+
+      boolean isCurrent(int version, long lastModified, long length)
+      {
+         return this.version == version && this.lastModified == lastModified && this.length == length;
+      }
+
+      List<AddonId> getAll()
+      {
+         return all;
+      }
+
+      List<AddonId> getByName(String name)
+      {
+         List<AddonId> result = byName.get(name);
+         return result == null ? Collections.<AddonId> emptyList() : result;
+      }
    }
 }
@@ -14,8 +14,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,6 +51,9 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
 
    private static final Logger logger = Logger.getLogger(AddonRepositoryStorageStrategyImpl.class.getName());
 
+   private static final int PARSE_ATTEMPTS = 10;
+   private static final long PARSE_RETRY_DELAY_MILLIS = 50;
+
    private static final String ATTR_EXPORT = "export";
    private static final String ATTR_NAME = "name";
    private static final String ATTR_OPTIONAL = "optional";
@@ -58,20 +64,40 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
    private static final String DEPENDENCY_TAG_NAME = "dependency";
    private static final String DEPENDENCIES_TAG_NAME = "dependencies";
 
+   /**
+    * Parsed addon descriptors, reused for as long as the descriptor file is unchanged.
+    */
+   private final Map<AddonId, AddonDescriptor> descriptors = new ConcurrentHashMap<>();
+
+   private final RepositoryIndex index;
+
    public AddonRepositoryStorageStrategyImpl(LockManager lock, File addonDir)
+   {
+      this(lock, addonDir, null);
+   }
+
+   /**
+    * Create a new instance that also reads and maintains the given {@link RepositoryIndex}, which may be
+    * <code>null</code>.
+    */
+   public AddonRepositoryStorageStrategyImpl(LockManager lock, File addonDir, RepositoryIndex index)
    {
       super(lock, addonDir);
+      this.index = index;
    }
 
    @Override
    public boolean deploy(final AddonId addon, final Iterable<AddonDependencyEntry> dependencies,
             final Iterable<File> resources)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      return lock.performLocked(addonDir, LockMode.WRITE, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
          {
+            descriptors.remove(addon);
+            if (index != null)
+               index.remove(addon);
             File addonSlotDir = getAddonBaseDir(addon);
             File descriptor = getAddonDescriptor(addon);
             if (resources != null)
@@ -147,6 +173,7 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
             {
                Streams.write(XMLParser.toXMLInputStream(addonXml), fos);
             }
+            descriptors.remove(addon);
             return true;
          }
       });
@@ -159,7 +186,7 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
       Assert.notNull(found.getVersion(), "Addon version must be specified.");
       Assert.notNull(found.getName(), "Addon name must be specified.");
 
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<File>()
       {
          @Override
          public File call() throws Exception
@@ -173,14 +200,28 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
    @Override
    public Set<AddonDependencyEntry> getAddonDependencies(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<AddonDependencyEntry>>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<Set<AddonDependencyEntry>>()
       {
          @Override
          public Set<AddonDependencyEntry> call() throws Exception
          {
-            Set<AddonDependencyEntry> result = new LinkedHashSet<AddonDependencyEntry>();
             File descriptor = getAddonDescriptor(addon);
+            long lastModified = descriptor.lastModified();
+            long length = descriptor.length();
+
+            AddonDescriptor cached = descriptors.get(addon);
+            if (cached != null && cached.isCurrent(lastModified, length))
+               return cached.getDependencies();
+
+            Set<AddonDependencyEntry> indexed = index == null ? null
+                     : index.getDependencies(addon, lastModified, length);
+            if (indexed != null)
+            {
+               descriptors.put(addon, new AddonDescriptor(lastModified, length, indexed));
+               return indexed;
+            }
 
+            Set<AddonDependencyEntry> result = new LinkedHashSet<AddonDependencyEntry>();
             try
             {
                Node installed = getXmlRoot(descriptor);
@@ -201,8 +242,13 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
             catch (FileNotFoundException e)
             {
                // already removed
+               return result;
             }
 
+            result = Collections.unmodifiableSet(result);
+            descriptors.put(addon, new AddonDescriptor(lastModified, length, result));
+            if (index != null)
+               index.putDependencies(addon, lastModified, length, result);
             return result;
          }
       });
@@ -211,7 +257,7 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
    @Override
    public File getAddonDescriptor(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<File>()
       {
          @Override
          public File call() throws Exception
@@ -248,7 +294,7 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
 
    private File getAddonDescriptorFile(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<File>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<File>()
       {
 
          @Override
@@ -262,7 +308,7 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
    @Override
    public List<File> getAddonResources(final AddonId found)
    {
-      return lock.performLocked(LockMode.READ, new Callable<List<File>>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<List<File>>()
       {
          @Override
          public List<File> call() throws Exception
@@ -270,6 +316,11 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
             File dir = getAddonBaseDir(found);
             if (dir.exists())
             {
+               long lastModified = dir.lastModified();
+               List<File> indexed = index == null ? null : index.getResources(found, dir, lastModified);
+               if (indexed != null)
+                  return indexed;
+
                File[] files = dir.listFiles(new FileFilter()
                {
                   @Override
@@ -278,7 +329,10 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
                      return pathname.isDirectory() || pathname.getName().endsWith(".jar");
                   }
                });
-               return Arrays.asList(files);
+               List<File> result = Arrays.asList(files);
+               if (index != null)
+                  index.putResources(found, lastModified, result);
+               return result;
             }
             return Collections.emptyList();
          }
@@ -288,7 +342,7 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
    @Override
    public boolean isDeployed(final AddonId addon)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Boolean>()
+      return lock.performLocked(addonDir, LockMode.READ, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
@@ -304,11 +358,14 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
    @Override
    public boolean undeploy(final AddonId addon)
    {
-      return lock.performLocked(LockMode.WRITE, new Callable<Boolean>()
+      return lock.performLocked(addonDir, LockMode.WRITE, new Callable<Boolean>()
       {
          @Override
          public Boolean call() throws Exception
          {
+            descriptors.remove(addon);
+            if (index != null)
+               index.remove(addon);
             File dir = getAddonBaseDir(addon);
             return Files.delete(dir, true);
          }
@@ -317,25 +374,57 @@ public final class AddonRepositoryStorageStrategyImpl extends AbstractFileSystem
 
    private Node getXmlRoot(File registryFile) throws FileNotFoundException, InterruptedException
    {
-      Node installed = null;
-
-      while (installed == null)
+      for (int attempt = 1;; attempt++)
       {
          try
          {
-            installed = XMLParser.parse(registryFile);
+            return XMLParser.parse(registryFile);
          }
          catch (XMLParserException e)
          {
-            logger.log(Level.WARNING, "Error occurred while parsing [" + registryFile + "]", e);
+            if (attempt >= PARSE_ATTEMPTS)
+               throw e;
+            logger.log(Level.FINE, "Error occurred while parsing [" + registryFile + "], retrying.", e);
+            Thread.sleep(PARSE_RETRY_DELAY_MILLIS);
          }
       }
-
-      return installed;
    }
 
    @Override
    public DirtyChecker createDirtyChecker() {
       return new FileSystemDirtyChecker(addonDir);
    }
+
+   @Override
+   public DirtyChecker createDirtyChecker(Function<String, AddonId> slotResolver)
+   {
+      return new FileSystemDirtyChecker(addonDir, slotResolver);
+   }
+
+   /**
+    * The dependencies parsed from an addon descriptor, along with the file attributes they were read from.
+    */
+   private static class AddonDescriptor
+   {
+      private final long lastModified;
+      private final long length;
+      private final Set<AddonDependencyEntry> dependencies;
+
+      AddonDescriptor(long lastModified, long length, Set<AddonDependencyEntry> dependencies)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.dependencies = dependencies;
+      }
+
+      boolean isCurrent(long lastModified, long length)
+      {
+         return this.lastModified == lastModified && this.length == length;
+      }
+
+      Set<AddonDependencyEntry> getDependencies()
+      {
+         return dependencies;
+      }
+   }
 }
@@ -7,6 +7,7 @@
 package org.jboss.forge.furnace.impl.addons;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
@@ -18,8 +19,6 @@ import java.util.logging.Logger;
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonDependency;
-import org.jboss.forge.furnace.addons.AddonFilter;
-import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.event.PostStartup;
 import org.jboss.forge.furnace.event.PreShutdown;
 import org.jboss.forge.furnace.exception.ContainerException;
@@ -49,15 +48,6 @@ public final class AddonRunnable implements Runnable
 
    private AddonLifecycleProviderEntry lifecycleProviderEntry;
 
-   private final AddonFilter notThisAddonFilter = new AddonFilter()
-   {
-      @Override
-      public boolean accept(Addon other)
-      {
-         return !other.equals(addon);
-      }
-   };
-
    public AddonRunnable(Furnace furnace, AddonLifecycleManager lifecycleManager, AddonStateManager stateManager,
             Addon addon)
    {
@@ -132,24 +122,32 @@ public final class AddonRunnable implements Runnable
 
    private void firePostStartup(final AddonLifecycleProvider lifecycleProvider) throws Exception
    {
-      // Wait until all dependencies are started
+      /*
+       * Dependencies scheduled in the same pass are already started (see StartEnabledAddonCallable), so this only waits
+       * on dependencies that were started some other way.
+       */
       for (AddonDependency dependency : addon.getDependencies())
       {
-         if (dependency.getDependency().getStatus().isLoaded())
-            Addons.waitUntilStarted(dependency.getDependency());
+         Addon dep = dependency.getDependency();
+         if (dep.getStatus().isLoaded() && !(dep.getFuture() instanceof AddonStartTask))
+            Addons.waitUntilStarted(dep);
       }
       // Fire PostStartup event to this addon
       lifecycleProvider.postStartup(addon);
 
-      // Fire PostStartup event to other addons
-      PostStartup postStartup = new PostStartup(addon);
-      for (AddonView view : stateManager.getViewsOf(addon))
+      // Fire PostStartup event to other addons that asked for one per addon
+      Collection<Addon> observers = lifecycleManager.getPerAddonEventObservers(addon, PostStartup.class);
+      if (!observers.isEmpty())
       {
-         for (Addon a : view.getAddons(notThisAddonFilter))
+         PostStartup postStartup = new PostStartup(addon);
+         for (Addon a : observers)
          {
             a.getEventManager().fireEvent(postStartup);
          }
       }
+
+      // All other addons are notified with a PostStartupBatch once this startup cycle is done
+      lifecycleManager.addonStarted(addon);
    }
 
    public void shutdown()
@@ -171,19 +169,16 @@ public final class AddonRunnable implements Runnable
                {
                   try
                   {
-                     for (AddonView view : stateManager.getViewsOf(addon))
+                     for (Addon a : lifecycleManager.getPerAddonEventObservers(addon, PreShutdown.class))
                      {
-                        for (Addon a : view.getAddons(notThisAddonFilter))
+                        try
+                        {
+                           a.getEventManager().fireEvent(new PreShutdown(addon));
+                        }
+                        catch (Throwable t)
                         {
-                           try
-                           {
-                              a.getEventManager().fireEvent(new PreShutdown(addon));
-                           }
-                           catch (Throwable t)
-                           {
-                              logger.log(Level.FINE, "Failed to execute pre-shutdown task for [" + addon
-                                       + "] in event manager from " + a.getId(), t);
-                           }
+                           logger.log(Level.FINE, "Failed to execute pre-shutdown task for [" + addon
+                                    + "] in event manager from " + a.getId(), t);
                         }
                      }
                      lifecycleProvider.preShutdown(addon);
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * Runs the start {@link Runnable} of an {@link Addon} (an {@link AddonRunnable}) once all of its dependencies have
+ * finished starting. Tasks with a higher priority (those gating a longer chain of dependent addons) are executed first.
+ */
+public class AddonStartTask extends FutureTask<Void> implements Comparable<AddonStartTask>
+{
+   private final AddonLifecycleManager lifecycleManager;
+   private final Addon addon;
+   private final int priority;
+
+   /**
+    * Ensures that the lifecycle manager is notified exactly once, either by the start {@link Runnable} or, if it never
+    * ran, by {@link #done()}.
+    */
+   private final AtomicBoolean claimed;
+   private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+   public AddonStartTask(AddonLifecycleManager lifecycleManager, Addon addon, Runnable runnable, int priority)
+   {
+      this(lifecycleManager, addon, runnable, priority, new AtomicBoolean(false));
+   }
+
+   private AddonStartTask(AddonLifecycleManager lifecycleManager, Addon addon, final Runnable runnable,
+            int priority, final AtomicBoolean claimed)
+   {
+      super(() -> {
+         if (claimed.compareAndSet(false, true))
+            runnable.run();
+      }, null);
+
+      Assert.notNull(lifecycleManager, "Lifecycle manager must not be null.");
+      Assert.notNull(addon, "Addon must not be null.");
+
+      this.lifecycleManager = lifecycleManager;
+      this.addon = addon;
+      this.priority = priority;
+      this.claimed = claimed;
+   }
+
+   /**
+    * Get a {@link CompletableFuture} that completes when this task is done, whether it ran, failed, or was cancelled.
+    */
+   public CompletableFuture<Void> getCompletion()
+   {
+      return completion;
+   }
+
+   public int getPriority()
+   {
+      return priority;
+   }
+
+   @Override
+   protected void done()
+   {
+      if (claimed.compareAndSet(false, true))
+         lifecycleManager.finishedStarting(addon);
+      completion.complete(null);
+   }
+
+   @Override
+   public int compareTo(AddonStartTask other)
+   {
+      return Integer.compare(other.priority, priority);
+   }
+
+   @Override
+   public String toString()
+   {
+      return addon.toString() + " (priority " + priority + ")";
+   }
+}
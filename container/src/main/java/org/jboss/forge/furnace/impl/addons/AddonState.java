@@ -6,6 +6,7 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.Future;
@@ -18,16 +19,20 @@ import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.spi.ServiceRegistry;
 import org.jboss.forge.furnace.util.Assert;
 
-public class AddonState
+/**
+ * An immutable snapshot of the runtime state of an {@link org.jboss.forge.furnace.addons.Addon}. Updates are made by
+ * publishing a modified copy through the {@link AddonStateManager}, so readers never need to hold a lock.
+ */
+public final class AddonState
 {
-   private Future<Void> future = new NullFuture<>(null);
-   private Set<AddonDependency> dependencies = new LinkedHashSet<>();
-   private Set<AddonDependency> missingDependencies = new LinkedHashSet<>();
-   private AddonRepository repository;
-   private ServiceRegistry registry = NullServiceRegistry.INSTANCE;
-   private EventManager eventManager = NullEventManager.INSTANCE;
-   private AddonRunnable runnable;
-   private ClassLoader loader;
+   private final Future<Void> future;
+   private final Set<AddonDependency> dependencies;
+   private final Set<AddonDependency> missingDependencies;
+   private final AddonRepository repository;
+   private final ServiceRegistry registry;
+   private final EventManager eventManager;
+   private final AddonRunnable runnable;
+   private final ClassLoader loader;
 
    public AddonState(Set<AddonDependency> dependencies, AddonRepository repository,
             ClassLoader loader)
@@ -36,19 +41,46 @@ public class AddonState
       Assert.notNull(repository, "Addon repository must not be null.");
       Assert.notNull(loader, "Addon ClassLoader must not be null.");
 
-      this.dependencies = dependencies;
+      this.future = new NullFuture<>(null);
+      this.dependencies = Collections.unmodifiableSet(new LinkedHashSet<>(dependencies));
+      this.missingDependencies = Collections.emptySet();
       this.repository = repository;
+      this.registry = NullServiceRegistry.INSTANCE;
+      this.eventManager = NullEventManager.INSTANCE;
+      this.runnable = null;
       this.loader = loader;
    }
 
    public AddonState(Set<AddonDependency> missingDependencies)
    {
       Assert.notNull(missingDependencies, "Missing dependency set must not be null.");
-      this.missingDependencies = missingDependencies;
+
+      this.future = new NullFuture<>(null);
+      this.dependencies = Collections.emptySet();
+      this.missingDependencies = Collections.unmodifiableSet(new LinkedHashSet<>(missingDependencies));
+      this.repository = null;
+      this.registry = NullServiceRegistry.INSTANCE;
+      this.eventManager = NullEventManager.INSTANCE;
+      this.runnable = null;
+      this.loader = null;
    }
 
    public AddonState()
    {
+      this(Collections.<AddonDependency> emptySet());
+   }
+
+   private AddonState(AddonState original, Future<Void> future, AddonRunnable runnable, ServiceRegistry registry,
+            EventManager eventManager)
+   {
+      this.future = future;
+      this.dependencies = original.dependencies;
+      this.missingDependencies = original.missingDependencies;
+      this.repository = original.repository;
+      this.registry = registry;
+      this.eventManager = eventManager;
+      this.runnable = runnable;
+      this.loader = original.loader;
    }
 
    public ClassLoader getClassLoader()
@@ -76,11 +108,6 @@ public class AddonState
       return future;
    }
 
-   public void setFuture(Future<Void> future)
-   {
-      this.future = future;
-   }
-
    public AddonRepository getRepository()
    {
       return repository;
@@ -91,24 +118,34 @@ public class AddonState
       return runnable;
    }
 
-   public void setRunnable(AddonRunnable runnable)
-   {
-      this.runnable = runnable;
-   }
-
    public ServiceRegistry getServiceRegistry()
    {
       return registry;
    }
 
-   public void setServiceRegistry(ServiceRegistry registry)
+   /**
+    * Return a copy of this {@link AddonState} with the given start handles.
+    */
+   public AddonState withHandles(Future<Void> future, AddonRunnable runnable)
    {
-      this.registry = (registry != null ? registry : NullServiceRegistry.INSTANCE);
+      return new AddonState(this, future, runnable, registry, eventManager);
    }
 
-   public void setEventManager(EventManager manager)
+   /**
+    * Return a copy of this {@link AddonState} with the given {@link ServiceRegistry}.
+    */
+   public AddonState withServiceRegistry(ServiceRegistry registry)
    {
-      this.eventManager = (manager != null ? manager : NullEventManager.INSTANCE);
+      return new AddonState(this, future, runnable,
+               (registry != null ? registry : NullServiceRegistry.INSTANCE), eventManager);
    }
 
+   /**
+    * Return a copy of this {@link AddonState} with the given {@link EventManager}.
+    */
+   public AddonState withEventManager(EventManager manager)
+   {
+      return new AddonState(this, future, runnable, registry,
+               (manager != null ? manager : NullEventManager.INSTANCE));
+   }
 }
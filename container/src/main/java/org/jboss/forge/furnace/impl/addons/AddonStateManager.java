@@ -6,6 +6,8 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -14,6 +16,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonDependency;
@@ -31,14 +34,25 @@ import org.jboss.forge.furnace.util.Assert;
 
 public class AddonStateManager
 {
+   private static final AddonState EMPTY_STATE = new AddonState();
+
    private final LockManager lock;
-   private MasterGraph graph;
+   private volatile MasterGraph graph;
 
    /**
     * Use an {@link IdentityHashMap} because we may have separate copies of {@link Addon} instances for each
-    * {@link AddonView}.
+    * {@link AddonView}. The map is never modified once published; writers replace it with an updated copy so that
+    * readers do not need to acquire the {@link LockManager}.
+    */
+   private volatile Map<Addon, AddonState> states = Collections.emptyMap();
+   private final Object statesMonitor = new Object();
+
+   /**
+    * The {@link Addon} instances of the current {@link MasterGraph} and the {@link AddonView} instances they belong
+    * to. Like {@link #states}, it is never modified once published, so that it can be read without acquiring the
+    * {@link LockManager}; the graph itself is only safe to read while holding it.
     */
-   private final Map<Addon, AddonState> states = new IdentityHashMap<Addon, AddonState>();
+   private volatile GraphIndex index = GraphIndex.EMPTY;
    private AddonModuleLoader loader;
 
    public AddonStateManager(LockManager lock)
@@ -49,7 +63,11 @@ public class AddonStateManager
    public void dispose()
    {
       this.graph = null;
-      this.states.clear();
+      synchronized (statesMonitor)
+      {
+         this.states = Collections.emptyMap();
+         this.index = GraphIndex.EMPTY;
+      }
       this.loader = null;
    }
 
@@ -66,6 +84,14 @@ public class AddonStateManager
       getState(addon);
    }
 
+   /**
+    * Get the current {@link AddonState} snapshot of the given {@link Addon}. This never blocks.
+    */
+   public AddonState getStateOf(Addon addon)
+   {
+      return getState(addon);
+   }
+
    public Set<AddonDependency> getDependenciesOf(Addon addon)
    {
       return getState(addon).getDependencies();
@@ -108,96 +134,118 @@ public class AddonStateManager
 
    /**
     * Return an {@link Addon} compatible with the given {@link AddonView}, if it is already registered (this occurs when
-    * {@link AddonView} instances share {@link Addon} sub-graphs.
+    * {@link AddonView} instances share {@link Addon} sub-graphs. This never blocks.
     */
    public Addon getAddonForView(final AddonView view, final AddonId id)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Addon>()
+      Map<AddonId, Addon> addons = index.addons.get(view);
+      return addons != null ? addons.get(id) : null;
+   }
+
+   /**
+    * Get the unmodifiable {@link Set} of {@link AddonView} instances of the given {@link Addon} in the current
+    * {@link MasterGraph}. This never blocks.
+    */
+   public Set<AddonView> getViewsOf(final Addon addon)
+   {
+      Set<AddonView> result = index.views.get(addon);
+      return result != null ? result : Collections.<AddonView> emptySet();
+   }
+
+   private AddonState getState(final Addon addon)
+   {
+      AddonState result = states.get(addon);
+      if (result == null)
+         result = EMPTY_STATE;
+      return result;
+   }
+
+   public void setState(final Addon addon, final AddonState state)
+   {
+      lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
          @Override
-         public Addon call() throws Exception
+         public Void call() throws Exception
          {
-            for (AddonVertex vertex : getCurrentGraph().getGraph().vertexSet())
+            synchronized (statesMonitor)
             {
-               if (vertex.getAddonId().equals(id) && vertex.getViews().contains(view))
-               {
-                  return vertex.getAddon();
-               }
+               Map<Addon, AddonState> update = new IdentityHashMap<>(states);
+               update.put(addon, state);
+               states = Collections.unmodifiableMap(update);
             }
             return null;
          }
       });
    }
 
-   public Set<AddonView> getViewsOf(final Addon addon)
+   /**
+    * Publish a modified copy of the {@link AddonState} of the given {@link Addon}. Addons without a registered state
+    * are left untouched.
+    */
+   private void updateState(final Addon addon, final UnaryOperator<AddonState> update)
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<AddonView>>()
+      lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
          @Override
-         public Set<AddonView> call() throws Exception
+         public Void call() throws Exception
          {
-            Set<AddonView> result = new HashSet<AddonView>();
-            for (AddonVertex vertex : getCurrentGraph().getGraph().vertexSet())
+            synchronized (statesMonitor)
             {
-               if (addon.equals(vertex.getAddon()))
+               AddonState current = states.get(addon);
+               if (current != null)
                {
-                  result.addAll(vertex.getViews());
-                  break;
+                  Map<Addon, AddonState> copy = new IdentityHashMap<>(states);
+                  copy.put(addon, update.apply(current));
+                  states = Collections.unmodifiableMap(copy);
                }
             }
-            return result;
+            return null;
          }
       });
    }
 
-   private AddonState getState(final Addon addon)
+   public MasterGraph getCurrentGraph()
    {
-      return lock.performLocked(LockMode.READ, new Callable<AddonState>()
-      {
-         @Override
-         public AddonState call() throws Exception
-         {
-            AddonState result = states.get(addon);
-            if (result == null)
-               result = new AddonState();
-            return result;
-         }
-      });
+      MasterGraph current = graph;
+      return current != null ? current : new MasterGraph();
    }
 
-   public void setState(final Addon addon, final AddonState state)
+   public void setCurrentGraph(final MasterGraph update)
    {
       lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
          @Override
          public Void call() throws Exception
          {
-            states.put(addon, state);
+            synchronized (statesMonitor)
+            {
+               graph = update;
+               index = GraphIndex.EMPTY.with(update, update.getGraph().vertexSet());
+            }
             return null;
          }
       });
    }
 
-   public MasterGraph getCurrentGraph()
-   {
-      return lock.performLocked(LockMode.READ, new Callable<MasterGraph>()
-      {
-         @Override
-         public MasterGraph call() throws Exception
-         {
-            return graph != null ? graph : new MasterGraph();
-         }
-      });
-   }
-
-   public void setCurrentGraph(final MasterGraph update)
+   /**
+    * Assign the given {@link Addon} to the given {@link AddonVertex} of the current {@link MasterGraph}, and publish
+    * the change to readers of {@link #getAddonForView(AddonView, AddonId)} and {@link #getViewsOf(Addon)}. Vertices
+    * added to the current graph must be published the same way, with the {@link Addon} they already hold.
+    */
+   public void setAddon(final AddonVertex vertex, final Addon addon)
    {
       lock.performLocked(LockMode.WRITE, new Callable<Void>()
       {
          @Override
          public Void call() throws Exception
          {
-            graph = update;
+            synchronized (statesMonitor)
+            {
+               Addon previous = vertex.getAddon();
+               vertex.setAddon(addon);
+               if (graph != null)
+                  index = index.with(graph, previous, vertex);
+            }
             return null;
          }
       });
@@ -274,7 +322,15 @@ public class AddonStateManager
          @Override
          public Void call() throws Exception
          {
-            states.remove(addon);
+            synchronized (statesMonitor)
+            {
+               if (states.containsKey(addon))
+               {
+                  Map<Addon, AddonState> update = new IdentityHashMap<>(states);
+                  update.remove(addon);
+                  states = Collections.unmodifiableMap(update);
+               }
+            }
             return null;
          }
       });
@@ -288,42 +344,17 @@ public class AddonStateManager
 
    public void setHandles(final Addon addon, final Future<Void> result, final AddonRunnable runnable)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
-      {
-         @Override
-         public Void call() throws Exception
-         {
-            getState(addon).setFuture(result);
-            getState(addon).setRunnable(runnable);
-            return null;
-         }
-      });
+      updateState(addon, state -> state.withHandles(result, runnable));
    }
 
    public void setEventManager(final Addon addon, final EventManager manager)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
-      {
-         @Override
-         public Void call() throws Exception
-         {
-            getState(addon).setEventManager(manager);
-            return null;
-         }
-      });
+      updateState(addon, state -> state.withEventManager(manager));
    }
 
    public void setServiceRegistry(final Addon addon, final ServiceRegistry registry)
    {
-      lock.performLocked(LockMode.WRITE, new Callable<Void>()
-      {
-         @Override
-         public Void call() throws Exception
-         {
-            getState(addon).setServiceRegistry(registry);
-            return null;
-         }
-      });
+      updateState(addon, state -> state.withServiceRegistry(registry));
    }
 
    @Override
@@ -342,4 +373,84 @@ public class AddonStateManager
 
       return builder.toString();
    }
+
+   /**
+    * An immutable copy of the lookups performed on the current {@link MasterGraph}.
+    */
+   private static final class GraphIndex
+   {
+      private static final GraphIndex EMPTY = new GraphIndex(Collections.<Addon, Set<AddonView>> emptyMap(),
+               Collections.<AddonView, Map<AddonId, Addon>> emptyMap());
+
+      /**
+       * The views of the first vertex holding an equal {@link Addon}, as {@link MasterGraph#getVertex(Addon)}.
+       */
+      private final Map<Addon, Set<AddonView>> views;
+
+      /**
+       * The {@link Addon} of each {@link AddonId} in each {@link AddonView}, as
+       * {@link MasterGraph#getVertex(AddonId, AddonView)}.
+       */
+      private final Map<AddonView, Map<AddonId, Addon>> addons;
+
+      private GraphIndex(Map<Addon, Set<AddonView>> views, Map<AddonView, Map<AddonId, Addon>> addons)
+      {
+         this.views = views;
+         this.addons = addons;
+      }
+
+      /**
+       * Return a copy of this index in which the entries of the given {@link Addon} and of every given vertex are
+       * looked up again in the given {@link MasterGraph}.
+       */
+      private GraphIndex with(MasterGraph graph, Addon previous, AddonVertex vertex)
+      {
+         GraphIndex result = with(graph, Collections.singleton(vertex));
+         if (previous != null && !previous.equals(vertex.getAddon()))
+            result.update(graph, previous);
+         return result;
+      }
+
+      private GraphIndex with(MasterGraph graph, Set<AddonVertex> vertices)
+      {
+         GraphIndex result = new GraphIndex(new HashMap<>(views), new HashMap<>(addons));
+         Set<AddonView> copied = new HashSet<>();
+         for (AddonVertex vertex : vertices)
+         {
+            if (vertex.getAddon() != null)
+               result.update(graph, vertex.getAddon());
+
+            for (AddonView view : vertex.getViews())
+            {
+               Map<AddonId, Addon> viewAddons = result.addons.get(view);
+               if (copied.add(view))
+               {
+                  viewAddons = viewAddons == null ? new HashMap<AddonId, Addon>()
+                           : new HashMap<AddonId, Addon>(viewAddons);
+                  result.addons.put(view, viewAddons);
+               }
+
+               AddonId id = vertex.getAddonId();
+               AddonVertex found = graph.getVertex(id, view);
+               if (found != null && found.getAddon() != null)
+                  viewAddons.put(id, found.getAddon());
+               else
+                  viewAddons.remove(id);
+            }
+         }
+         return result;
+      }
+
+      /**
+       * Must only be called on an unpublished copy.
+       */
+      private void update(MasterGraph graph, Addon addon)
+      {
+         AddonVertex found = graph.getVertex(addon);
+         if (found != null)
+            views.put(addon, found.getViews());
+         else
+            views.remove(addon);
+      }
+   }
 }
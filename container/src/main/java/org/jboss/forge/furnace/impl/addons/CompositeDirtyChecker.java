@@ -6,6 +6,11 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+
 /**
  * Composite dirty checker to check other dirty checkers.
  *
@@ -44,6 +49,28 @@ public class CompositeDirtyChecker implements DirtyChecker
         }
     }
 
+    @Override
+    public boolean setChangeListener(Runnable listener)
+    {
+        boolean observable = true;
+        for (DirtyChecker dirtyChecker : dirtyCheckers)
+        {
+            observable &= dirtyChecker.setChangeListener(listener);
+        }
+        return observable;
+    }
+
+    @Override
+    public Set<AddonId> pollDirtyAddons()
+    {
+        Set<AddonId> result = new HashSet<>();
+        for (DirtyChecker dirtyChecker : dirtyCheckers)
+        {
+            result.addAll(dirtyChecker.pollDirtyAddons());
+        }
+        return result;
+    }
+
     @Override
     public void close() throws Exception
     {
@@ -6,6 +6,10 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.function.Function;
+
+import org.jboss.forge.furnace.addons.AddonId;
+
 /**
  * Used to allow dirty checks on repositories.
  *
@@ -14,4 +18,13 @@ package org.jboss.forge.furnace.impl.addons;
 public interface DirtyCheckableRepository
 {
     DirtyChecker createDirtyChecker();
+
+    /**
+     * Create a {@link DirtyChecker} that attributes changes within addon slot directories to the {@link AddonId}
+     * returned by the given resolver for the slot directory name.
+     */
+    default DirtyChecker createDirtyChecker(Function<String, AddonId> slotResolver)
+    {
+        return createDirtyChecker();
+    }
 }
\ No newline at end of file
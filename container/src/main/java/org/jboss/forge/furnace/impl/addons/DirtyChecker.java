@@ -6,6 +6,11 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.Collections;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+
 /**
  * Used to check dirtiness.
  *
@@ -20,6 +25,24 @@ public interface DirtyChecker extends AutoCloseable
     {
     }
 
+    /**
+     * Register a callback to be invoked as soon as this checker may have become dirty. Returns <code>true</code> if
+     * changes will be signaled through the given listener, or <code>false</code> if this checker can only be polled.
+     */
+    default boolean setChangeListener(Runnable listener)
+    {
+        return false;
+    }
+
+    /**
+     * Returns the addons whose contents are known to have changed since the last call, and forgets them. Changes that
+     * cannot be attributed to a specific addon are only reported through {@link #isDirty()}.
+     */
+    default Set<AddonId> pollDirtyAddons()
+    {
+        return Collections.emptySet();
+    }
+
     @Override
     default void close() throws Exception
     {
@@ -9,12 +9,28 @@ package org.jboss.forge.furnace.impl.addons;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jboss.forge.furnace.addons.AddonId;
+
 /**
- * File system based dirty checker.
+ * File system based dirty checker. Changes are collected by a background thread blocking on a {@link WatchService},
+ * which notifies the registered change listener as soon as an event arrives.
+ * <p>
+ * Addon slot directories (the direct children of the repository directory) are watched recursively, and changes
+ * within them are attributed to the {@link AddonId} returned by the slot resolver for the slot name. Writes of the
+ * {@link RepositoryIndex} are ignored, since they only mirror changes that were already detected.
  *
  * @author <a href="mailto:bsideup@gmail.com">Sergei Egorov</a>
  */
@@ -22,13 +38,49 @@ public class FileSystemDirtyChecker extends LazyDirtyChecker
 {
     private static Logger logger = Logger.getLogger(FileSystemDirtyChecker.class.getName());
 
+    private static final WatchEvent.Kind<?>[] EVENT_KINDS = {
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE,
+            StandardWatchEventKinds.OVERFLOW };
+
     private final File directory;
 
+    private final Function<String, AddonId> slotResolver;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    /**
+     * Names of the slot directories changed since the last {@link #pollDirtyAddons()}.
+     */
+    private final Set<String> dirtySlots = ConcurrentHashMap.newKeySet();
+
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+
+    private volatile Runnable listener;
+
     private WatchService watcher;
 
     public FileSystemDirtyChecker(File directory)
+    {
+        this(directory, null);
+    }
+
+    /**
+     * Create a new instance that also watches addon slot directories, resolving slot names with the given function.
+     * The resolver is only invoked from {@link #pollDirtyAddons()} and may return <code>null</code> for unknown slots.
+     */
+    public FileSystemDirtyChecker(File directory, Function<String, AddonId> slotResolver)
     {
         this.directory = directory;
+        this.slotResolver = slotResolver;
+    }
+
+    @Override
+    public boolean setChangeListener(Runnable listener)
+    {
+        this.listener = listener;
+        return true;
     }
 
     @Override
@@ -48,12 +100,12 @@ public class FileSystemDirtyChecker extends LazyDirtyChecker
         {
             if ((directory.exists() && directory.isDirectory()) || directory.mkdirs())
             {
-                directory.toPath().register(watcher,
-                        StandardWatchEventKinds.ENTRY_MODIFY,
-                        StandardWatchEventKinds.ENTRY_CREATE,
-                        StandardWatchEventKinds.ENTRY_DELETE,
-                        StandardWatchEventKinds.OVERFLOW);
+                if (slotResolver == null)
+                    register(directory.toPath());
+                else
+                    registerAll(directory.toPath());
                 logger.log(Level.FINE, "Monitoring repository [" + directory.toString() + "] for file changes.");
+                startWatching(watcher);
             }
             else
             {
@@ -68,30 +120,160 @@ public class FileSystemDirtyChecker extends LazyDirtyChecker
         }
     }
 
+    private void register(Path dir) throws IOException
+    {
+        watchedDirectories.put(dir.register(watcher, EVENT_KINDS), dir);
+    }
+
+    private void registerAll(Path root) throws IOException
+    {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+            {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e)
+            {
+                // Deleted while walking; the deletion itself is reported by the parent directory.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void startWatching(final WatchService watcher)
+    {
+        Thread thread = new Thread(() -> watch(watcher), "Furnace Repository Watcher [" + directory + "]");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(WatchService watcher)
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = watcher.take();
+                Path dir = watchedDirectories.get(key);
+                List<WatchEvent<?>> events = withoutIgnored(dir, key.pollEvents());
+                if (!key.reset())
+                {
+                    watchedDirectories.remove(key);
+                }
+                if (!events.isEmpty())
+                {
+                    logger.log(Level.FINE, "Detected changes in repository ["
+                            + events.iterator().next().context()
+                            + "].");
+                    if (slotResolver != null && dir != null)
+                    {
+                        attribute(dir, events);
+                    }
+                    dirty.set(true);
+                    Runnable current = listener;
+                    if (current != null)
+                    {
+                        current.run();
+                    }
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            logger.log(Level.FINEST, "Stopped monitoring repository [" + directory + "] for file changes.");
+        }
+    }
+
+    /**
+     * Remove the events caused by writing the {@link RepositoryIndex} of the repository.
+     */
+    private List<WatchEvent<?>> withoutIgnored(Path dir, List<WatchEvent<?>> events)
+    {
+        if (dir == null || !dir.equals(directory.toPath()))
+        {
+            return events;
+        }
+
+        List<WatchEvent<?>> result = new ArrayList<>(events.size());
+        for (WatchEvent<?> event : events)
+        {
+            if (!(event.context() instanceof Path)
+                    || !RepositoryIndex.isIndexFile(((Path) event.context()).getFileName().toString()))
+            {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Record the slots affected by the given events, and start watching directories created within the repository.
+     */
+    private void attribute(Path dir, List<WatchEvent<?>> events)
+    {
+        Path root = directory.toPath();
+        for (WatchEvent<?> event : events)
+        {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                continue;
+
+            Path child = dir.resolve((Path) event.context());
+            Path relative = root.relativize(child);
+
+            /*
+             * Register new directories before reporting their slot, so that anything written to them after the slot
+             * has been polled is seen as well.
+             */
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child))
+            {
+                try
+                {
+                    registerAll(child);
+                }
+                catch (IOException e)
+                {
+                    logger.log(Level.WARNING, "Could not monitor [" + child + "] for file changes.", e);
+                }
+            }
+
+            // Files directly in the repository directory, such as the registry, do not belong to any slot
+            if (relative.getNameCount() > 1 || Files.isDirectory(child))
+            {
+                dirtySlots.add(relative.getName(0).toString());
+            }
+        }
+    }
+
     @Override
     protected boolean isDirtyInternal()
     {
-        if (watcher == null)
+        return dirty.getAndSet(false);
+    }
+
+    @Override
+    public Set<AddonId> pollDirtyAddons()
+    {
+        if (slotResolver == null || dirtySlots.isEmpty())
         {
-            return false;
+            return Collections.emptySet();
         }
 
-        boolean dirty = false;
-        WatchKey key = watcher.poll();
-        while (key != null)
+        Set<AddonId> result = new HashSet<>();
+        for (String slot : dirtySlots)
         {
-            List<WatchEvent<?>> events = key.pollEvents();
-            if (!events.isEmpty())
+            dirtySlots.remove(slot);
+            AddonId addon = slotResolver.apply(slot);
+            if (addon != null)
             {
-                logger.log(Level.FINE, "Detected changes in repository ["
-                        + events.iterator().next().context()
-                        + "].");
-                dirty = true;
+                result.add(addon);
             }
-            key = watcher.poll();
         }
-
-        return dirty;
+        return result;
     }
 
     @Override
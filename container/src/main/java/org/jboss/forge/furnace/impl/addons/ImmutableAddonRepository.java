@@ -24,7 +24,7 @@ import org.jboss.forge.furnace.versions.Version;
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  *
  */
-public class ImmutableAddonRepository implements AddonRepository
+public class ImmutableAddonRepository implements AddonRepository, AutoCloseable
 {
    private AddonRepository delegate;
 
@@ -105,6 +105,16 @@ public class ImmutableAddonRepository implements AddonRepository
       return delegate.getVersion();
    }
 
+   /**
+    * Close the wrapped repository, if it holds any resources.
+    */
+   @Override
+   public void close() throws Exception
+   {
+      if (delegate instanceof AutoCloseable)
+         ((AutoCloseable) delegate).close();
+   }
+
    @Override
    public String toString()
    {
@@ -8,12 +8,15 @@ package org.jboss.forge.furnace.impl.addons;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.lang.ref.WeakReference;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonRegistry;
@@ -24,22 +27,32 @@ import org.jboss.forge.furnace.services.Imported;
 import org.jboss.forge.furnace.spi.ExportedInstance;
 import org.jboss.forge.furnace.spi.ServiceRegistry;
 import org.jboss.forge.furnace.util.Assert;
-import org.jboss.forge.furnace.util.Sets;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class ImportedImpl<T> implements Imported<T>
 {
+   private static final Logger logger = Logger.getLogger(ImportedImpl.class.getName());
+
    private final Map<T, ExportedInstance<T>> instanceMap = Collections.synchronizedMap(new WeakHashMap<>());
 
+   /**
+    * The instance most recently recorded in {@link #instanceMap}. Providers of singletons hand out the same instance on
+    * every call, which is then already tracked and need not be put again.
+    */
+   private volatile Tracked<T> lastTracked;
+
    private final AddonRegistry addonRegistry;
    private final LockManager lock;
    private Class<T> type;
    private final String typeName;
 
-   private final Set<ExportedInstance<T>> instanceCache = Sets.getConcurrentSet();
-   private long version = -1;
+   /**
+    * The exported instances as of a given registry version. Replaced, never modified, so that {@link #get()} can read
+    * it without locking.
+    */
+   private volatile Snapshot<T> snapshot;
 
    public ImportedImpl(AddonRegistry addonRegistry, LockManager lock, Class<T> type)
    {
@@ -65,16 +78,13 @@ public class ImportedImpl<T> implements Imported<T>
    @Override
    public T get()
    {
-      if (isAmbiguous())
-         throw new IllegalStateException("Cannot resolve Ambiguous dependencies: " + toString());
-
-      ExportedInstance<T> exported = getExportedInstance();
-      if (exported != null)
+      ExportedInstance<T>[] instances = getSnapshot().instances;
+      if (instances.length == 1)
       {
-         T instance = exported.get();
-         instanceMap.put(instance, exported);
-         return instance;
+         return track(instances[0].get(), instances[0]);
       }
+      else if (instances.length > 1)
+         throw new IllegalStateException("Cannot resolve Ambiguous dependencies: " + toString());
       else
          throw new ContainerException("No services of type [" + typeName + "] could be found in any started addons.");
    }
@@ -82,12 +92,16 @@ public class ImportedImpl<T> implements Imported<T>
    @Override
    public void release(T instance)
    {
-      ExportedInstance<T> exported = instanceMap.get(instance);
+      Tracked<T> last = lastTracked;
+      if (last != null && last.get() == instance)
+         lastTracked = null;
+
+      ExportedInstance<T> exported = instanceMap.remove(instance);
       if (exported != null)
-      {
-         instanceMap.remove(instance);
          exported.release(instance);
-      }
+      else
+         logger.log(Level.FINE, "Instance [" + instance + "] of [" + typeName
+                  + "] was not obtained from this Imported or was already released.");
    }
 
    @Override
@@ -99,65 +113,107 @@ public class ImportedImpl<T> implements Imported<T>
       {
          if (type.equals(instance.getActualType()))
          {
-            T result = instance.get();
-            instanceMap.put(result, instance);
-            return result;
+            return track(instance.get(), instance);
          }
       }
       throw new ContainerException("No services of type [" + type + "] could be found in any started addons.");
    }
 
-   private ExportedInstance<T> getExportedInstance()
+   /**
+    * Remember which {@link ExportedInstance} created the given instance, so that {@link #release(Object)} reaches it.
+    */
+   private T track(T instance, ExportedInstance<T> exported)
    {
-      return lock.performLocked(LockMode.READ, new Callable<ExportedInstance<T>>()
+      Tracked<T> last = lastTracked;
+      if (last == null || last.get() != instance || last.exported != exported)
       {
-         @Override
-         public ExportedInstance<T> call() throws Exception
-         {
-            Iterator<ExportedInstance<T>> iterator = getExportedInstances().iterator();
-            if (iterator.hasNext())
-               return iterator.next();
-            return null;
-         }
-      });
-
+         instanceMap.put(instance, exported);
+         lastTracked = new Tracked<>(instance, exported);
+      }
+      return instance;
    }
 
    private Set<ExportedInstance<T>> getExportedInstances()
    {
-      return lock.performLocked(LockMode.READ, new Callable<Set<ExportedInstance<T>>>()
+      return getSnapshot().instanceSet;
+   }
+
+   /**
+    * Get the current {@link Snapshot}, rebuilding it if the registry version has changed.
+    */
+   private Snapshot<T> getSnapshot()
+   {
+      Snapshot<T> current = snapshot;
+      if (current != null && current.version == addonRegistry.getVersion())
+         return current;
+
+      return lock.performLocked(LockMode.READ, new Callable<Snapshot<T>>()
       {
          @SuppressWarnings({ "unchecked", "rawtypes" })
          @Override
-         public Set<ExportedInstance<T>> call() throws Exception
+         public Snapshot<T> call() throws Exception
          {
-            if (addonRegistry.getVersion() != version)
-            {
-               version = addonRegistry.getVersion();
-               instanceCache.clear();
+            long version = addonRegistry.getVersion();
+            Snapshot<T> current = snapshot;
+            if (current != null && current.version == version)
+               return current;
 
-               for (Addon addon : addonRegistry.getAddons())
+            Collection<Addon> providers;
+            if (addonRegistry instanceof AddonRegistryImpl)
+               providers = ((AddonRegistryImpl) addonRegistry).getServiceProviders(typeName);
+            else
+               providers = addonRegistry.getAddons();
+
+            Set<ExportedInstance<T>> instances = new LinkedHashSet<>();
+            for (Addon addon : providers)
+            {
+               if (addon.getStatus().isStarted())
                {
-                  if (addon.getStatus().isStarted())
+                  ServiceRegistry serviceRegistry = addon.getServiceRegistry();
+                  if (type != null)
                   {
-                     ServiceRegistry serviceRegistry = addon.getServiceRegistry();
-                     if (type != null)
-                     {
-                        instanceCache.addAll(serviceRegistry.getExportedInstances(type));
-                     }
-                     else
-                     {
-                        instanceCache.addAll((Collection) serviceRegistry.getExportedInstances(typeName));
-                     }
+                     instances.addAll(serviceRegistry.getExportedInstances(type));
+                  }
+                  else
+                  {
+                     instances.addAll((Collection) serviceRegistry.getExportedInstances(typeName));
                   }
                }
             }
 
-            return instanceCache;
+            current = new Snapshot<>(version, instances);
+            snapshot = current;
+            return current;
          }
       });
    }
 
+   private static class Snapshot<T>
+   {
+      private final long version;
+      private final ExportedInstance<T>[] instances;
+      private final Set<ExportedInstance<T>> instanceSet;
+
+      @SuppressWarnings("unchecked")
+      public Snapshot(long version, Set<ExportedInstance<T>> instances)
+      {
+         this.version = version;
+         this.instances = instances.toArray(new ExportedInstance[instances.size()]);
+         this.instanceSet = Collections.unmodifiableSet(instances);
+      }
+   }
+
+   private static class Tracked<T> extends WeakReference<T>
+   {
+      private final ExportedInstance<T> exported;
+
+      public Tracked(T instance, ExportedInstance<T> exported)
+      {
+         super(instance);
+         this.exported = exported;
+      }
+   }
+
    private class ImportedIteratorImpl implements Iterator<T>
    {
       private final ImportedImpl<T> imported;
@@ -179,9 +235,7 @@ public class ImportedImpl<T> implements Imported<T>
       public T next()
       {
          ExportedInstance<T> exported = iterator.next();
-         T instance = exported.get();
-         imported.instanceMap.put(instance, exported);
-         return instance;
+         return imported.track(exported.get(), exported);
       }
 
       @Override
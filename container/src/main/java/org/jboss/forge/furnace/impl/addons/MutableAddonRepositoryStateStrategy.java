@@ -21,4 +21,25 @@ public interface MutableAddonRepositoryStateStrategy extends AddonRepositoryStat
    public boolean disable(final AddonId addon);
 
    public boolean enable(AddonId addon);
+
+   /**
+    * @see org.jboss.forge.furnace.repositories.MutableAddonRepository#beginBatch()
+    */
+   default void beginBatch()
+   {
+   }
+
+   /**
+    * @see org.jboss.forge.furnace.repositories.MutableAddonRepository#commitBatch()
+    */
+   default void commitBatch()
+   {
+   }
+
+   /**
+    * @see org.jboss.forge.furnace.repositories.MutableAddonRepository#rollbackBatch()
+    */
+   default void rollbackBatch()
+   {
+   }
 }
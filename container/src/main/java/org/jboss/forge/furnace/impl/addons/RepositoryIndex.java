@@ -0,0 +1,487 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.versions.Versions;
+
+/**
+ * A compact binary copy of the contents of <code>installed.xml</code> and of each addon slot (descriptor dependencies
+ * and resources) of a file system repository. The XML files remain the source of truth: every entry records the
+ * timestamp and size of the file it was read from, and is ignored once that file changes.
+ * <p>
+ * The index is memory-mapped once when first used, and written back in the background to a temporary file that is
+ * then renamed over <code>repository.idx</code>. Each index has its own writer thread, which stops when idle and is
+ * shut down by {@link #close()}. Enable it by setting the {@value #REPOSITORY_INDEX_PROPERTY} system property to
+ * <code>true</code>.
+ */
+public final class RepositoryIndex implements AutoCloseable
+{
+   public static final String REPOSITORY_INDEX_PROPERTY = "furnace.repository.index";
+
+   private static final Logger logger = Logger.getLogger(RepositoryIndex.class.getName());
+
+   private static final String INDEX_FILE_NAME = "repository.idx";
+   private static final String TEMP_FILE_SUFFIX = ".tmp";
+   private static final int MAGIC = 0x46494458;
+   private static final int FORMAT_VERSION = 1;
+   private static final long FLUSH_DELAY_MILLIS = 500;
+   private static final long WRITER_KEEP_ALIVE_MILLIS = 5000;
+
+   private final File indexFile;
+
+   private ScheduledThreadPoolExecutor writer;
+   private boolean closed;
+   private boolean loaded;
+   private boolean flushScheduled;
+   private boolean dirty;
+
+   private Stamp installedStamp;
+   private List<AddonId> installed;
+   private final Map<AddonId, Slot> slots = new HashMap<>();
+
+   /**
+    * Returns <code>true</code> if repositories should maintain a {@link RepositoryIndex}.
+    */
+   public static boolean isEnabled()
+   {
+      return Boolean.getBoolean(REPOSITORY_INDEX_PROPERTY);
+   }
+
+   /**
+    * Returns <code>true</code> if the given file name is that of an index file, or of a temporary file written while
+    * flushing one.
+    */
+   public static boolean isIndexFile(String fileName)
+   {
+      return INDEX_FILE_NAME.equals(fileName)
+               || (fileName.startsWith(INDEX_FILE_NAME) && fileName.endsWith(TEMP_FILE_SUFFIX));
+   }
+
+   public RepositoryIndex(File repositoryDir)
+   {
+      this.indexFile = new File(repositoryDir, INDEX_FILE_NAME);
+   }
+
+   /**
+    * Write any pending changes and stop the writer thread. Changes made after closing are no longer written.
+    */
+   @Override
+   public void close()
+   {
+      ScheduledThreadPoolExecutor current;
+      synchronized (this)
+      {
+         closed = true;
+         current = writer;
+         writer = null;
+      }
+      if (current != null)
+         current.shutdownNow();
+      flush();
+   }
+
+   /**
+    * Get the installed addons, if they were indexed from a registry file with the given timestamp and size.
+    */
+   public synchronized List<AddonId> getInstalled(long lastModified, long length)
+   {
+      load();
+      if (installed != null && installedStamp.matches(lastModified, length))
+         return installed;
+      return null;
+   }
+
+   public synchronized void putInstalled(long lastModified, long length, List<AddonId> addons)
+   {
+      load();
+      installedStamp = new Stamp(lastModified, length);
+      installed = Collections.unmodifiableList(new ArrayList<>(addons));
+      changed();
+   }
+
+   /**
+    * Get the dependencies of the given addon, if they were indexed from a descriptor with the given timestamp and
+    * size.
+    */
+   public synchronized Set<AddonDependencyEntry> getDependencies(AddonId addon, long lastModified, long length)
+   {
+      load();
+      Slot slot = slots.get(addon);
+      if (slot != null && slot.dependencies != null && slot.descriptorStamp.matches(lastModified, length))
+         return slot.dependencies;
+      return null;
+   }
+
+   public synchronized void putDependencies(AddonId addon, long lastModified, long length,
+            Set<AddonDependencyEntry> dependencies)
+   {
+      Slot slot = getOrCreateSlot(addon);
+      slot.descriptorStamp = new Stamp(lastModified, length);
+      slot.dependencies = Collections.unmodifiableSet(new LinkedHashSet<>(dependencies));
+      changed();
+   }
+
+   /**
+    * Get the resources of the given addon slot directory, if they were indexed while the directory had the given
+    * timestamp.
+    */
+   public synchronized List<File> getResources(AddonId addon, File slotDir, long lastModified)
+   {
+      load();
+      Slot slot = slots.get(addon);
+      if (slot != null && slot.resources != null && slot.resourcesStamp.matches(lastModified, 0))
+      {
+         List<File> result = new ArrayList<>(slot.resources.size());
+         for (String name : slot.resources)
+            result.add(new File(slotDir, name));
+         return result;
+      }
+      return null;
+   }
+
+   public synchronized void putResources(AddonId addon, long lastModified, List<File> resources)
+   {
+      Slot slot = getOrCreateSlot(addon);
+      slot.resourcesStamp = new Stamp(lastModified, 0);
+      List<String> names = new ArrayList<>(resources.size());
+      for (File resource : resources)
+         names.add(resource.getName());
+      slot.resources = Collections.unmodifiableList(names);
+      changed();
+   }
+
+   /**
+    * Forget everything indexed about the given addon slot.
+    */
+   public synchronized void remove(AddonId addon)
+   {
+      load();
+      if (slots.remove(addon) != null)
+         changed();
+   }
+
+   private Slot getOrCreateSlot(AddonId addon)
+   {
+      load();
+      Slot slot = slots.get(addon);
+      if (slot == null)
+      {
+         slot = new Slot();
+         slots.put(addon, slot);
+      }
+      return slot;
+   }
+
+   private void changed()
+   {
+      dirty = true;
+      if (!flushScheduled && !closed)
+      {
+         flushScheduled = true;
+         getWriter().schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   private ScheduledThreadPoolExecutor getWriter()
+   {
+      if (writer == null)
+      {
+         writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Furnace Repository Index Writer [" + indexFile.getParent() + "]");
+            thread.setDaemon(true);
+            return thread;
+         });
+         writer.setKeepAliveTime(WRITER_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+         writer.allowCoreThreadTimeOut(true);
+      }
+      return writer;
+   }
+
+   /*
+    * Reading
+    */
+   private void load()
+   {
+      if (loaded)
+         return;
+      loaded = true;
+
+      if (!indexFile.isFile())
+         return;
+
+      try
+      {
+         /*
+          * Read into the heap rather than mapping the file: a mapping stays open until it is garbage collected, and on
+          * Windows would keep flush() from replacing the file.
+          */
+         ByteBuffer buffer = ByteBuffer.wrap(java.nio.file.Files.readAllBytes(indexFile.toPath()));
+         if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+         {
+            logger.log(Level.FINE, "Ignoring repository index [" + indexFile + "] with unknown format.");
+            return;
+         }
+
+         if (buffer.get() != 0)
+         {
+            Stamp stamp = new Stamp(buffer.getLong(), buffer.getLong());
+            List<AddonId> addons = readAddonIds(buffer);
+            installedStamp = stamp;
+            installed = Collections.unmodifiableList(addons);
+         }
+
+         int slotCount = buffer.getInt();
+         for (int i = 0; i < slotCount; i++)
+         {
+            AddonId addon = AddonId.from(readString(buffer), readString(buffer));
+            Slot slot = new Slot();
+            if (buffer.get() != 0)
+            {
+               slot.descriptorStamp = new Stamp(buffer.getLong(), buffer.getLong());
+               slot.dependencies = Collections.unmodifiableSet(readDependencies(buffer));
+            }
+            if (buffer.get() != 0)
+            {
+               slot.resourcesStamp = new Stamp(buffer.getLong(), 0);
+               int resourceCount = buffer.getInt();
+               List<String> resources = new ArrayList<>(resourceCount);
+               for (int j = 0; j < resourceCount; j++)
+                  resources.add(readString(buffer));
+               slot.resources = Collections.unmodifiableList(resources);
+            }
+            slots.put(addon, slot);
+         }
+      }
+      catch (IOException | RuntimeException e)
+      {
+         logger.log(Level.FINE, "Ignoring unreadable repository index [" + indexFile + "]", e);
+         installedStamp = null;
+         installed = null;
+         slots.clear();
+      }
+   }
+
+   private static List<AddonId> readAddonIds(ByteBuffer buffer)
+   {
+      int count = buffer.getInt();
+      List<AddonId> result = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         result.add(AddonId.from(readString(buffer), readString(buffer), readString(buffer)));
+      }
+      return result;
+   }
+
+   private static Set<AddonDependencyEntry> readDependencies(ByteBuffer buffer)
+   {
+      int count = buffer.getInt();
+      Set<AddonDependencyEntry> result = new LinkedHashSet<>();
+      for (int i = 0; i < count; i++)
+      {
+         String name = readString(buffer);
+         String range = readString(buffer);
+         boolean exported = buffer.get() != 0;
+         boolean optional = buffer.get() != 0;
+         result.add(AddonDependencyEntry.create(name, Versions.parseMultipleVersionRange(range), exported, optional));
+      }
+      return result;
+   }
+
+   private static String readString(ByteBuffer buffer)
+   {
+      int length = buffer.getInt();
+      if (length < 0)
+         return null;
+      if (length > buffer.remaining())
+         throw new BufferUnderflowException();
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   /*
+    * Writing
+    */
+   void flush()
+   {
+      byte[] contents;
+      synchronized (this)
+      {
+         flushScheduled = false;
+         if (!dirty)
+            return;
+         dirty = false;
+         try
+         {
+            contents = serialize();
+         }
+         catch (IOException e)
+         {
+            logger.log(Level.FINE, "Could not serialize repository index [" + indexFile + "]", e);
+            return;
+         }
+      }
+
+      File directory = indexFile.getParentFile();
+      if (directory == null || !directory.isDirectory())
+         return;
+
+      File temp = null;
+      try
+      {
+         temp = File.createTempFile(INDEX_FILE_NAME, TEMP_FILE_SUFFIX, directory);
+         try (FileOutputStream out = new FileOutputStream(temp))
+         {
+            out.write(contents);
+            out.getFD().sync();
+         }
+
+         try
+         {
+            java.nio.file.Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                     StandardCopyOption.REPLACE_EXISTING);
+         }
+         catch (AtomicMoveNotSupportedException e)
+         {
+            java.nio.file.Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+         }
+      }
+      catch (IOException e)
+      {
+         logger.log(Level.FINE, "Could not write repository index [" + indexFile + "]", e);
+         if (temp != null)
+            temp.delete();
+      }
+   }
+
+   private byte[] serialize() throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes))
+      {
+         out.writeInt(MAGIC);
+         out.writeInt(FORMAT_VERSION);
+
+         out.writeBoolean(installed != null);
+         if (installed != null)
+         {
+            out.writeLong(installedStamp.lastModified);
+            out.writeLong(installedStamp.length);
+            out.writeInt(installed.size());
+            for (AddonId addon : installed)
+            {
+               writeString(out, addon.getName());
+               writeString(out, addon.getVersion().toString());
+               writeString(out, addon.getApiVersion() == null ? null : addon.getApiVersion().toString());
+            }
+         }
+
+         out.writeInt(slots.size());
+         for (Entry<AddonId, Slot> entry : slots.entrySet())
+         {
+            writeString(out, entry.getKey().getName());
+            writeString(out, entry.getKey().getVersion().toString());
+
+            Slot slot = entry.getValue();
+            out.writeBoolean(slot.dependencies != null);
+            if (slot.dependencies != null)
+            {
+               out.writeLong(slot.descriptorStamp.lastModified);
+               out.writeLong(slot.descriptorStamp.length);
+               out.writeInt(slot.dependencies.size());
+               for (AddonDependencyEntry dependency : slot.dependencies)
+               {
+                  writeString(out, dependency.getName());
+                  writeString(out, dependency.getVersionRange().toString());
+                  out.writeBoolean(dependency.isExported());
+                  out.writeBoolean(dependency.isOptional());
+               }
+            }
+
+            out.writeBoolean(slot.resources != null);
+            if (slot.resources != null)
+            {
+               out.writeLong(slot.resourcesStamp.lastModified);
+               out.writeInt(slot.resources.size());
+               for (String resource : slot.resources)
+                  writeString(out, resource);
+            }
+         }
+      }
+      return bytes.toByteArray();
+   }
+
+   private static void writeString(DataOutputStream out, String value) throws IOException
+   {
+      if (value == null)
+      {
+         out.writeInt(-1);
+      }
+      else
+      {
+         byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return indexFile.getAbsolutePath();
+   }
+
+   private static class Stamp
+   {
+      private final long lastModified;
+      private final long length;
+
+      Stamp(long lastModified, long length)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+      }
+
+      boolean matches(long lastModified, long length)
+      {
+         return this.lastModified == lastModified && this.length == length;
+      }
+   }
+
+   private static class Slot
+   {
+      private Stamp descriptorStamp;
+      private Set<AddonDependencyEntry> dependencies;
+      private Stamp resourcesStamp;
+      private List<String> resources;
+   }
+}
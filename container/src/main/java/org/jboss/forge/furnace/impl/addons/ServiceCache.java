@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.services.Imported;
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * A size-bounded, least-recently-used cache of {@link Imported} instances keyed by the identity of the requested
+ * {@link Class}. Entries for types loaded by an addon {@link ClassLoader} are evicted once that {@link ClassLoader} is
+ * no longer in use, so that the cache does not keep stopped addons reachable. Keys are held strongly, since every
+ * cached {@link Imported} references its type and a weak key would never be cleared.
+ */
+public class ServiceCache
+{
+   public static final String SERVICE_CACHE_SIZE_PROPERTY = "furnace.services.cache_size";
+
+   private static final int DEFAULT_SIZE = 256;
+
+   private final int maxSize;
+   private final Map<Class<?>, CacheEntry> entries;
+
+   private long hits;
+   private long misses;
+   private long evictions;
+
+   public ServiceCache()
+   {
+      this(Integer.getInteger(SERVICE_CACHE_SIZE_PROPERTY, DEFAULT_SIZE));
+   }
+
+   public ServiceCache(int maxSize)
+   {
+      Assert.isTrue(maxSize > 0, "Cache size must be positive.");
+      this.maxSize = maxSize;
+      this.entries = new LinkedHashMap<Class<?>, CacheEntry>(16, 0.75f, true)
+      {
+         private static final long serialVersionUID = 6174386120367418337L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Class<?>, CacheEntry> eldest)
+         {
+            if (size() > ServiceCache.this.maxSize)
+            {
+               evictions++;
+               return true;
+            }
+            return false;
+         }
+      };
+   }
+
+   /**
+    * Get the cached {@link Imported} for the given type, or <code>null</code> if none is cached.
+    */
+   @SuppressWarnings("unchecked")
+   public synchronized <T> Imported<T> get(Class<T> type)
+   {
+      CacheEntry entry = entries.get(type);
+      if (entry == null)
+      {
+         misses++;
+         return null;
+      }
+      hits++;
+      return (Imported<T>) entry.imported;
+   }
+
+   /**
+    * Cache the given {@link Imported} for the given type. The flag tells whether the type was loaded by the
+    * {@link ClassLoader} of an addon, in which case the entry is subject to {@link #retainLoaders(Set)}.
+    */
+   public synchronized <T> void put(Class<T> type, Imported<T> imported, boolean addonType)
+   {
+      entries.put(type, new CacheEntry(imported, addonType));
+   }
+
+   /**
+    * Evict all entries for types loaded by an addon {@link ClassLoader} that is not in the given {@link Set}.
+    */
+   public synchronized void retainLoaders(Set<ClassLoader> loaders)
+   {
+      Iterator<Map.Entry<Class<?>, CacheEntry>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext())
+      {
+         Map.Entry<Class<?>, CacheEntry> entry = iterator.next();
+         if (entry.getValue().addonType && !loaders.contains(entry.getKey().getClassLoader()))
+         {
+            iterator.remove();
+            evictions++;
+         }
+      }
+   }
+
+   public synchronized void clear()
+   {
+      entries.clear();
+   }
+
+   public synchronized int size()
+   {
+      return entries.size();
+   }
+
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   public synchronized long getHitCount()
+   {
+      return hits;
+   }
+
+   public synchronized long getMissCount()
+   {
+      return misses;
+   }
+
+   /**
+    * Get the number of entries removed because the cache was full, or because their addon was stopped.
+    */
+   public synchronized long getEvictionCount()
+   {
+      return evictions;
+   }
+
+   private static class CacheEntry
+   {
+      private final Imported<?> imported;
+      private final boolean addonType;
+
+      public CacheEntry(Imported<?> imported, boolean addonType)
+      {
+         this.imported = imported;
+         this.addonType = addonType;
+      }
+   }
+}
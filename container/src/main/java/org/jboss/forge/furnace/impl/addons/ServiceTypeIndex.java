@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonRegistry;
+import org.jboss.forge.furnace.spi.ExportedInstance;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * Indexes the started {@link Addon} instances of an {@link AddonRegistry} by the names of the types their
+ * {@link ServiceRegistry} exports, including all supertypes and interfaces of those types. Types are indexed by name
+ * because an importing {@link Addon} may see a service type through a different {@link ClassLoader}.
+ * <p>
+ * The index is refreshed whenever the registry version changes; only addons whose {@link ServiceRegistry} changed are
+ * re-indexed.
+ * <p>
+ * Only the providing addons are indexed, not their {@link ExportedInstance} objects: those are still obtained from the
+ * {@link ServiceRegistry} of each provider, which creates them and resolves the requested type in its own
+ * {@link ClassLoader}.
+ */
+class ServiceTypeIndex
+{
+   private final AddonRegistry registry;
+   private volatile Index index = new Index(-1, Collections.<Addon, Indexed> emptyMap(),
+            Collections.<String, Set<Addon>> emptyMap());
+
+   public ServiceTypeIndex(AddonRegistry registry)
+   {
+      this.registry = registry;
+   }
+
+   /**
+    * Get the started addons exporting a service assignable to the type with the given name.
+    */
+   public Set<Addon> getProviders(String typeName)
+   {
+      Set<Addon> result = getIndex().providers.get(typeName);
+      return result == null ? Collections.<Addon> emptySet() : result;
+   }
+
+   /**
+    * Get all started addons.
+    */
+   public Set<Addon> getProviders()
+   {
+      return getIndex().addons.keySet();
+   }
+
+   /**
+    * Get an up to date {@link Index}. Concurrent callers may rebuild the index at the same time; no monitor is held
+    * while querying the registry, which may need to acquire the container lock.
+    */
+   private Index getIndex()
+   {
+      Index current = index;
+      long version = registry.getVersion();
+      if (current.version == version)
+         return current;
+
+      Map<Addon, Indexed> addons = new IdentityHashMap<>();
+      for (Addon addon : registry.getAddons())
+      {
+         if (addon.getStatus().isStarted())
+         {
+            ServiceRegistry serviceRegistry = addon.getServiceRegistry();
+            Indexed indexed = current.addons.get(addon);
+            if (indexed == null || indexed.registry != serviceRegistry)
+               indexed = new Indexed(serviceRegistry);
+            addons.put(addon, indexed);
+         }
+      }
+
+      Map<String, Set<Addon>> providers = new HashMap<>(current.providers);
+      Set<String> touched = new HashSet<>();
+      for (Entry<Addon, Indexed> entry : current.addons.entrySet())
+      {
+         if (addons.get(entry.getKey()) != entry.getValue())
+            update(providers, touched, entry.getKey(), entry.getValue().typeNames, false);
+      }
+      for (Entry<Addon, Indexed> entry : addons.entrySet())
+      {
+         if (current.addons.get(entry.getKey()) != entry.getValue())
+            update(providers, touched, entry.getKey(), entry.getValue().typeNames, true);
+      }
+      for (String name : touched)
+      {
+         Set<Addon> set = providers.get(name);
+         if (set.isEmpty())
+            providers.remove(name);
+         else
+            providers.put(name, Collections.unmodifiableSet(set));
+      }
+
+      Index result = new Index(version, Collections.unmodifiableMap(addons), providers);
+      synchronized (this)
+      {
+         if (index.version < version)
+            index = result;
+      }
+      return result;
+   }
+
+   /**
+    * Add or remove the given addon from the providers of the given type names, copying each provider set the first time
+    * it is modified.
+    */
+   private static void update(Map<String, Set<Addon>> providers, Set<String> touched, Addon addon,
+            Set<String> typeNames, boolean add)
+   {
+      for (String name : typeNames)
+      {
+         Set<Addon> set = providers.get(name);
+         if (touched.add(name))
+         {
+            set = set == null ? new LinkedHashSet<Addon>() : new LinkedHashSet<>(set);
+            providers.put(name, set);
+         }
+         if (add)
+            set.add(addon);
+         else
+            set.remove(addon);
+      }
+   }
+
+   private static class Index
+   {
+      private final long version;
+      private final Map<Addon, Indexed> addons;
+      private final Map<String, Set<Addon>> providers;
+
+      public Index(long version, Map<Addon, Indexed> addons, Map<String, Set<Addon>> providers)
+      {
+         this.version = version;
+         this.addons = addons;
+         this.providers = providers;
+      }
+   }
+
+   private static class Indexed
+   {
+      private final ServiceRegistry registry;
+      private final Set<String> typeNames = new HashSet<>();
+
+      public Indexed(ServiceRegistry registry)
+      {
+         this.registry = registry;
+         Deque<Class<?>> queue = new ArrayDeque<>(registry.getExportedTypes());
+         while (!queue.isEmpty())
+         {
+            Class<?> type = queue.poll();
+            if (type != null && typeNames.add(type.getName()))
+            {
+               if (type.getSuperclass() != null)
+                  queue.add(type.getSuperclass());
+               Collections.addAll(queue, type.getInterfaces());
+            }
+         }
+      }
+   }
+}
@@ -6,13 +6,18 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.forge.furnace.Furnace;
 import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
@@ -25,13 +30,15 @@ public class StartEnabledAddonCallable implements Callable<Void>
    private ExecutorService executor;
    private AtomicInteger starting;
    private Addon addon;
+   private int priority;
 
    public StartEnabledAddonCallable(Furnace furnace,
             AddonLifecycleManager lifecycleManager,
             AddonStateManager stateManager,
             ExecutorService executor,
             AtomicInteger starting,
-            Addon toStart)
+            Addon toStart,
+            int priority)
    {
       this.furnace = furnace;
       this.lifecycleManager = lifecycleManager;
@@ -39,6 +46,7 @@ public class StartEnabledAddonCallable implements Callable<Void>
       this.executor = executor;
       this.starting = starting;
       this.addon = toStart;
+      this.priority = priority;
    }
 
    @Override
@@ -51,18 +59,49 @@ public class StartEnabledAddonCallable implements Callable<Void>
             throw new IllegalStateException("Cannot start additional addons once Shutdown has been initiated.");
          }
 
-         Future<Void> result = null;
          if (stateManager.getRunnableOf(addon) == null)
          {
             starting.incrementAndGet();
             AddonRunnable runnable = new AddonRunnable(furnace, lifecycleManager, stateManager, addon);
-            result = executor.submit(runnable, null);
-            stateManager.setHandles(addon, result, runnable);
+            final AddonStartTask task = new AddonStartTask(lifecycleManager, addon, runnable, priority);
+            stateManager.setHandles(addon, task, runnable);
+
+            /*
+             * Only hand the addon to the executor once all of its dependencies are done starting, so that no worker
+             * thread is ever parked waiting on another addon.
+             */
+            List<CompletableFuture<Void>> dependencies = getDependencyCompletions();
+            CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[dependencies.size()]))
+                     .whenComplete((result, error) -> submit(task));
          }
       }
       return null;
    }
 
+   private List<CompletableFuture<Void>> getDependencyCompletions()
+   {
+      List<CompletableFuture<Void>> result = new ArrayList<>();
+      for (AddonDependency dependency : addon.getDependencies())
+      {
+         Future<Void> future = dependency.getDependency().getFuture();
+         if (future instanceof AddonStartTask)
+            result.add(((AddonStartTask) future).getCompletion());
+      }
+      return result;
+   }
+
+   private void submit(AddonStartTask task)
+   {
+      try
+      {
+         executor.execute(task);
+      }
+      catch (RejectedExecutionException e)
+      {
+         task.cancel(false);
+      }
+   }
+
    @Override
    public String toString()
    {
@@ -6,8 +6,11 @@
  */
 package org.jboss.forge.furnace.impl.addons;
 
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import org.jboss.forge.furnace.spi.ListenerRegistration;
+
 /**
  * Version-based dirty checker.
  *
@@ -18,11 +21,26 @@ public class VersionDirtyChecker implements DirtyChecker
 
     private final Supplier<Integer> versionSupplier;
 
+    private final Function<Runnable, ListenerRegistration<Runnable>> listenerRegistrar;
+
+    private ListenerRegistration<Runnable> registration;
+
     private int lastRepoVersionSeen = 0;
 
     public VersionDirtyChecker(Supplier<Integer> versionSupplier)
+    {
+        this(versionSupplier, null);
+    }
+
+    /**
+     * Create a {@link VersionDirtyChecker} that can be notified of version changes through the given registrar, instead
+     * of having to be polled.
+     */
+    public VersionDirtyChecker(Supplier<Integer> versionSupplier,
+            Function<Runnable, ListenerRegistration<Runnable>> listenerRegistrar)
     {
         this.versionSupplier = versionSupplier;
+        this.listenerRegistrar = listenerRegistrar;
     }
 
     @Override
@@ -36,4 +54,30 @@ public class VersionDirtyChecker implements DirtyChecker
     {
         lastRepoVersionSeen = versionSupplier.get();
     }
+
+    @Override
+    public synchronized boolean setChangeListener(Runnable listener)
+    {
+        if (listenerRegistrar == null)
+        {
+            return false;
+        }
+
+        if (registration != null)
+        {
+            registration.removeListener();
+        }
+        registration = listenerRegistrar.apply(listener);
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws Exception
+    {
+        if (registration != null)
+        {
+            registration.removeListener();
+            registration = null;
+        }
+    }
 }
@@ -8,30 +8,54 @@
 package org.jboss.forge.furnace.impl.event;
 
 import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.event.AsyncEventManager;
 import org.jboss.forge.furnace.event.EventException;
 import org.jboss.forge.furnace.event.EventManager;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 
 /**
- * {@link EventManager} that delegates calls to each started {@link Addon} in the {@link AddonView#getAddons()} set.
+ * {@link EventManager} that delegates calls to each started {@link Addon} in the {@link AddonView#getAddons()} set that
+ * may observe the event, as routed by an {@link EventRoutingTable}.
+ * Asynchronous events are delivered on the given {@link Executor}, without holding any lock.
  * 
  * @author <a href="mailto:ggastald@redhat.com">George Gastaldi</a>
  */
-public class AddonViewEventManager implements EventManager
+public class AddonViewEventManager implements AsyncEventManager
 {
    private final AddonView addonView;
    private final LockManager lockManager;
+   private final Executor executor;
+   private final EventRoutingTable routes;
 
    public AddonViewEventManager(AddonView addonView, LockManager lockManager)
+   {
+      this(addonView, lockManager, ForkJoinPool.commonPool());
+   }
+
+   public AddonViewEventManager(AddonView addonView, LockManager lockManager, Executor executor)
+   {
+      this(addonView, lockManager, executor, new EventRoutingTable(addonView));
+   }
+
+   public AddonViewEventManager(AddonView addonView, LockManager lockManager, Executor executor,
+            EventRoutingTable routes)
    {
       super();
       this.addonView = addonView;
       this.lockManager = lockManager;
+      this.executor = executor;
+      this.routes = routes;
    }
 
    @Override
@@ -42,16 +66,92 @@ public class AddonViewEventManager implements EventManager
          @Override
          public Void call() throws Exception
          {
-            for (Addon addon : addonView.getAddons())
+            for (EventManager eventManager : routes.getTargets(typeOf(event), qualifiers))
             {
-               if (addon.getStatus().isStarted())
-               {
-                  EventManager eventManager = addon.getEventManager();
-                  eventManager.fireEvent(event, qualifiers);
-               }
+               eventManager.fireEvent(event, qualifiers);
             }
             return null;
          }
       });
    }
+
+   @Override
+   public CompletableFuture<Void> fireEventAsync(final Object event, final Delivery delivery,
+            final Annotation... qualifiers)
+   {
+      final List<EventManager> targets = getTargets(event, qualifiers);
+      final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+      CompletableFuture<Void> delivered;
+      if (delivery == Delivery.ORDERED)
+      {
+         delivered = CompletableFuture.runAsync(() -> {
+            for (EventManager target : targets)
+            {
+               deliver(target, event, qualifiers, failures);
+            }
+         }, executor);
+      }
+      else
+      {
+         CompletableFuture<?>[] futures = new CompletableFuture<?>[targets.size()];
+         for (int i = 0; i < futures.length; i++)
+         {
+            final EventManager target = targets.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> deliver(target, event, qualifiers, failures), executor);
+         }
+         delivered = CompletableFuture.allOf(futures);
+      }
+
+      final CompletableFuture<Void> result = new CompletableFuture<>();
+      delivered.whenComplete((ignored, error) -> {
+         Throwable first = failures.poll();
+         if (first == null && error == null)
+         {
+            result.complete(null);
+            return;
+         }
+         EventException exception = new EventException("Exception thrown while delivering event [" + event
+                  + "] in [" + addonView + "]", first != null ? first : error);
+         for (Throwable other : failures)
+         {
+            exception.addSuppressed(other);
+         }
+         result.completeExceptionally(exception);
+      });
+      return result;
+   }
+
+   /**
+    * Take a snapshot of the {@link EventManager} instances of all started {@link Addon} instances that may observe the
+    * given event, sorted by {@link org.jboss.forge.furnace.addons.AddonId}.
+    */
+   private List<EventManager> getTargets(final Object event, final Annotation[] qualifiers)
+   {
+      return lockManager.performLocked(LockMode.READ, new Callable<List<EventManager>>()
+      {
+         @Override
+         public List<EventManager> call() throws Exception
+         {
+            return routes.getTargets(typeOf(event), qualifiers);
+         }
+      });
+   }
+
+   private static Class<?> typeOf(Object event)
+   {
+      return event == null ? Object.class : event.getClass();
+   }
+
+   private static void deliver(EventManager target, Object event, Annotation[] qualifiers, Queue<Throwable> failures)
+   {
+      try
+      {
+         target.fireEvent(event, qualifiers);
+      }
+      catch (Throwable e)
+      {
+         failures.add(e);
+      }
+   }
 }
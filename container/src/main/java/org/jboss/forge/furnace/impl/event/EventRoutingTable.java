@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.event;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.event.ObservedEvent;
+import org.jboss.forge.furnace.event.ObservingEventManager;
+
+/**
+ * Routes events fired in an {@link AddonView} to the {@link EventManager} of each started {@link Addon} that may
+ * observe them. Addons whose {@link EventManager} is an {@link ObservingEventManager} only receive matching events;
+ * all other addons receive every event.
+ * <p>
+ * Routes are computed per event type and discarded whenever the version of the {@link AddonView} changes. Addons that
+ * were not started, or have since replaced their {@link EventManager}, are re-evaluated on every event until then.
+ * Callers must hold the {@link org.jboss.forge.furnace.lock.LockMode#READ} lock.
+ */
+public class EventRoutingTable
+{
+   private static final Comparator<Route> BY_ID = new Comparator<Route>()
+   {
+      @Override
+      public int compare(Route left, Route right)
+      {
+         return left.addon.getId().compareTo(right.addon.getId());
+      }
+   };
+
+   private final AddonView view;
+   private final LongSupplier version;
+   private volatile Routes routes;
+
+   /**
+    * Create a table that is rebuilt on every call.
+    */
+   public EventRoutingTable(AddonView view)
+   {
+      this(view, null);
+   }
+
+   /**
+    * Create a table that is rebuilt when the given version changes.
+    */
+   public EventRoutingTable(AddonView view, LongSupplier version)
+   {
+      this.view = view;
+      this.version = version;
+   }
+
+   /**
+    * Get the {@link EventManager} instances that should receive an event of the given type and qualifiers, sorted by
+    * {@link org.jboss.forge.furnace.addons.AddonId}.
+    */
+   public List<EventManager> getTargets(Class<?> eventType, Annotation... qualifiers)
+   {
+      List<EventManager> result = new ArrayList<>();
+      for (Route route : getRoutes().getCandidates(eventType))
+      {
+         if (route.addon.getStatus().isStarted())
+         {
+            EventManager manager = route.addon.getEventManager();
+            Route current = manager == route.manager ? route : new Route(route.addon, manager);
+            if (current.accepts(eventType, qualifiers))
+               result.add(manager);
+         }
+      }
+      return result;
+   }
+
+   private Routes getRoutes()
+   {
+      Routes current = routes;
+      long latest = version == null ? -1 : version.getAsLong();
+      if (current == null || version == null || current.version != latest)
+      {
+         List<Route> all = new ArrayList<>();
+         for (Addon addon : view.getAddons())
+         {
+            all.add(new Route(addon, addon.getStatus().isStarted() ? addon.getEventManager() : null));
+         }
+         Collections.sort(all, BY_ID);
+         current = new Routes(latest, all);
+         routes = current;
+      }
+      return current;
+   }
+
+   private static class Routes
+   {
+      private final long version;
+      private final List<Route> all;
+      private final ConcurrentMap<Class<?>, List<Route>> byType = new ConcurrentHashMap<>();
+
+      public Routes(long version, List<Route> all)
+      {
+         this.version = version;
+         this.all = all;
+      }
+
+      public List<Route> getCandidates(Class<?> eventType)
+      {
+         List<Route> result = byType.get(eventType);
+         if (result == null)
+         {
+            result = new ArrayList<>();
+            for (Route route : all)
+            {
+               if (route.observes(eventType))
+                  result.add(route);
+            }
+            byType.put(eventType, result);
+         }
+         return result;
+      }
+   }
+
+   private static class Route
+   {
+      private final Addon addon;
+      private final EventManager manager;
+      private final List<ObservedEvent> observed;
+
+      public Route(Addon addon, EventManager manager)
+      {
+         this.addon = addon;
+         this.manager = manager;
+         if (manager instanceof ObservingEventManager)
+         {
+            this.observed = new ArrayList<>();
+            for (ObservedEvent event : ((ObservingEventManager) manager).getObservedEvents())
+            {
+               observed.add(event);
+            }
+         }
+         else
+            this.observed = null;
+      }
+
+      public boolean observes(Class<?> eventType)
+      {
+         if (observed == null)
+            return true;
+         for (ObservedEvent event : observed)
+         {
+            if (event.matchesType(eventType))
+               return true;
+         }
+         return false;
+      }
+
+      public boolean accepts(Class<?> eventType, Annotation[] qualifiers)
+      {
+         if (observed == null)
+            return true;
+         for (ObservedEvent event : observed)
+         {
+            if (event.matchesType(eventType) && event.matchesQualifiers(qualifiers))
+               return true;
+         }
+         return false;
+      }
+   }
+}
@@ -8,8 +8,11 @@ package org.jboss.forge.furnace.impl.graph;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -21,10 +24,15 @@ import org.jboss.forge.furnace.impl.addons.AddonRepositoryImpl;
 import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
 import org.jboss.forge.furnace.repositories.AddonRepository;
 import org.jboss.forge.furnace.versions.EmptyVersion;
+import org.jboss.forge.furnace.versions.Version;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.alg.CycleDetector;
 import org.jgrapht.graph.SimpleDirectedGraph;
 
+/**
+ * The graph of all enabled addons in a set of repositories. The graph may be kept between scans and brought up to date
+ * with {@link #update(Collection)}, which only re-resolves the addons affected by the change.
+ */
 public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
 {
    private Logger logger = Logger.getLogger(CompleteAddonGraph.class.getName());
@@ -32,10 +40,25 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
    DirectedGraph<AddonVertex, AddonDependencyEdge> graph = new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(
             AddonDependencyEdge.class);
 
+   private final Map<AddonId, Set<AddonDependencyEntry>> dependencyMap = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+   private final Map<AddonId, AddonVertex> vertices = new HashMap<AddonId, AddonVertex>();
+   private final Map<String, AddonVertex> missingVertices = new HashMap<String, AddonVertex>();
+   private final Map<String, Set<AddonId>> enabledByName = new HashMap<String, Set<AddonId>>();
+   private final Map<String, Set<AddonId>> dependentsByName = new HashMap<String, Set<AddonId>>();
+
    public CompleteAddonGraph(Collection<AddonRepository> repositories)
+   {
+      update(repositories);
+   }
+
+   /**
+    * Bring this graph up to date with the addons currently enabled in the given repositories. Only addons that were
+    * enabled, disabled or changed since the last update, and addons depending on them, are re-resolved.
+    */
+   public void update(Collection<AddonRepository> repositories)
    {
       Set<AddonId> enabled = getAllEnabledAddonsInAllRepositories(repositories);
-      Map<AddonId, Set<AddonDependencyEntry>> dependencyMap = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
+      Map<AddonId, Set<AddonDependencyEntry>> current = new LinkedHashMap<AddonId, Set<AddonDependencyEntry>>();
       for (AddonId id : enabled)
       {
          for (AddonRepository repository : repositories)
@@ -43,45 +66,192 @@ public class CompleteAddonGraph extends AddonGraph<CompleteAddonGraph>
             if (repository.isEnabled(id))
             {
                Set<AddonDependencyEntry> dependencies = repository.getAddonDependencies(id);
-               dependencyMap.put(id, dependencies);
+               current.put(id, dependencies);
             }
          }
       }
 
-      for (Entry<AddonId, Set<AddonDependencyEntry>> entry : dependencyMap.entrySet())
+      Set<String> changedNames = new HashSet<String>();
+      Set<AddonId> touched = new LinkedHashSet<AddonId>();
+
+      for (AddonId id : new ArrayList<AddonId>(dependencyMap.keySet()))
       {
-         AddonVertex vertex = getOrCreateVertex(entry.getKey().getName(), entry.getKey().getVersion());
+         if (!current.containsKey(id))
+         {
+            removeAddon(id);
+            changedNames.add(id.getName());
+         }
+      }
 
-         for (AddonDependencyEntry dependency : entry.getValue())
+      for (Entry<AddonId, Set<AddonDependencyEntry>> entry : current.entrySet())
+      {
+         AddonId id = entry.getKey();
+         Set<AddonDependencyEntry> previous = dependencyMap.get(id);
+         if (previous == null)
          {
-            boolean satisfied = false;
-            for (AddonId id : enabled)
+            index(enabledByName, id.getName(), id);
+            changedNames.add(id.getName());
+            touched.add(id);
+         }
+         else if (!isSameDependencies(previous, entry.getValue()))
+         {
+            touched.add(id);
+         }
+      }
+
+      for (String name : changedNames)
+      {
+         Set<AddonId> dependents = dependentsByName.get(name);
+         if (dependents != null)
+            touched.addAll(dependents);
+      }
+
+      for (AddonId id : touched)
+      {
+         if (current.containsKey(id))
+            resolve(id, current.get(id));
+      }
+
+      removeUnusedMissingVertices();
+
+      CycleDetector<AddonVertex, AddonDependencyEdge> detector = new CycleDetector<AddonVertex, AddonDependencyEdge>(
+               graph);
+      for (AddonId id : touched)
+      {
+         // Any new cycle must pass through one of the edges that was just resolved
+         AddonVertex vertex = vertices.get(id);
+         if (vertex != null && detector.detectCyclesContainingVertex(vertex))
+         {
+            throw new IllegalStateException("Cycle detected in Addon graph: "
+                     + detector.findCyclesContainingVertex(vertex));
+         }
+      }
+   }
+
+   private void resolve(AddonId id, Set<AddonDependencyEntry> dependencies)
+   {
+      Set<AddonDependencyEntry> previous = dependencyMap.put(id, dependencies);
+      if (previous != null)
+      {
+         for (AddonDependencyEntry dependency : previous)
+            unindex(dependentsByName, dependency.getName(), id);
+      }
+
+      AddonVertex vertex = getOrCreateVertex(id.getName(), id.getVersion());
+      graph.removeAllEdges(new ArrayList<AddonDependencyEdge>(graph.outgoingEdgesOf(vertex)));
+
+      for (AddonDependencyEntry dependency : dependencies)
+      {
+         index(dependentsByName, dependency.getName(), id);
+
+         boolean satisfied = false;
+         Set<AddonId> candidates = enabledByName.get(dependency.getName());
+         if (candidates != null)
+         {
+            for (AddonId candidate : candidates)
             {
-               if (dependency.getName().equals(id.getName()) && dependency.getVersionRange().includes(id.getVersion()))
+               if (dependency.getVersionRange().includes(candidate.getVersion()))
                {
-                  AddonVertex dependencyVertex = getOrCreateVertex(id.getName(), id.getVersion());
+                  AddonVertex dependencyVertex = getOrCreateVertex(candidate.getName(), candidate.getVersion());
                   graph.addEdge(vertex, dependencyVertex, new AddonDependencyEdge(dependency.getVersionRange(),
                            dependency.isExported()));
                   satisfied = true;
                }
             }
+         }
 
-            if (!satisfied && !dependency.isOptional())
+         if (!satisfied && !dependency.isOptional())
+         {
+            AddonVertex missingVertex = missingVertices.get(dependency.getName());
+            if (missingVertex == null)
             {
-               AddonVertex missingVertex = new AddonVertex(dependency.getName(), EmptyVersion.getInstance());
+               missingVertex = new AddonVertex(dependency.getName(), EmptyVersion.getInstance());
                graph.addVertex(missingVertex);
-               graph.addEdge(vertex, missingVertex,
-                        new AddonDependencyEdge(dependency.getVersionRange(), dependency.isExported()));
+               missingVertices.put(dependency.getName(), missingVertex);
             }
+            graph.addEdge(vertex, missingVertex,
+                     new AddonDependencyEdge(dependency.getVersionRange(), dependency.isExported()));
          }
       }
+   }
 
-      CycleDetector<AddonVertex, AddonDependencyEdge> detector = new CycleDetector<AddonVertex, AddonDependencyEdge>(
-               graph);
-      if (detector.detectCycles())
+   private void removeAddon(AddonId id)
+   {
+      Set<AddonDependencyEntry> dependencies = dependencyMap.remove(id);
+      for (AddonDependencyEntry dependency : dependencies)
+         unindex(dependentsByName, dependency.getName(), id);
+      unindex(enabledByName, id.getName(), id);
+
+      AddonVertex vertex = vertices.remove(id);
+      if (vertex != null)
+         graph.removeVertex(vertex);
+   }
+
+   private void removeUnusedMissingVertices()
+   {
+      Iterator<AddonVertex> iterator = missingVertices.values().iterator();
+      while (iterator.hasNext())
+      {
+         AddonVertex missingVertex = iterator.next();
+         if (graph.inDegreeOf(missingVertex) == 0)
+         {
+            graph.removeVertex(missingVertex);
+            iterator.remove();
+         }
+      }
+   }
+
+   private static boolean isSameDependencies(Set<AddonDependencyEntry> left, Set<AddonDependencyEntry> right)
+   {
+      /*
+       * AddonDependencyEntry equality only considers the name, so compare the full descriptions.
+       */
+      if (left.size() != right.size())
+         return false;
+      Set<String> descriptions = new HashSet<String>();
+      for (AddonDependencyEntry entry : left)
+         descriptions.add(entry.toString());
+      for (AddonDependencyEntry entry : right)
       {
-         throw new IllegalStateException("Cycle detected in Addon graph: " + detector.findCycles());
+         if (!descriptions.contains(entry.toString()))
+            return false;
       }
+      return true;
+   }
+
+   private static void index(Map<String, Set<AddonId>> index, String name, AddonId id)
+   {
+      Set<AddonId> ids = index.get(name);
+      if (ids == null)
+      {
+         ids = new LinkedHashSet<AddonId>();
+         index.put(name, ids);
+      }
+      ids.add(id);
+   }
+
+   private static void unindex(Map<String, Set<AddonId>> index, String name, AddonId id)
+   {
+      Set<AddonId> ids = index.get(name);
+      if (ids != null)
+      {
+         ids.remove(id);
+         if (ids.isEmpty())
+            index.remove(name);
+      }
+   }
+
+   @Override
+   protected AddonVertex getVertex(String name, Version version)
+   {
+      return vertices.get(AddonId.from(name, version));
+   }
+
+   @Override
+   protected void addLocalVertex(AddonVertex vertex)
+   {
+      super.addLocalVertex(vertex);
+      vertices.put(AddonId.from(vertex.getName(), vertex.getVersion()), vertex);
    }
 
    private Set<AddonId> getAllEnabledAddonsInAllRepositories(Collection<AddonRepository> repositories)
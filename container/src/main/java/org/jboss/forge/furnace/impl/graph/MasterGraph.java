@@ -9,24 +9,98 @@ package org.jboss.forge.furnace.impl.graph;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.util.Streams;
 import org.jboss.forge.furnace.versions.Version;
 import org.jgrapht.DirectedGraph;
+import org.jgrapht.event.GraphEdgeChangeEvent;
+import org.jgrapht.event.GraphListener;
+import org.jgrapht.event.GraphVertexChangeEvent;
 import org.jgrapht.event.TraversalListenerAdapter;
 import org.jgrapht.event.VertexTraversalEvent;
 import org.jgrapht.ext.DOTExporter;
 import org.jgrapht.ext.IntegerNameProvider;
+import org.jgrapht.graph.ListenableDirectedGraph;
 import org.jgrapht.graph.SimpleDirectedGraph;
 import org.jgrapht.traverse.DepthFirstIterator;
 
 public class MasterGraph
 {
-   private final DirectedGraph<AddonVertex, AddonDependencyEdge> graph = new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(
-            AddonDependencyEdge.class);
+   private final ListenableDirectedGraph<AddonVertex, AddonDependencyEdge> graph = new ListenableDirectedGraph<AddonVertex, AddonDependencyEdge>(
+            new SimpleDirectedGraph<AddonVertex, AddonDependencyEdge>(AddonDependencyEdge.class));
+
+   /**
+    * Vertices indexed by addon name. Kept up to date through a {@link GraphListener}, since vertices may also be
+    * added or removed through {@link #getGraph()}.
+    */
+   private final Map<String, Set<AddonVertex>> verticesByName = new HashMap<>();
+
+   /**
+    * Memoized structural hashes of the subtrees rooted at each vertex. See {@link #getSubtreeHash(AddonVertex)}.
+    */
+   private final Map<AddonVertex, Integer> subtreeHashes = new IdentityHashMap<>();
+
+   /**
+    * Hashes of the foreign graph being merged by {@link #merge(OptimizedAddonGraph)}, which does not change while the
+    * merge is in progress.
+    */
+   private DirectedGraph<AddonVertex, AddonDependencyEdge> mergingGraph;
+   private Map<AddonVertex, Integer> mergingHashes;
+
+   public MasterGraph()
+   {
+      graph.addGraphListener(new GraphListener<AddonVertex, AddonDependencyEdge>()
+      {
+         @Override
+         public void edgeAdded(GraphEdgeChangeEvent<AddonVertex, AddonDependencyEdge> event)
+         {
+            invalidateSubtreeHash(graph.getEdgeSource(event.getEdge()));
+         }
+
+         @Override
+         public void edgeRemoved(GraphEdgeChangeEvent<AddonVertex, AddonDependencyEdge> event)
+         {
+            invalidateSubtreeHash(graph.getEdgeSource(event.getEdge()));
+         }
+
+         @Override
+         public void vertexAdded(GraphVertexChangeEvent<AddonVertex> event)
+         {
+            AddonVertex vertex = event.getVertex();
+            Set<AddonVertex> vertices = verticesByName.get(vertex.getName());
+            if (vertices == null)
+            {
+               vertices = new LinkedHashSet<>();
+               verticesByName.put(vertex.getName(), vertices);
+            }
+            vertices.add(vertex);
+         }
+
+         @Override
+         public void vertexRemoved(GraphVertexChangeEvent<AddonVertex> event)
+         {
+            AddonVertex vertex = event.getVertex();
+            subtreeHashes.remove(vertex);
+            Set<AddonVertex> vertices = verticesByName.get(vertex.getName());
+            if (vertices != null)
+            {
+               vertices.remove(vertex);
+               if (vertices.isEmpty())
+                  verticesByName.remove(vertex.getName());
+            }
+         }
+      });
+   }
 
    public DirectedGraph<AddonVertex, AddonDependencyEdge> getGraph()
    {
@@ -38,6 +112,21 @@ public class MasterGraph
       if (other.getGraph().vertexSet().isEmpty())
          return;
 
+      mergingGraph = other.getGraph();
+      mergingHashes = new IdentityHashMap<>();
+      try
+      {
+         mergeGraph(other);
+      }
+      finally
+      {
+         mergingGraph = null;
+         mergingHashes = null;
+      }
+   }
+
+   private void mergeGraph(final OptimizedAddonGraph other)
+   {
       if (graph.vertexSet().isEmpty())
       {
          for (AddonVertex vertex : other.getGraph().vertexSet())
@@ -105,31 +194,108 @@ public class MasterGraph
       return result;
    }
 
+   /**
+    * Get the {@link AddonVertex} instances with the given addon name, in any version.
+    */
+   public Set<AddonVertex> getVertices(String name)
+   {
+      Set<AddonVertex> named = verticesByName.get(name);
+      if (named == null)
+         return Collections.emptySet();
+      return new LinkedHashSet<>(named);
+   }
+
    public Set<AddonVertex> getVertices(String name, Version version)
    {
       Set<AddonVertex> result = new HashSet<AddonVertex>();
-      for (AddonVertex vertex : getGraph().vertexSet())
+      Set<AddonVertex> named = verticesByName.get(name);
+      if (named != null)
       {
-         if (vertex.getName().equals(name) && version.compareTo(vertex.getVersion()) == 0)
+         for (AddonVertex vertex : named)
          {
-            result.add(vertex);
+            if (version.compareTo(vertex.getVersion()) == 0)
+            {
+               result.add(vertex);
+            }
          }
       }
       return result;
    }
 
+   /**
+    * Get the {@link AddonVertex} with the given {@link AddonId} that is visible in the given {@link AddonView}, or
+    * <code>null</code> if no such vertex exists.
+    */
+   public AddonVertex getVertex(AddonId id, AddonView view)
+   {
+      Set<AddonVertex> named = verticesByName.get(id.getName());
+      if (named != null)
+      {
+         for (AddonVertex vertex : named)
+         {
+            if (vertex.getAddonId().equals(id) && vertex.getViews().contains(view))
+               return vertex;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Get the {@link AddonVertex} holding the given {@link Addon}, or <code>null</code> if no such vertex exists.
+    */
+   public AddonVertex getVertex(Addon addon)
+   {
+      Set<AddonVertex> named = verticesByName.get(addon.getId().getName());
+      if (named != null)
+      {
+         for (AddonVertex vertex : named)
+         {
+            if (addon.equals(vertex.getAddon()))
+               return vertex;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Returns <code>true</code> if the subtree rooted at the given local {@link AddonVertex} has the same dependency
+    * structure as the subtree rooted at the given vertex of another graph.
+    */
    public boolean isSubtreeEquivalent(AddonVertex localVertex,
             DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex)
    {
-      Set<AddonDependencyEdge> otherOutgoing;
-      otherOutgoing = otherGraph.outgoingEdgesOf(otherVertex);
+      Map<AddonVertex, Integer> otherHashes = otherGraph == mergingGraph ? mergingHashes : new IdentityHashMap<>();
+      return isSubtreeEquivalent(localVertex, otherGraph, otherVertex, otherHashes);
+   }
+
+   /**
+    * Returns <code>true</code> if the subtree rooted at the given local {@link AddonVertex} has the same dependency
+    * structure as the subtree rooted at the given vertex of another {@link MasterGraph}.
+    */
+   public boolean isSubtreeEquivalent(AddonVertex localVertex, MasterGraph other, AddonVertex otherVertex)
+   {
+      return isSubtreeEquivalent(localVertex, other.getGraph(), otherVertex, other.subtreeHashes);
+   }
+
+   private boolean isSubtreeEquivalent(AddonVertex localVertex,
+            DirectedGraph<AddonVertex, AddonDependencyEdge> otherGraph, AddonVertex otherVertex,
+            Map<AddonVertex, Integer> otherHashes)
+   {
+      /*
+       * Equivalent subtrees always have equal hashes, so differing hashes rule out equivalence without a walk. Equal
+       * hashes are confirmed structurally in case of a collision.
+       */
+      if (getSubtreeHash(localVertex) != getSubtreeHash(otherGraph, otherVertex, otherHashes))
+         return false;
+
+      Set<AddonDependencyEdge> otherOutgoing = otherGraph.outgoingEdgesOf(otherVertex);
       Set<AddonDependencyEdge> localOutgoing = graph.outgoingEdgesOf(localVertex);
 
       if (otherOutgoing.size() == localOutgoing.size())
       {
          for (AddonDependencyEdge otherEdge : otherOutgoing)
          {
-            AddonVertex otherTarget = graph.getEdgeTarget(otherEdge);
+            AddonVertex otherTarget = otherGraph.getEdgeTarget(otherEdge);
             Set<AddonVertex> localCandidates = getVertices(otherTarget.getName(), otherTarget.getVersion());
 
             boolean found = false;
@@ -138,7 +304,7 @@ public class MasterGraph
                for (AddonVertex candidate : localCandidates)
                {
                   AddonDependencyEdge localEdge = graph.getEdge(localVertex, candidate);
-                  if (localEdge != null && isSubtreeEquivalent(candidate, otherGraph, otherTarget))
+                  if (localEdge != null && isSubtreeEquivalent(candidate, otherGraph, otherTarget, otherHashes))
                   {
                      found = true;
                      break;
@@ -154,6 +320,59 @@ public class MasterGraph
       return false;
    }
 
+   /**
+    * Get the structural hash of the subtree rooted at the given {@link AddonVertex}. The hash covers the name and
+    * version of each vertex and, recursively, the hashes of its dependencies. It is memoized until the subtree changes.
+    */
+   public int getSubtreeHash(AddonVertex vertex)
+   {
+      return getSubtreeHash(graph, vertex, subtreeHashes);
+   }
+
+   private static int getSubtreeHash(DirectedGraph<AddonVertex, AddonDependencyEdge> graph, AddonVertex vertex,
+            Map<AddonVertex, Integer> hashes)
+   {
+      Integer result = hashes.get(vertex);
+      if (result == null)
+      {
+         int children = 0;
+         for (AddonDependencyEdge edge : graph.outgoingEdgesOf(vertex))
+         {
+            // Summed so that the hash does not depend on edge iteration order
+            children += mix(getSubtreeHash(graph, graph.getEdgeTarget(edge), hashes));
+         }
+         result = 31 * (31 * vertex.getName().hashCode() + vertex.getVersion().hashCode()) + children;
+         hashes.put(vertex, result);
+      }
+      return result;
+   }
+
+   private static int mix(int hash)
+   {
+      hash ^= (hash >>> 16);
+      hash *= 0x85ebca6b;
+      hash ^= (hash >>> 13);
+      return hash;
+   }
+
+   /**
+    * Discard the memoized hashes of the given {@link AddonVertex} and of every vertex depending on it.
+    */
+   private void invalidateSubtreeHash(AddonVertex vertex)
+   {
+      /*
+       * A vertex is only hashed after all of its dependencies, so once an uncached vertex is reached none of its
+       * dependents can be cached either.
+       */
+      if (subtreeHashes.remove(vertex) != null && graph.containsVertex(vertex))
+      {
+         for (AddonDependencyEdge edge : graph.incomingEdgesOf(vertex))
+         {
+            invalidateSubtreeHash(graph.getEdgeSource(edge));
+         }
+      }
+   }
+
    private void replaceVertex(AddonVertex original, AddonVertex replacement)
    {
       Set<AddonDependencyEdge> incoming = graph.incomingEdgesOf(original);
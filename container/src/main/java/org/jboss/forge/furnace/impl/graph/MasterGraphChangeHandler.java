@@ -6,12 +6,21 @@
  */
 package org.jboss.forge.furnace.impl.graph;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonId;
 import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.impl.addons.AddonLifecycleManager;
+import org.jgrapht.DirectedGraph;
 import org.jgrapht.event.TraversalListenerAdapter;
 import org.jgrapht.event.VertexTraversalEvent;
 import org.jgrapht.traverse.BreadthFirstIterator;
@@ -22,13 +31,25 @@ public class MasterGraphChangeHandler
    private AddonLifecycleManager lifecycleManager;
    private MasterGraph lastMasterGraph;
    private MasterGraph graph;
+   private Set<AddonId> changedAddons;
 
    public MasterGraphChangeHandler(AddonLifecycleManager lifefycleManager,
             MasterGraph currentGraph, MasterGraph graph)
+   {
+      this(lifefycleManager, currentGraph, graph, Collections.<AddonId> emptySet());
+   }
+
+   /**
+    * Create a handler that also treats the given addons as dirty, for instance because their deployed resources have
+    * been replaced. Their dependents are marked dirty as well.
+    */
+   public MasterGraphChangeHandler(AddonLifecycleManager lifefycleManager,
+            MasterGraph currentGraph, MasterGraph graph, Set<AddonId> changedAddons)
    {
       this.lifecycleManager = lifefycleManager;
       this.lastMasterGraph = currentGraph;
       this.graph = graph;
+      this.changedAddons = changedAddons;
    }
 
    public void hotSwapChanges()
@@ -36,6 +57,7 @@ public class MasterGraphChangeHandler
       initGraph();
       markDirty();
       markRemovedDirty();
+      fireStopping();
       stopDirty();
       stopRemoved();
       loadAddons();
@@ -54,28 +76,19 @@ public class MasterGraphChangeHandler
          for (AddonVertex last : lastMasterGraph.getGraph().vertexSet())
          {
             boolean found = false;
-            Set<AddonVertex> vertices = graph.getGraph().vertexSet();
-            for (AddonVertex vertex : vertices)
+            for (AddonVertex vertex : graph.getVertices(last.getName()))
             {
-               if (last.getName().equals(vertex.getName()))
+               if (!Collections.disjoint(vertex.getViews(), last.getViews()))
                {
-                  for (AddonView view : vertex.getViews())
-                  {
-                     if (last.getViews().contains(view))
-                     {
-                        found = true;
-                        break;
-                     }
-                  }
-               }
-
-               if (found)
+                  found = true;
                   break;
+               }
             }
 
             if (!found && last.getAddon().getStatus().isLoaded())
             {
                graph.getGraph().addVertex(last);
+               lifecycleManager.setAddon(last, last.getAddon());
                last.setDirty(true);
             }
          }
@@ -97,17 +110,12 @@ public class MasterGraphChangeHandler
                Addon addon = null;
                if (lastMasterGraph != null)
                {
-                  for (AddonVertex last : lastMasterGraph.getGraph().vertexSet())
-                  {
-                     if (last.getAddon().getId().equals(addonId) && last.getViews().contains(view))
-                     {
-                        addon = last.getAddon();
-                        break;
-                     }
-                  }
+                  AddonVertex last = lastMasterGraph.getVertex(addonId, view);
+                  if (last != null)
+                     addon = last.getAddon();
                }
 
-               vertex.setAddon(addon);
+               lifecycleManager.setAddon(vertex, addon);
             }
          };
       });
@@ -135,7 +143,7 @@ public class MasterGraphChangeHandler
                if (addon == null)
                   addon = lifecycleManager.getAddon(view, addonId);
 
-               vertex.setAddon(addon);
+               lifecycleManager.setAddon(vertex, addon);
             }
          };
       });
@@ -162,6 +170,11 @@ public class MasterGraphChangeHandler
                vertex.setDirty(true);
             }
 
+            if (changedAddons.contains(vertex.getAddonId()))
+            {
+               vertex.setDirty(true);
+            }
+
             for (AddonDependencyEdge edge : graph.getGraph().outgoingEdgesOf(vertex))
             {
                AddonVertex target = graph.getGraph().getEdgeTarget(edge);
@@ -175,7 +188,7 @@ public class MasterGraphChangeHandler
                Set<AddonVertex> lastVertices = lastMasterGraph.getVertices(vertex.getName(), vertex.getVersion());
                for (AddonVertex lastVertex : lastVertices)
                {
-                  if (graph.isSubtreeEquivalent(vertex, lastMasterGraph.getGraph(), lastVertex))
+                  if (graph.isSubtreeEquivalent(vertex, lastMasterGraph, lastVertex))
                   {
                      equivalent = true;
                      break;
@@ -240,6 +253,28 @@ public class MasterGraphChangeHandler
       }
    }
 
+   /**
+    * Notify the other addons once about every dirty {@link Addon} that is about to be stopped, before any is stopped.
+    */
+   private void fireStopping()
+   {
+      Set<Addon> stopping = new LinkedHashSet<>();
+      for (AddonVertex vertex : graph.getGraph().vertexSet())
+      {
+         if (vertex.isDirty())
+            stopping.add(vertex.getAddon());
+      }
+      if (lastMasterGraph != null)
+      {
+         for (AddonVertex vertex : lastMasterGraph.getGraph().vertexSet())
+         {
+            if (vertex.isDirty())
+               stopping.add(vertex.getAddon());
+         }
+      }
+      lifecycleManager.fireStopping(stopping);
+   }
+
    private void stopDirty()
    {
       BreadthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new BreadthFirstIterator<AddonVertex, AddonDependencyEdge>(
@@ -281,28 +316,66 @@ public class MasterGraphChangeHandler
       }
    }
 
+   /**
+    * Schedule each {@link Addon} to be loaded as soon as all of its dependencies have been loaded, so that independent
+    * sub-graphs are loaded concurrently. Vertices are finished by the depth-first traversal only after all of their
+    * dependencies, so every dependency has been scheduled by the time its dependents are.
+    */
    private void loadAddons()
    {
+      final DirectedGraph<AddonVertex, AddonDependencyEdge> directedGraph = graph.getGraph();
+      final Map<AddonVertex, CompletableFuture<Void>> vertexLoads = new IdentityHashMap<>();
+      final Map<Addon, CompletableFuture<Void>> addonLoads = new IdentityHashMap<>();
+
       DepthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new DepthFirstIterator<AddonVertex, AddonDependencyEdge>(
-               graph.getGraph());
+               directedGraph);
 
       iterator.addTraversalListener(new TraversalListenerAdapter<AddonVertex, AddonDependencyEdge>()
       {
          @Override
          public void vertexFinished(VertexTraversalEvent<AddonVertex> event)
          {
-            Addon addon = event.getVertex().getAddon();
-            if (!addon.getStatus().isLoaded())
-               lifecycleManager.loadAddon(addon);
+            AddonVertex vertex = event.getVertex();
+            Addon addon = vertex.getAddon();
+
+            CompletableFuture<Void> load = addonLoads.get(addon);
+            if (load == null)
+            {
+               List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+               for (AddonDependencyEdge edge : directedGraph.outgoingEdgesOf(vertex))
+               {
+                  CompletableFuture<Void> dependency = vertexLoads.get(directedGraph.getEdgeTarget(edge));
+                  if (dependency != null)
+                     dependencies.add(dependency);
+               }
+
+               load = lifecycleManager.loadAddonAsync(addon, dependencies);
+               addonLoads.put(addon, load);
+            }
+            vertexLoads.put(vertex, load);
          };
       });
 
       while (iterator.hasNext())
          iterator.next();
+
+      try
+      {
+         CompletableFuture.allOf(addonLoads.values().toArray(new CompletableFuture[addonLoads.size()])).join();
+      }
+      catch (CompletionException e)
+      {
+         if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+         if (e.getCause() instanceof Error)
+            throw (Error) e.getCause();
+         throw e;
+      }
    }
 
    private void startupIncremental()
    {
+      final Map<AddonVertex, Integer> priorities = new IdentityHashMap<>();
       DepthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new DepthFirstIterator<AddonVertex, AddonDependencyEdge>(
                graph.getGraph());
 
@@ -311,9 +384,10 @@ public class MasterGraphChangeHandler
          @Override
          public void vertexFinished(VertexTraversalEvent<AddonVertex> event)
          {
-            Addon addon = event.getVertex().getAddon();
+            AddonVertex vertex = event.getVertex();
+            Addon addon = vertex.getAddon();
             if (addon.getStatus().isLoaded())
-               lifecycleManager.startAddon(addon);
+               lifecycleManager.startAddon(addon, getCriticalPathLength(vertex, priorities));
          };
       });
 
@@ -321,6 +395,29 @@ public class MasterGraphChangeHandler
          iterator.next();
    }
 
+   /**
+    * Returns the length of the longest chain of dependents waiting on the given {@link AddonVertex} (including itself).
+    * Addons at the head of long chains are started first.
+    */
+   private int getCriticalPathLength(AddonVertex vertex, Map<AddonVertex, Integer> lengths)
+   {
+      Integer result = lengths.get(vertex);
+      if (result == null)
+      {
+         // Guard against cycles while this vertex is being computed
+         lengths.put(vertex, 1);
+         int longest = 0;
+         DirectedGraph<AddonVertex, AddonDependencyEdge> g = graph.getGraph();
+         for (AddonDependencyEdge edge : g.incomingEdgesOf(vertex))
+         {
+            longest = Math.max(longest, getCriticalPathLength(g.getEdgeSource(edge), lengths));
+         }
+         result = longest + 1;
+         lengths.put(vertex, result);
+      }
+      return result;
+   }
+
    private void clearDirtyStatus()
    {
       DepthFirstIterator<AddonVertex, AddonDependencyEdge> iterator = new DepthFirstIterator<AddonVertex, AddonDependencyEdge>(
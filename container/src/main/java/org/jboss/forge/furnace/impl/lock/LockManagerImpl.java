@@ -6,40 +6,108 @@
  */
 package org.jboss.forge.furnace.impl.lock;
 
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
+import org.jboss.forge.furnace.addons.AddonView;
 import org.jboss.forge.furnace.exception.ContainerException;
 import org.jboss.forge.furnace.lock.LockManager;
 import org.jboss.forge.furnace.lock.LockMode;
 import org.jboss.forge.furnace.util.Assert;
 
 /**
+ * Locks are acquired in a fixed order: the container-wide lock first, then stripe locks ranked by kind
+ * ({@link AddonView} stripes before repository directories, then any other stripe) and by a key derived from the stripe
+ * itself, so that the order does not depend on which stripe happened to be used first. Striped tasks do not hold the
+ * container-wide lock, so a {@link LockMode#WRITE} task only excludes the tasks on the stripes it acquires itself, and
+ * a thread holding a stripe may not acquire the container-wide lock unless it already holds it.
+ * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class LockManagerImpl implements LockManager
 {
    private ReentrantReadWriteLock readWriteLock;
 
+   /**
+    * Shared by tasks running on behalf of the thread that holds the {@link LockMode#WRITE} lock.
+    * 
+    * @see #delegate(Callable)
+    */
+   private final ReentrantReadWriteLock delegateLock = new ReentrantReadWriteLock(true);
+   private final ThreadLocal<Boolean> delegated = new ThreadLocal<>();
+
+   /**
+    * Write-locked for the duration of each outermost {@link LockMode#WRITE} task on the container-wide lock, which
+    * also covers the tasks delegated by it, so that optimistic reads can be validated.
+    * 
+    * @see #performOptimisticRead(Supplier)
+    */
+   private final StampedLock writeStamps = new StampedLock();
+
+   /**
+    * <code>null</code> unless enabled by the {@value LockStatistics#LOCK_STATISTICS_PROPERTY} system property.
+    */
+   private final LockStatistics statistics;
+
+   private final Map<Object, Stripe> stripes = new ConcurrentHashMap<>();
+   private final AtomicLong stripeSequence = new AtomicLong();
+   private final ThreadLocal<Deque<Stripe>> heldStripes = new ThreadLocal<Deque<Stripe>>()
+   {
+      @Override
+      protected Deque<Stripe> initialValue()
+      {
+         return new ArrayDeque<>();
+      }
+   };
+
+   public LockManagerImpl()
+   {
+      if (LockStatistics.isEnabled())
+      {
+         statistics = new LockStatistics();
+         statistics.register(this);
+      }
+      else
+      {
+         statistics = null;
+      }
+   }
+
    private synchronized Lock obtainLock(LockMode mode)
    {
       if (readWriteLock == null)
          readWriteLock = new ReentrantReadWriteLock(true);
 
+      ReentrantReadWriteLock lock = Boolean.TRUE.equals(delegated.get()) ? delegateLock : readWriteLock;
       if (LockMode.READ.equals(mode))
       {
-         return readWriteLock.readLock();
+         return lock.readLock();
       }
       else
       {
-         if (readWriteLock.getReadHoldCount() > 0)
+         if (lock.getReadHoldCount() > 0)
             throw new DeadlockError(
                      "Thread with READ lock attempted to obtain a WRITE lock (This is never allowed.)");
-         return readWriteLock.writeLock();
+         return lock.writeLock();
       }
    }
 
+   private synchronized ReentrantReadWriteLock getReadWriteLock()
+   {
+      if (readWriteLock == null)
+         readWriteLock = new ReentrantReadWriteLock(true);
+      return readWriteLock;
+   }
+
    @Override
    public <T> T performLocked(LockMode mode, Callable<T> task)
    {
@@ -47,12 +115,210 @@ public class LockManagerImpl implements LockManager
       Assert.notNull(task, "Task to perform must not be null.");
 
       Lock lock = obtainLock(mode);
+      checkNoStripeHeld();
+      if (statistics != null)
+         return performRecorded(mode, lock, getCurrentLock(), task);
+
       lock.lock();
+      try
+      {
+         return performWithLock(mode, lock, task);
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Perform the task, the given lock being held by the current thread.
+    */
+   private <T> T performWithLock(LockMode mode, Lock lock, Callable<T> task)
+   {
+      ReentrantReadWriteLock container = getReadWriteLock();
+      long stamp = 0;
+      if (lock == container.writeLock() && container.getWriteHoldCount() == 1)
+         stamp = writeStamps.writeLock();
+      try
+      {
+         return call(mode, task);
+      }
+      finally
+      {
+         if (stamp != 0)
+            writeStamps.unlockWrite(stamp);
+      }
+   }
+
+   /**
+    * Acquire the given lock, perform the task and release the lock, recording the wait and hold times.
+    */
+   private <T> T performRecorded(LockMode mode, Lock lock, ReentrantReadWriteLock owner, Callable<T> task)
+   {
+      StackTraceElement[] stack = statistics.captureStack();
+      int queueLength = owner.getQueueLength();
+      long requested = System.nanoTime();
+      lock.lock();
+      long acquired = System.nanoTime();
+      try
+      {
+         return performWithLock(mode, lock, task);
+      }
+      finally
+      {
+         lock.unlock();
+         statistics.record(stack, mode, acquired - requested, System.nanoTime() - acquired, queueLength);
+      }
+   }
+
+   /**
+    * Get the recorded lock statistics, or <code>null</code> if the {@value LockStatistics#LOCK_STATISTICS_PROPERTY}
+    * system property is not set.
+    */
+   public LockStatistics getStatistics()
+   {
+      return statistics;
+   }
+
+   /**
+    * Release resources held by this instance, such as the statistics MBean registration.
+    */
+   public void dispose()
+   {
+      if (statistics != null)
+         statistics.unregister();
+   }
+
+   @Override
+   public <T> T performOptimisticRead(final Supplier<T> task)
+   {
+      Assert.notNull(task, "Task to perform must not be null.");
+
+      long stamp = writeStamps.tryOptimisticRead();
+      if (stamp != 0)
+      {
+         try
+         {
+            T result = task.get();
+            if (writeStamps.validate(stamp))
+               return result;
+         }
+         catch (RuntimeException e)
+         {
+            // Observed a concurrent modification; retry holding the lock.
+         }
+      }
+
+      return performLocked(LockMode.READ, new Callable<T>()
+      {
+         @Override
+         public T call() throws Exception
+         {
+            return task.get();
+         }
+      });
+   }
+
+   @Override
+   public <T> T performLocked(Object stripe, LockMode mode, Callable<T> task)
+   {
+      Assert.notNull(mode, "LockMode must not be null.");
+      Assert.notNull(task, "Task to perform must not be null.");
+
+      if (stripe == null)
+         return performLocked(mode, task);
+
+      Stripe target = stripes.get(stripe);
+      if (target == null)
+      {
+         Stripe created = new Stripe(stripe, stripeSequence.incrementAndGet());
+         target = stripes.putIfAbsent(stripe, created);
+         if (target == null)
+            target = created;
+      }
+
+      Deque<Stripe> held = heldStripes.get();
+      if (!held.isEmpty() && !held.contains(target) && held.peek().compareTo(target) > 0)
+         throw new DeadlockError("Thread holding lock stripe [" + held.peek() + "] attempted to obtain stripe ["
+                  + target + "] out of order.");
+
+      Lock stripeLock;
+      if (LockMode.READ.equals(mode))
+      {
+         stripeLock = target.lock.readLock();
+      }
+      else
+      {
+         if (target.lock.getReadHoldCount() > 0)
+            throw new DeadlockError(
+                     "Thread with READ lock attempted to obtain a WRITE lock (This is never allowed.)");
+         stripeLock = target.lock.writeLock();
+      }
+
+      StackTraceElement[] stack = null;
+      int queueLength = 0;
+      long requested = 0;
+      if (statistics != null)
+      {
+         stack = statistics.captureStack();
+         queueLength = target.lock.getQueueLength();
+         requested = System.nanoTime();
+      }
 
-      T result;
+      stripeLock.lock();
+      long acquired = statistics != null ? System.nanoTime() : 0;
+      held.push(target);
       try
       {
-         result = task.call();
+         return call(mode, task);
+      }
+      finally
+      {
+         held.pop();
+         stripeLock.unlock();
+         if (statistics != null)
+            statistics.record(stack, mode, acquired - requested, System.nanoTime() - acquired, queueLength);
+      }
+   }
+
+   /**
+    * A thread holding a stripe must not wait for the container-wide lock, since its owner may be waiting for that
+    * stripe. Acquiring it again while already holding it is allowed.
+    */
+   private void checkNoStripeHeld()
+   {
+      Deque<Stripe> held = heldStripes.get();
+      if (!held.isEmpty())
+      {
+         ReentrantReadWriteLock lock = getCurrentLock();
+         if (lock.getReadHoldCount() == 0 && !lock.isWriteLockedByCurrentThread())
+            throw new DeadlockError("Thread holding lock stripe [" + held.peek()
+                     + "] attempted to obtain the container-wide lock.");
+      }
+   }
+
+   /**
+    * Forget the lock of the given stripe, which must no longer be in use.
+    */
+   public void disposeStripe(Object stripe)
+   {
+      if (stripe != null)
+         stripes.remove(stripe);
+   }
+
+   /**
+    * Get the container-wide lock used by the current thread.
+    */
+   private ReentrantReadWriteLock getCurrentLock()
+   {
+      return Boolean.TRUE.equals(delegated.get()) ? delegateLock : getReadWriteLock();
+   }
+
+   private <T> T call(LockMode mode, Callable<T> task)
+   {
+      try
+      {
+         return task.call();
       }
       catch (RuntimeException e)
       {
@@ -62,11 +328,91 @@ public class LockManagerImpl implements LockManager
       {
          throw new ContainerException("Failed to execute task in LockMode [" + mode + "]", e);
       }
-      finally
+   }
+
+   /**
+    * Wrap the given task so that it may run on another {@link Thread} on behalf of the current {@link Thread}, which
+    * must hold the {@link LockMode#WRITE} lock and keep holding it until the task has completed. Locks requested by a
+    * delegated task are taken from a lock shared only with other delegated tasks, so they do not block on the lock
+    * already held by the caller.
+    */
+   public <T> Callable<T> delegate(final Callable<T> task)
+   {
+      Assert.notNull(task, "Task to delegate must not be null.");
+      if (!getReadWriteLock().isWriteLockedByCurrentThread())
+         throw new IllegalStateException("Only the thread holding the WRITE lock may delegate tasks.");
+
+      return new Callable<T>()
       {
-         lock.unlock();
-      }
-      return result;
+         @Override
+         public T call() throws Exception
+         {
+            Boolean previous = delegated.get();
+            delegated.set(Boolean.TRUE);
+            try
+            {
+               return task.call();
+            }
+            finally
+            {
+               if (previous == null)
+                  delegated.remove();
+               else
+                  delegated.set(previous);
+            }
+         }
+      };
    }
 
+   private static class Stripe implements Comparable<Stripe>
+   {
+      private static final int KIND_VIEW = 0;
+      private static final int KIND_REPOSITORY = 1;
+      private static final int KIND_OTHER = 2;
+
+      private final int kind;
+      private final String key;
+      /**
+       * Only breaks ties between distinct stripes with the same kind and key.
+       */
+      private final long sequence;
+      private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+      public Stripe(Object stripe, long sequence)
+      {
+         if (stripe instanceof AddonView)
+         {
+            this.kind = KIND_VIEW;
+            this.key = ((AddonView) stripe).getName() + "@" + Integer.toHexString(System.identityHashCode(stripe));
+         }
+         else if (stripe instanceof File)
+         {
+            this.kind = KIND_REPOSITORY;
+            this.key = ((File) stripe).getAbsolutePath();
+         }
+         else
+         {
+            this.kind = KIND_OTHER;
+            this.key = String.valueOf(stripe);
+         }
+         this.sequence = sequence;
+      }
+
+      @Override
+      public int compareTo(Stripe other)
+      {
+         if (kind != other.kind)
+            return kind < other.kind ? -1 : 1;
+         int result = key.compareTo(other.key);
+         if (result == 0)
+            result = Long.compare(sequence, other.sequence);
+         return result;
+      }
+
+      @Override
+      public String toString()
+      {
+         return key;
+      }
+   }
 }
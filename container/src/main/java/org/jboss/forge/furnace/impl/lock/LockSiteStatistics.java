@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.lock;
+
+import java.beans.ConstructorProperties;
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the lock usage of a single call site in a single lock mode. Histograms are indexed by the
+ * binary logarithm of the duration in nanoseconds: bucket <code>i</code> counts durations in
+ * <code>[2<sup>i</sup>, 2<sup>i+1</sup>)</code>, bucket <code>0</code> also counts zero.
+ */
+public class LockSiteStatistics
+{
+   private final String site;
+   private final String mode;
+   private final long count;
+   private final long totalWaitNanos;
+   private final long maxWaitNanos;
+   private final long[] waitHistogram;
+   private final long totalHoldNanos;
+   private final long maxHoldNanos;
+   private final long[] holdHistogram;
+   private final long totalQueueLength;
+   private final int maxQueueLength;
+
+   @ConstructorProperties({ "site", "mode", "count", "totalWaitNanos", "maxWaitNanos", "waitHistogram",
+            "totalHoldNanos", "maxHoldNanos", "holdHistogram", "totalQueueLength", "maxQueueLength" })
+   public LockSiteStatistics(String site, String mode, long count, long totalWaitNanos, long maxWaitNanos,
+            long[] waitHistogram, long totalHoldNanos, long maxHoldNanos, long[] holdHistogram,
+            long totalQueueLength, int maxQueueLength)
+   {
+      this.site = site;
+      this.mode = mode;
+      this.count = count;
+      this.totalWaitNanos = totalWaitNanos;
+      this.maxWaitNanos = maxWaitNanos;
+      this.waitHistogram = waitHistogram.clone();
+      this.totalHoldNanos = totalHoldNanos;
+      this.maxHoldNanos = maxHoldNanos;
+      this.holdHistogram = holdHistogram.clone();
+      this.totalQueueLength = totalQueueLength;
+      this.maxQueueLength = maxQueueLength;
+   }
+
+   /**
+    * Get the calling class and method, as <code>class#method</code>.
+    */
+   public String getSite()
+   {
+      return site;
+   }
+
+   /**
+    * Get the name of the {@link org.jboss.forge.furnace.lock.LockMode}.
+    */
+   public String getMode()
+   {
+      return mode;
+   }
+
+   /**
+    * Get the number of times the lock was acquired.
+    */
+   public long getCount()
+   {
+      return count;
+   }
+
+   public long getTotalWaitNanos()
+   {
+      return totalWaitNanos;
+   }
+
+   public long getMaxWaitNanos()
+   {
+      return maxWaitNanos;
+   }
+
+   public long[] getWaitHistogram()
+   {
+      return waitHistogram.clone();
+   }
+
+   public long getTotalHoldNanos()
+   {
+      return totalHoldNanos;
+   }
+
+   public long getMaxHoldNanos()
+   {
+      return maxHoldNanos;
+   }
+
+   public long[] getHoldHistogram()
+   {
+      return holdHistogram.clone();
+   }
+
+   /**
+    * Get the sum of the number of threads found waiting for the lock at each acquisition.
+    */
+   public long getTotalQueueLength()
+   {
+      return totalQueueLength;
+   }
+
+   public int getMaxQueueLength()
+   {
+      return maxQueueLength;
+   }
+
+   @Override
+   public String toString()
+   {
+      return site + " [" + mode + "] count=" + count + ", wait=" + totalWaitNanos + "ns (max " + maxWaitNanos
+               + "ns), hold=" + totalHoldNanos + "ns (max " + maxHoldNanos + "ns), queue max=" + maxQueueLength
+               + ", hold histogram=" + Arrays.toString(holdHistogram);
+   }
+}
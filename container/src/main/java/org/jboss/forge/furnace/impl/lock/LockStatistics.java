@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.lock;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+
+/**
+ * Records, per call site and {@link LockMode}, how long threads waited for and held the locks of a
+ * {@link LockManagerImpl}, and how many threads were queued when they asked. Enabled by setting the
+ * {@value #LOCK_STATISTICS_PROPERTY} system property to <code>true</code>, since finding the call site requires a stack
+ * trace for every acquisition.
+ */
+public class LockStatistics implements LockStatisticsMXBean
+{
+   public static final String LOCK_STATISTICS_PROPERTY = "furnace.lock.statistics";
+
+   /**
+    * Hold time in milliseconds above which lock holders are logged along with their stack. Defaults to
+    * <code>1000</code>, <code>0</code> disables logging.
+    */
+   public static final String LOCK_SLOW_THRESHOLD_PROPERTY = "furnace.lock.slow_threshold";
+
+   /**
+    * The name of the MXBean, qualified with an <code>id</code> key when several containers run in the same JVM.
+    */
+   public static final String OBJECT_NAME = "org.jboss.forge.furnace:type=LockStatistics";
+
+   private static final Logger logger = Logger.getLogger(LockStatistics.class.getName());
+
+   private static final int BUCKETS = 64;
+
+   private final Map<String, Site> sites = new ConcurrentHashMap<>();
+
+   private volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong(
+            LOCK_SLOW_THRESHOLD_PROPERTY, 1000));
+
+   private ObjectName objectName;
+
+   public static boolean isEnabled()
+   {
+      return Boolean.getBoolean(LOCK_STATISTICS_PROPERTY);
+   }
+
+   /**
+    * Capture the stack of the current thread, to be passed back to {@link #record(StackTraceElement[], LockMode,
+    * long, long, int)} once the lock has been released.
+    */
+   StackTraceElement[] captureStack()
+   {
+      return new Throwable().getStackTrace();
+   }
+
+   void record(StackTraceElement[] stack, LockMode mode, long waitNanos, long holdNanos, int queueLength)
+   {
+      String site = getCallSite(stack);
+      String key = site + "|" + mode;
+      Site statistics = sites.get(key);
+      if (statistics == null)
+      {
+         Site created = new Site(site, mode);
+         statistics = sites.putIfAbsent(key, created);
+         if (statistics == null)
+            statistics = created;
+      }
+      statistics.record(waitNanos, holdNanos, queueLength);
+
+      long threshold = slowThresholdNanos;
+      if (threshold > 0 && holdNanos >= threshold)
+      {
+         Throwable trace = new Throwable("Lock acquired at");
+         trace.setStackTrace(stack);
+         logger.log(Level.WARNING, "Thread [" + Thread.currentThread().getName() + "] held " + mode + " lock for "
+                  + TimeUnit.NANOSECONDS.toMillis(holdNanos) + "ms in [" + site + "] after waiting "
+                  + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms.", trace);
+      }
+   }
+
+   /**
+    * Get a snapshot of the statistics of every call site and lock mode recorded so far.
+    */
+   public List<LockSiteStatistics> getSnapshot()
+   {
+      List<LockSiteStatistics> result = new ArrayList<>();
+      for (Site site : sites.values())
+      {
+         result.add(site.snapshot());
+      }
+      return result;
+   }
+
+   @Override
+   public List<LockSiteStatistics> getSites()
+   {
+      return getSnapshot();
+   }
+
+   @Override
+   public long getSlowThresholdMillis()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+   }
+
+   @Override
+   public void setSlowThresholdMillis(long threshold)
+   {
+      this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(threshold);
+   }
+
+   @Override
+   public void reset()
+   {
+      sites.clear();
+   }
+
+   /**
+    * Register this instance with the platform {@link MBeanServer} as {@value #OBJECT_NAME}. If another container in
+    * the same JVM already holds that name, an <code>id</code> key identifying the given owner is added.
+    */
+   synchronized void register(Object owner)
+   {
+      if (objectName != null)
+         return;
+      try
+      {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName name = new ObjectName(OBJECT_NAME);
+         try
+         {
+            server.registerMBean(this, name);
+         }
+         catch (InstanceAlreadyExistsException e)
+         {
+            name = new ObjectName(OBJECT_NAME + ",id=" + Integer.toHexString(System.identityHashCode(owner)));
+            server.registerMBean(this, name);
+         }
+         objectName = name;
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Could not register lock statistics MBean.", e);
+      }
+   }
+
+   /**
+    * Get the name this instance is registered under, or <code>null</code> if it is not registered.
+    */
+   synchronized ObjectName getObjectName()
+   {
+      return objectName;
+   }
+
+   synchronized void unregister()
+   {
+      if (objectName == null)
+         return;
+      try
+      {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      }
+      catch (Exception e)
+      {
+         logger.log(Level.FINE, "Could not unregister lock statistics MBean.", e);
+      }
+      objectName = null;
+   }
+
+   /**
+    * Find the first frame outside of the lock implementation.
+    */
+   private static String getCallSite(StackTraceElement[] stack)
+   {
+      for (StackTraceElement frame : stack)
+      {
+         String className = frame.getClassName();
+         if (!className.equals(LockManagerImpl.class.getName())
+                  && !className.startsWith(LockManagerImpl.class.getName() + "$")
+                  && !className.equals(LockStatistics.class.getName())
+                  && !className.equals(LockManager.class.getName()))
+            return className + "#" + frame.getMethodName();
+      }
+      return "unknown";
+   }
+
+   private static int bucket(long nanos)
+   {
+      return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+   }
+
+   private static class Site
+   {
+      private final String site;
+      private final LockMode mode;
+      private final AtomicLongArray waitHistogram = new AtomicLongArray(BUCKETS);
+      private final AtomicLongArray holdHistogram = new AtomicLongArray(BUCKETS);
+      private long count;
+      private long totalWaitNanos;
+      private long maxWaitNanos;
+      private long totalHoldNanos;
+      private long maxHoldNanos;
+      private long totalQueueLength;
+      private int maxQueueLength;
+
+      public Site(String site, LockMode mode)
+      {
+         this.site = site;
+         this.mode = mode;
+      }
+
+      public void record(long waitNanos, long holdNanos, int queueLength)
+      {
+         waitHistogram.incrementAndGet(bucket(waitNanos));
+         holdHistogram.incrementAndGet(bucket(holdNanos));
+         synchronized (this)
+         {
+            count++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            totalHoldNanos += holdNanos;
+            maxHoldNanos = Math.max(maxHoldNanos, holdNanos);
+            totalQueueLength += queueLength;
+            maxQueueLength = Math.max(maxQueueLength, queueLength);
+         }
+      }
+
+      public synchronized LockSiteStatistics snapshot()
+      {
+         return new LockSiteStatistics(site, mode.name(), count, totalWaitNanos, maxWaitNanos,
+                  toArray(waitHistogram), totalHoldNanos, maxHoldNanos, toArray(holdHistogram), totalQueueLength,
+                  maxQueueLength);
+      }
+
+      private static long[] toArray(AtomicLongArray histogram)
+      {
+         long[] result = new long[histogram.length()];
+         for (int i = 0; i < result.length; i++)
+         {
+            result[i] = histogram.get(i);
+         }
+         return result;
+      }
+   }
+}
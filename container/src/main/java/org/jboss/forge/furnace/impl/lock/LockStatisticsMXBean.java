@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.lock;
+
+import java.util.List;
+
+/**
+ * JMX view of the {@link LockStatistics} recorded by a {@link LockManagerImpl}.
+ */
+public interface LockStatisticsMXBean
+{
+   /**
+    * Get the statistics of every call site and lock mode recorded so far.
+    */
+   List<LockSiteStatistics> getSites();
+
+   /**
+    * Get the hold time in milliseconds above which lock holders are logged, or <code>0</code> if disabled.
+    */
+   long getSlowThresholdMillis();
+
+   void setSlowThresholdMillis(long threshold);
+
+   /**
+    * Discard all recorded statistics.
+    */
+   void reset();
+}
@@ -54,14 +54,7 @@ class AddonModuleJarFileCache
       Assert.notNull(file, "JarFile reference must not be null.");
 
       logger.log(Level.FINE, "Adding JarFile [" + file.getName() + "] for module [" + id + "]");
-      Set<JarFile> files = map.get(id);
-      if (files == null)
-      {
-         files = Sets.getConcurrentSet();
-         map.put(id, files);
-      }
-
-      files.add(file);
+      map.computeIfAbsent(id, (key) -> Sets.getConcurrentSet()).add(file);
    }
 
    public void dispose()
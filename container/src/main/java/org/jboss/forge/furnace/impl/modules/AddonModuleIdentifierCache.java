@@ -6,11 +6,11 @@
  */
 package org.jboss.forge.furnace.impl.modules;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.addons.AddonId;
@@ -22,7 +22,7 @@ import org.jboss.modules.ModuleIdentifier;
  */
 class AddonModuleIdentifierCache
 {
-   private final Map<Addon, ModuleIdentifier> map = new HashMap<Addon, ModuleIdentifier>();
+   private final Map<Addon, ModuleIdentifier> map = new ConcurrentHashMap<Addon, ModuleIdentifier>();
 
    public void clear(Addon addon)
    {
@@ -36,9 +36,8 @@ class AddonModuleIdentifierCache
 
    public ModuleIdentifier getModuleId(Addon addon)
    {
-      if (!map.containsKey(addon))
-         map.put(addon, ModuleIdentifier.fromString(toModuleId(addon.getId()) + "_" + UUID.randomUUID().toString()));
-      return map.get(addon);
+      return map.computeIfAbsent(addon,
+               (key) -> ModuleIdentifier.fromString(toModuleId(key.getId()) + "_" + UUID.randomUUID().toString()));
    }
 
    private String toModuleId(AddonId id)
@@ -9,6 +9,7 @@ package org.jboss.forge.furnace.impl.modules;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.ServiceLoader;
@@ -130,10 +131,22 @@ public class AddonModuleLoader extends ModuleLoader
       return result;
    }
 
-   private Iterable<ModuleSpecProvider> getModuleProviders()
+   /**
+    * Addon modules may be loaded concurrently, so the {@link ServiceLoader} (which is not thread-safe) is only iterated
+    * once.
+    */
+   private synchronized Iterable<ModuleSpecProvider> getModuleProviders()
    {
       if (moduleProviders == null)
-         moduleProviders = ServiceLoader.load(ModuleSpecProvider.class, furnace.getRuntimeClassLoader());
+      {
+         List<ModuleSpecProvider> providers = new ArrayList<>();
+         for (ModuleSpecProvider provider : ServiceLoader.load(ModuleSpecProvider.class,
+                  furnace.getRuntimeClassLoader()))
+         {
+            providers.add(provider);
+         }
+         moduleProviders = Collections.unmodifiableList(providers);
+      }
       return moduleProviders;
    }
 
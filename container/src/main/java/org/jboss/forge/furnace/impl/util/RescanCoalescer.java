@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.forge.furnace.util.Assert;
+
+/**
+ * Merges bursts of change notifications into a single rescan. Each call to {@link #markDirty(long)} (re)starts a quiet
+ * period; the rescan becomes {@link #isDue(long) due} once no further change has been reported for that long.
+ * <p>
+ * Not thread-safe, except for the statistics getters; callers are expected to serialize the other methods.
+ */
+public class RescanCoalescer
+{
+   private volatile long quietPeriodNanos;
+
+   private boolean pending;
+   private long deadline;
+
+   private final AtomicLong rescans = new AtomicLong();
+   private final AtomicLong mergedRescans = new AtomicLong();
+
+   public RescanCoalescer(long quietPeriod, TimeUnit unit)
+   {
+      setQuietPeriod(quietPeriod, unit);
+   }
+
+   /**
+    * Set the period without changes that must elapse before a pending rescan becomes due. Zero disables coalescing.
+    */
+   public void setQuietPeriod(long quietPeriod, TimeUnit unit)
+   {
+      Assert.isTrue(quietPeriod >= 0, "Quiet period must not be negative.");
+      this.quietPeriodNanos = unit.toNanos(quietPeriod);
+   }
+
+   public long getQuietPeriod(TimeUnit unit)
+   {
+      return unit.convert(quietPeriodNanos, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Record a change observed at the given {@link System#nanoTime()}, postponing a pending rescan if there is one.
+    */
+   public void markDirty(long now)
+   {
+      if (pending)
+         mergedRescans.incrementAndGet();
+      pending = true;
+      deadline = now + quietPeriodNanos;
+   }
+
+   /**
+    * Returns <code>true</code> if a rescan is pending.
+    */
+   public boolean isPending()
+   {
+      return pending;
+   }
+
+   /**
+    * Returns <code>true</code> if a rescan is pending and its quiet period has elapsed at the given
+    * {@link System#nanoTime()}.
+    */
+   public boolean isDue(long now)
+   {
+      return pending && now - deadline >= 0;
+   }
+
+   /**
+    * Get the time in milliseconds until a pending rescan becomes due, at least <code>1</code>; or <code>0</code> if no
+    * rescan is pending.
+    */
+   public long getRemainingMillis(long now)
+   {
+      if (!pending)
+         return 0;
+      long remaining = deadline - now;
+      return Math.max(1, (remaining + 999_999) / 1_000_000);
+   }
+
+   /**
+    * Record that the pending rescan has been performed.
+    */
+   public void rescanned()
+   {
+      pending = false;
+      rescans.incrementAndGet();
+   }
+
+   /**
+    * Get the number of rescans performed.
+    */
+   public long getRescanCount()
+   {
+      return rescans.get();
+   }
+
+   /**
+    * Get the number of change notifications that were merged into an already pending rescan.
+    */
+   public long getMergedRescanCount()
+   {
+      return mergedRescans.get();
+   }
+}
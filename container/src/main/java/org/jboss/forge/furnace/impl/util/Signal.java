@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A generation counter that threads may block on until it is advanced. Waiters record the current
+ * {@link #getGeneration()} before inspecting shared state, then call {@link #await(long, long, TimeUnit)} with that
+ * value, so that no {@link #signal()} issued in between can be missed.
+ */
+public class Signal
+{
+   private final ReentrantLock lock = new ReentrantLock();
+   private final Condition changed = lock.newCondition();
+   private long generation = 0;
+
+   /**
+    * Advance the generation and wake up all waiting threads.
+    */
+   public void signal()
+   {
+      lock.lock();
+      try
+      {
+         generation++;
+         changed.signalAll();
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Get the current generation of this {@link Signal}.
+    */
+   public long getGeneration()
+   {
+      lock.lock();
+      try
+      {
+         return generation;
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Block until the generation differs from the given value, or the given timeout elapses. A timeout less than or
+    * equal to zero waits indefinitely. Returns <code>true</code> if the generation was advanced.
+    */
+   public boolean await(long seenGeneration, long timeout, TimeUnit unit) throws InterruptedException
+   {
+      lock.lock();
+      try
+      {
+         if (timeout <= 0)
+         {
+            while (generation == seenGeneration)
+               changed.await();
+         }
+         else
+         {
+            long remaining = unit.toNanos(timeout);
+            while (generation == seenGeneration && remaining > 0)
+               remaining = changed.awaitNanos(remaining);
+         }
+         return generation != seenGeneration;
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates virtual threads when running on a JDK that supports them, and platform threads otherwise. Virtual threads are
+ * looked up reflectively so that Furnace still runs on older JDKs.
+ */
+public final class VirtualThreads
+{
+   private static final Logger logger = Logger.getLogger(VirtualThreads.class.getName());
+
+   private static final Method OF_VIRTUAL;
+   private static final Method BUILDER_NAME;
+   private static final Method BUILDER_UNSTARTED;
+   private static final Method NEW_VIRTUAL_EXECUTOR;
+
+   static
+   {
+      Method ofVirtual = null;
+      Method name = null;
+      Method unstarted = null;
+      Method executor = null;
+      try
+      {
+         Class<?> builder = Class.forName("java.lang.Thread$Builder");
+         ofVirtual = Thread.class.getMethod("ofVirtual");
+         name = builder.getMethod("name", String.class);
+         unstarted = builder.getMethod("unstarted", Runnable.class);
+         executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+         // Fails on JDKs where virtual threads are a preview feature that has not been enabled
+         ofVirtual.invoke(null);
+      }
+      catch (Throwable e)
+      {
+         logger.log(Level.FINE, "Virtual threads are not supported by this JDK.", e);
+         ofVirtual = null;
+      }
+      OF_VIRTUAL = ofVirtual;
+      BUILDER_NAME = name;
+      BUILDER_UNSTARTED = unstarted;
+      NEW_VIRTUAL_EXECUTOR = executor;
+   }
+
+   private VirtualThreads()
+   {
+   }
+
+   /**
+    * Returns <code>true</code> if virtual threads are available in this JVM.
+    */
+   public static boolean isSupported()
+   {
+      return OF_VIRTUAL != null;
+   }
+
+   /**
+    * Create a new unstarted {@link Thread} with the given name. The thread is virtual if requested and supported.
+    */
+   public static Thread newThread(String name, Runnable runnable, boolean virtual)
+   {
+      if (virtual && isSupported())
+      {
+         try
+         {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+            return (Thread) BUILDER_UNSTARTED.invoke(builder, runnable);
+         }
+         catch (Exception e)
+         {
+            logger.log(Level.WARNING, "Could not create virtual thread [" + name + "], using a platform thread.", e);
+         }
+      }
+      return new Thread(runnable, name);
+   }
+
+   /**
+    * Create a {@link ThreadFactory} naming its threads with the given prefix and a sequence number.
+    */
+   public static ThreadFactory newThreadFactory(final String prefix, final boolean virtual)
+   {
+      final AtomicInteger count = new AtomicInteger();
+      return new ThreadFactory()
+      {
+         @Override
+         public Thread newThread(Runnable runnable)
+         {
+            return VirtualThreads.newThread(prefix + " " + count.incrementAndGet(), runnable, virtual);
+         }
+      };
+   }
+
+   /**
+    * Create an {@link ExecutorService} that starts a new virtual thread for each task, or <code>null</code> if virtual
+    * threads are not supported.
+    */
+   public static ExecutorService newThreadPerTaskExecutor()
+   {
+      if (isSupported())
+      {
+         try
+         {
+            return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+         }
+         catch (Exception e)
+         {
+            logger.log(Level.WARNING, "Could not create virtual thread executor.", e);
+         }
+      }
+      return null;
+   }
+}
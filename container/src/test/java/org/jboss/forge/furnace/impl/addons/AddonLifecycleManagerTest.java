@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.event.PostStartupBatch;
+import org.jboss.forge.furnace.event.PreShutdownBatch;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.graph.AddonVertex;
+import org.jboss.forge.furnace.impl.graph.MasterGraph;
+import org.jboss.forge.furnace.lock.LockManager;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.mock.MockAddon;
+import org.jboss.forge.furnace.mock.MockAddonRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonLifecycleManagerTest
+{
+   @Test
+   public void testDiamondIsLoadedInDependencyOrder() throws Exception
+   {
+      final MockAddon base = new MockAddon("base");
+      final MockAddon left = new MockAddon("left");
+      final MockAddon right = new MockAddon("right");
+      final MockAddon top = new MockAddon("top");
+
+      final List<Addon> loaded = new CopyOnWriteArrayList<>();
+      final Set<Thread> threads = new CopyOnWriteArraySet<>();
+      FurnaceImpl furnace = new FurnaceImpl();
+      final AddonLifecycleManager manager = new AddonLifecycleManager(furnace)
+      {
+         @Override
+         public void loadAddon(Addon addon)
+         {
+            threads.add(Thread.currentThread());
+            if (addon == base)
+            {
+               // Give dependents a chance to run early if they were not waiting
+               sleep(100);
+            }
+            loaded.add(addon);
+            ((MockAddon) addon).setStatus(AddonStatus.LOADED);
+         }
+      };
+
+      try
+      {
+         furnace.getLockManager().performLocked(LockMode.WRITE, () -> {
+            CompletableFuture<Void> baseLoad = manager.loadAddonAsync(base,
+                     Collections.<CompletableFuture<Void>> emptyList());
+            CompletableFuture<Void> leftLoad = manager.loadAddonAsync(left, Arrays.asList(baseLoad));
+            CompletableFuture<Void> rightLoad = manager.loadAddonAsync(right, Arrays.asList(baseLoad));
+            CompletableFuture<Void> topLoad = manager.loadAddonAsync(top, Arrays.asList(leftLoad, rightLoad));
+            topLoad.get(5, TimeUnit.SECONDS);
+            return null;
+         });
+      }
+      finally
+      {
+         manager.dispose();
+      }
+
+      Assert.assertEquals(4, loaded.size());
+      Assert.assertEquals(base, loaded.get(0));
+      Assert.assertTrue(loaded.indexOf(left) < loaded.indexOf(top));
+      Assert.assertTrue(loaded.indexOf(right) < loaded.indexOf(top));
+      Assert.assertFalse("Addons must be loaded on the loading pool", threads.contains(Thread.currentThread()));
+   }
+
+   @Test
+   public void testUpdatingOneViewDoesNotBlockAnother() throws Exception
+   {
+      final FurnaceImpl furnace = new FurnaceImpl();
+      final AddonLifecycleManager manager = new AddonLifecycleManager(furnace);
+      final LockManager lock = furnace.getLockManager();
+      final AddonView updated = new MockAddonRegistry();
+      final AddonView other = new MockAddonRegistry();
+      final AddonId id = AddonId.from("addon", "1.0");
+      final CountDownLatch updating = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+
+      // Holds the locks a hot swap of the updated view holds while it resolves the addons of that view
+      Thread update = new Thread(() -> lock.performLocked(LockMode.WRITE,
+               () -> lock.performLocked(updated, LockMode.WRITE, () -> {
+                  updating.countDown();
+                  return release.await(30, TimeUnit.SECONDS);
+               })));
+      update.start();
+      try
+      {
+         Assert.assertTrue(updating.await(5, TimeUnit.SECONDS));
+         ExecutorService executor = Executors.newSingleThreadExecutor();
+         try
+         {
+            Addon addon = executor.submit(() -> manager.getAddon(other, id)).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(id, addon.getId());
+            Assert.assertSame(addon, manager.getAddon(other, id));
+         }
+         finally
+         {
+            executor.shutdownNow();
+         }
+      }
+      finally
+      {
+         release.countDown();
+         update.join();
+         manager.dispose();
+      }
+   }
+
+   @Test
+   public void testPostStartupBatchIsDeliveredOncePerView() throws Exception
+   {
+      final FurnaceImpl furnace = new FurnaceImpl();
+      final AddonLifecycleManager manager = new AddonLifecycleManager(furnace);
+      final MockAddonRegistry first = new MockAddonRegistry();
+      final MockAddonRegistry second = new MockAddonRegistry();
+      final Map<Addon, List<Object>> received = new ConcurrentHashMap<>();
+      try
+      {
+         MasterGraph graph = new MasterGraph();
+         MockAddon shared = addon(manager, graph, received, "shared", first, second);
+         MockAddon local = addon(manager, graph, received, "local", first);
+         MockAddon remote = addon(manager, graph, received, "remote", second);
+         manager.getStateManager().setCurrentGraph(graph);
+         publish(manager, graph, shared, local, remote);
+
+         manager.addonStarted(shared);
+         manager.addonStarted(local);
+         manager.finishedStarting(shared);
+         manager.finishedStarting(local);
+
+         Assert.assertEquals(Arrays.asList(Arrays.asList(shared, local), Arrays.asList(shared)),
+                  sortedBatches(received.get(shared)));
+         Assert.assertEquals(Arrays.asList(Arrays.asList(shared, local)), sortedBatches(received.get(local)));
+         Assert.assertEquals(Arrays.asList(Arrays.asList(shared)), sortedBatches(received.get(remote)));
+      }
+      finally
+      {
+         manager.dispose();
+      }
+   }
+
+   @Test
+   public void testFailingObserverDoesNotStopPreShutdownBatch() throws Exception
+   {
+      final FurnaceImpl furnace = new FurnaceImpl();
+      final AddonLifecycleManager manager = new AddonLifecycleManager(furnace);
+      final MockAddonRegistry view = new MockAddonRegistry();
+      final Map<Addon, List<Object>> received = new ConcurrentHashMap<>();
+      final List<LogRecord> logged = new CopyOnWriteArrayList<>();
+      Handler handler = new Handler()
+      {
+         @Override
+         public void publish(LogRecord record)
+         {
+            logged.add(record);
+         }
+
+         @Override
+         public void flush()
+         {
+         }
+
+         @Override
+         public void close()
+         {
+         }
+      };
+      Logger logger = Logger.getLogger(AddonLifecycleManager.class.getName());
+      logger.addHandler(handler);
+      try
+      {
+         MasterGraph graph = new MasterGraph();
+         MockAddon failing = addon(manager, graph, received, "failing", view);
+         MockAddon stopping = addon(manager, graph, received, "stopping", view);
+         MockAddon observer = addon(manager, graph, received, "observer", view);
+         failing.setEventManager((event, qualifiers) -> {
+            throw new IllegalStateException("Observer failed");
+         });
+         manager.getStateManager().setCurrentGraph(graph);
+         publish(manager, graph, failing, stopping, observer);
+
+         manager.fireStopping(Arrays.<Addon> asList(stopping));
+
+         Assert.assertEquals(1, received.get(stopping).size());
+         Assert.assertEquals(1, received.get(observer).size());
+         PreShutdownBatch batch = (PreShutdownBatch) received.get(observer).get(0);
+         Assert.assertEquals(Arrays.asList(stopping), batch.getAddons());
+
+         Assert.assertEquals(1, logged.size());
+         Assert.assertEquals(Level.WARNING, logged.get(0).getLevel());
+         Assert.assertTrue(logged.get(0).getThrown() instanceof IllegalStateException);
+         Assert.assertTrue(logged.get(0).getMessage().contains(failing.getId().toString()));
+      }
+      finally
+      {
+         logger.removeHandler(handler);
+         manager.dispose();
+      }
+   }
+
+   /**
+    * Create a started {@link MockAddon} in the given views that records the events it receives.
+    */
+   private static MockAddon addon(AddonLifecycleManager manager, MasterGraph graph,
+            final Map<Addon, List<Object>> received, String name, MockAddonRegistry... views)
+   {
+      final MockAddon addon = new MockAddon(AddonId.from(name, "1.0"));
+      addon.setStatus(AddonStatus.STARTED);
+      received.put(addon, new CopyOnWriteArrayList<>());
+      addon.setEventManager((event, qualifiers) -> received.get(addon).add(event));
+
+      AddonVertex vertex = new AddonVertex(name, addon.getId().getVersion());
+      for (MockAddonRegistry view : views)
+      {
+         view.add(addon);
+         manager.addView(view);
+         vertex = new AddonVertex(vertex, view);
+      }
+      graph.getGraph().addVertex(vertex);
+      return addon;
+   }
+
+   private static void publish(AddonLifecycleManager manager, MasterGraph graph, Addon... addons)
+   {
+      for (Addon addon : addons)
+      {
+         for (AddonVertex vertex : graph.getGraph().vertexSet())
+         {
+            if (vertex.getName().equals(addon.getId().getName()))
+               manager.setAddon(vertex, addon);
+         }
+      }
+   }
+
+   /**
+    * The addons of each {@link PostStartupBatch}, largest batch first.
+    */
+   private static List<List<Addon>> sortedBatches(List<Object> events)
+   {
+      List<List<Addon>> result = new ArrayList<>();
+      for (Object event : events)
+      {
+         result.add(((PostStartupBatch) event).getAddons());
+      }
+      Collections.sort(result, (left, right) -> right.size() - left.size());
+      return result;
+   }
+
+   private static void sleep(long millis)
+   {
+      try
+      {
+         Thread.sleep(millis);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
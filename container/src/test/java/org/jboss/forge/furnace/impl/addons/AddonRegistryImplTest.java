@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.mock.MockInterface;
+import org.jboss.forge.furnace.mock.MockLockManager;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.services.Imported;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonRegistryImplTest
+{
+   private final FurnaceImpl furnace = new FurnaceImpl();
+   private final AtomicLong version = new AtomicLong();
+   private final AddonLifecycleManager manager = new AddonLifecycleManager(furnace)
+   {
+      @Override
+      public long getVersion(AddonView view)
+      {
+         return version.get();
+      }
+
+      @Override
+      public Set<Addon> getAddons(AddonView view)
+      {
+         return Collections.emptySet();
+      }
+   };
+   private final AddonRegistryImpl registry = new AddonRegistryImpl(new MockLockManager(), manager,
+            Collections.<AddonRepository> singletonList(AddonRepositoryImpl.forDirectory(furnace, new File("target"))),
+            "test");
+
+   @After
+   public void tearDown()
+   {
+      manager.dispose();
+   }
+
+   @Test
+   public void testTypesOfAddonsOutsideTheViewAreEvicted() throws Exception
+   {
+      URL location = MockInterface.class.getProtectionDomain().getCodeSource().getLocation();
+      try (URLClassLoader addonLoader = new URLClassLoader(new URL[] { location }, null))
+      {
+         Class<?> addonType = addonLoader.loadClass(MockInterface.class.getName());
+         Assert.assertNotSame(MockInterface.class, addonType);
+
+         Imported<?> addonServices = registry.getServices(addonType);
+         Imported<String> containerServices = registry.getServices(String.class);
+         Imported<MockInterface> testServices = registry.getServices(MockInterface.class);
+         Assert.assertSame(addonServices, registry.getServices(addonType));
+
+         version.incrementAndGet();
+         Assert.assertSame(containerServices, registry.getServices(String.class));
+         Assert.assertSame(testServices, registry.getServices(MockInterface.class));
+         Assert.assertEquals(2, registry.getServiceCache().size());
+         Assert.assertNotSame(addonServices, registry.getServices(addonType));
+      }
+   }
+}
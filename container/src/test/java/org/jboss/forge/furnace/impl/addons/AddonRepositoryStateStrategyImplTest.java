@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AddonRepositoryStateStrategyImplTest
+{
+   private static final AddonId FIRST = AddonId.from("org.example:first", "1.0.0.Final");
+   private static final AddonId SECOND = AddonId.from("org.example:second", "1.0.0.Final");
+
+   private File dir;
+   private AddonRepositoryStateStrategyImpl repository;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      dir = File.createTempFile("furnace", "state");
+      dir.delete();
+      dir.mkdirs();
+      repository = new AddonRepositoryStateStrategyImpl(new FurnaceImpl(), dir);
+   }
+
+   @After
+   public void tearDown()
+   {
+      Files.delete(dir, true);
+   }
+
+   @Test
+   public void testRegistryIsReplacedWithoutLeavingTemporaryFiles() throws Exception
+   {
+      int version = repository.getVersion();
+      Assert.assertTrue(repository.enable(FIRST));
+
+      Assert.assertEquals(Collections.singletonList(FIRST), repository.listAll());
+      Assert.assertEquals(version + 1, repository.getVersion());
+      Assert.assertEquals(Arrays.asList("installed.xml"), Arrays.asList(dir.list()));
+
+      Assert.assertTrue(repository.disable(FIRST));
+      Assert.assertTrue(repository.listAll().isEmpty());
+      Assert.assertEquals(Arrays.asList("installed.xml"), Arrays.asList(dir.list()));
+   }
+
+   @Test
+   public void testBatchIsWrittenOnceOnCommit() throws Exception
+   {
+      int version = repository.getVersion();
+      repository.beginBatch();
+      repository.enable(FIRST);
+      repository.beginBatch();
+      repository.enable(SECOND);
+      repository.commitBatch();
+
+      Assert.assertTrue("Changes must not be visible before the outermost commit", repository.listAll().isEmpty());
+      Assert.assertEquals(version, repository.getVersion());
+
+      repository.commitBatch();
+      Assert.assertEquals(Arrays.asList(FIRST, SECOND), repository.listAll());
+      Assert.assertEquals(version + 1, repository.getVersion());
+   }
+
+   @Test
+   public void testRollbackDiscardsOnlyInnermostBatch() throws Exception
+   {
+      repository.beginBatch();
+      repository.enable(FIRST);
+      repository.beginBatch();
+      repository.enable(SECOND);
+      repository.rollbackBatch();
+      repository.commitBatch();
+
+      Assert.assertEquals(Collections.singletonList(FIRST), repository.listAll());
+      try
+      {
+         repository.rollbackBatch();
+         Assert.fail("No batch should be in progress");
+      }
+      catch (IllegalStateException e)
+      {
+         // expected
+      }
+   }
+
+   @Test
+   public void testBatchIsScopedToCallingThread() throws Exception
+   {
+      repository.beginBatch();
+      repository.enable(FIRST);
+
+      Thread other = new Thread(() -> repository.enable(SECOND));
+      other.start();
+      other.join(5000);
+
+      Assert.assertEquals("Changes of other threads are written immediately", Collections.singletonList(SECOND),
+               repository.listAll());
+
+      repository.commitBatch();
+      Assert.assertEquals(new HashSet<>(Arrays.asList(FIRST, SECOND)), new HashSet<>(repository.listAll()));
+   }
+
+   @Test
+   public void testMalformedRegistryIsNotRetriedForever() throws Exception
+   {
+      java.nio.file.Files.write(new File(dir, "installed.xml").toPath(), "<installed><addon".getBytes());
+      try
+      {
+         repository.listAll();
+         Assert.fail("Malformed registry should be reported");
+      }
+      catch (RuntimeException e)
+      {
+         Assert.assertTrue(e.getMessage().contains("Invalid syntax"));
+      }
+   }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.mock.MockAddon;
+import org.jboss.forge.furnace.mock.MockLockManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonStartTaskTest
+{
+   private final FurnaceImpl furnace = new FurnaceImpl();
+   private final List<Addon> finished = new CopyOnWriteArrayList<>();
+   private final AddonLifecycleManager lifecycleManager = new AddonLifecycleManager(furnace)
+   {
+      @Override
+      public void finishedStarting(Addon addon)
+      {
+         finished.add(addon);
+      }
+   };
+
+   @After
+   public void tearDown()
+   {
+      lifecycleManager.dispose();
+   }
+
+   @Test
+   public void testReadyTasksRunByPriority() throws Exception
+   {
+      final List<Integer> order = new CopyOnWriteArrayList<>();
+      final CountDownLatch release = new CountDownLatch(1);
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+               new PriorityBlockingQueue<Runnable>());
+      try
+      {
+         // Occupy the only thread so that the other tasks are queued
+         executor.execute(new AddonStartTask(lifecycleManager, new MockAddon("blocker"), () -> await(release), 0));
+
+         List<AddonStartTask> tasks = new ArrayList<>();
+         for (final int priority : new int[] { 1, 5, 3 })
+         {
+            AddonStartTask task = new AddonStartTask(lifecycleManager, new MockAddon("addon" + priority),
+                     () -> order.add(priority), priority);
+            tasks.add(task);
+            executor.execute(task);
+         }
+         release.countDown();
+
+         for (AddonStartTask task : tasks)
+         {
+            task.get(5, TimeUnit.SECONDS);
+         }
+         Assert.assertEquals(Arrays.asList(5, 3, 1), order);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testAddonIsSubmittedOnceDependenciesHaveStarted() throws Exception
+   {
+      MockAddon dependency = new MockAddon("dependency").setStatus(AddonStatus.LOADED);
+      AddonStartTask dependencyTask = new AddonStartTask(lifecycleManager, dependency, () -> {
+      }, 0);
+      dependency.setFuture(dependencyTask);
+
+      MockAddon dependent = dependentOn(dependency);
+      RecordingExecutor executor = new RecordingExecutor();
+      AtomicInteger starting = new AtomicInteger();
+      start(dependent, executor, starting);
+
+      Assert.assertEquals(1, starting.get());
+      Assert.assertTrue("Dependent must wait for its dependencies", executor.submitted.isEmpty());
+
+      dependencyTask.run();
+      Assert.assertEquals(1, executor.submitted.size());
+      Assert.assertFalse(((AddonStartTask) executor.submitted.get(0)).isDone());
+   }
+
+   @Test
+   public void testRejectedTaskIsCancelledAndReportedAsFinished() throws Exception
+   {
+      MockAddon dependency = new MockAddon("dependency").setStatus(AddonStatus.LOADED);
+      AddonStartTask dependencyTask = new AddonStartTask(lifecycleManager, dependency, () -> {
+      }, 0);
+      dependency.setFuture(dependencyTask);
+
+      MockAddon dependent = dependentOn(dependency);
+      RecordingExecutor executor = new RecordingExecutor();
+      start(dependent, executor, new AtomicInteger());
+
+      // Shut down while the dependent is still waiting on its dependency
+      executor.shutdown();
+      dependencyTask.run();
+
+      Assert.assertTrue(executor.submitted.isEmpty());
+      Assert.assertTrue(finished.contains(dependent));
+      Assert.assertEquals(1, Collections.frequency(finished, dependent));
+   }
+
+   private MockAddon dependentOn(Addon dependency)
+   {
+      AddonDependency edge = new AddonDependencyImpl(new MockLockManager(), dependency, false, false);
+      return new MockAddon("dependent").setStatus(AddonStatus.LOADED).setDependencies(
+               Collections.singleton(edge));
+   }
+
+   private void start(Addon addon, RecordingExecutor executor, AtomicInteger starting)
+   {
+      new StartEnabledAddonCallable(furnace, lifecycleManager, new AddonStateManager(new MockLockManager()),
+               executor, starting, addon, 0).call();
+   }
+
+   private static void await(CountDownLatch latch)
+   {
+      try
+      {
+         latch.await(5, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Records submitted tasks without running them, and rejects them once shut down.
+    */
+   private static class RecordingExecutor extends AbstractExecutorService
+   {
+      private final List<Runnable> submitted = new CopyOnWriteArrayList<>();
+      private volatile boolean shutdown;
+
+      @Override
+      public void execute(Runnable command)
+      {
+         if (shutdown)
+            throw new RejectedExecutionException();
+         submitted.add(command);
+      }
+
+      @Override
+      public void shutdown()
+      {
+         shutdown = true;
+      }
+
+      @Override
+      public List<Runnable> shutdownNow()
+      {
+         shutdown = true;
+         return new ArrayList<>(submitted);
+      }
+
+      @Override
+      public boolean isShutdown()
+      {
+         return shutdown;
+      }
+
+      @Override
+      public boolean isTerminated()
+      {
+         return shutdown;
+      }
+
+      @Override
+      public boolean awaitTermination(long timeout, TimeUnit unit)
+      {
+         return shutdown;
+      }
+   }
+}
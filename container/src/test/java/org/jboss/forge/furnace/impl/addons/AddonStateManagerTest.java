@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.impl.graph.AddonVertex;
+import org.jboss.forge.furnace.impl.graph.MasterGraph;
+import org.jboss.forge.furnace.impl.lock.LockManagerImpl;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.mock.MockAddonRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonStateManagerTest
+{
+   private static final AddonId SHARED = AddonId.from("shared", "1.0");
+   private static final AddonId LOCAL = AddonId.from("local", "1.0");
+
+   private final LockManagerImpl lock = new LockManagerImpl();
+   private final AddonStateManager manager = new AddonStateManager(lock);
+   private final AddonView first = new MockAddonRegistry();
+   private final AddonView second = new MockAddonRegistry();
+
+   @Test
+   public void testAssignedAddonsArePublished() throws Exception
+   {
+      MasterGraph graph = new MasterGraph();
+      AddonVertex shared = vertex(graph, SHARED, first, second);
+      AddonVertex local = vertex(graph, LOCAL, first);
+      manager.setCurrentGraph(graph);
+      Assert.assertNull(manager.getAddonForView(first, SHARED));
+
+      Addon sharedAddon = new AddonImpl(manager, SHARED);
+      Addon localAddon = new AddonImpl(manager, LOCAL);
+      manager.setAddon(shared, sharedAddon);
+      manager.setAddon(local, localAddon);
+
+      Assert.assertSame(sharedAddon, manager.getAddonForView(first, SHARED));
+      Assert.assertSame(sharedAddon, manager.getAddonForView(second, SHARED));
+      Assert.assertSame(localAddon, manager.getAddonForView(first, LOCAL));
+      Assert.assertNull(manager.getAddonForView(second, LOCAL));
+      Assert.assertEquals(new HashSet<>(Arrays.asList(first, second)), manager.getViewsOf(sharedAddon));
+      Assert.assertEquals(Collections.singleton(first), manager.getViewsOf(localAddon));
+
+      manager.setAddon(local, null);
+      Assert.assertNull(manager.getAddonForView(first, LOCAL));
+      Assert.assertTrue(manager.getViewsOf(localAddon).isEmpty());
+
+      manager.setCurrentGraph(new MasterGraph());
+      Assert.assertNull(manager.getAddonForView(first, SHARED));
+      Assert.assertTrue(manager.getViewsOf(sharedAddon).isEmpty());
+   }
+
+   @Test
+   public void testVertexAddedToCurrentGraphIsPublished() throws Exception
+   {
+      Addon addon = new AddonImpl(manager, LOCAL);
+      MasterGraph last = new MasterGraph();
+      AddonVertex removed = vertex(last, LOCAL, second);
+      manager.setCurrentGraph(last);
+      manager.setAddon(removed, addon);
+
+      MasterGraph graph = new MasterGraph();
+      manager.setCurrentGraph(graph);
+      graph.getGraph().addVertex(removed);
+      manager.setAddon(removed, removed.getAddon());
+
+      Assert.assertSame(addon, manager.getAddonForView(second, LOCAL));
+      Assert.assertEquals(Collections.singleton(second), manager.getViewsOf(addon));
+   }
+
+   @Test
+   public void testLookupsDoNotWaitForWriteLock() throws Exception
+   {
+      MasterGraph graph = new MasterGraph();
+      final AddonVertex vertex = vertex(graph, LOCAL, first);
+      final Addon addon = new AddonImpl(manager, LOCAL);
+      manager.setCurrentGraph(graph);
+      manager.setAddon(vertex, addon);
+
+      final CountDownLatch locked = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      Thread writer = new Thread(() -> lock.performLocked(LockMode.WRITE, () -> {
+         locked.countDown();
+         return release.await(5, TimeUnit.SECONDS);
+      }));
+      writer.start();
+      try
+      {
+         Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+         Assert.assertSame(addon, manager.getAddonForView(first, LOCAL));
+         Assert.assertEquals(Collections.singleton(first), manager.getViewsOf(addon));
+         Assert.assertSame(graph, manager.getCurrentGraph());
+      }
+      finally
+      {
+         release.countDown();
+         writer.join();
+      }
+   }
+
+   private static AddonVertex vertex(MasterGraph graph, AddonId id, AddonView... views)
+   {
+      AddonVertex result = new AddonVertex(id.getName(), id.getVersion());
+      for (AddonView view : views)
+      {
+         result = new AddonVertex(result, view);
+      }
+      graph.getGraph().addVertex(result);
+      return result;
+   }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.FurnaceImpl;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FileSystemDirtyCheckerTest
+{
+   @Test
+   public void testIndexFlushDoesNotMakeRepositoryDirty() throws Exception
+   {
+      File dir = File.createTempFile("furnace", "watch");
+      dir.delete();
+      dir.mkdirs();
+
+      final CountDownLatch changed = new CountDownLatch(1);
+      FileSystemDirtyChecker checker = new FileSystemDirtyChecker(dir, slot -> null);
+      checker.setChangeListener(changed::countDown);
+      try
+      {
+         Assert.assertFalse(checker.isDirty());
+
+         RepositoryIndex index = new RepositoryIndex(dir);
+         index.putInstalled(10, 20, Collections.singletonList(AddonId.from("org.example:addon", "1.0.0.Final")));
+         index.close();
+         Assert.assertTrue(new File(dir, "repository.idx").isFile());
+
+         Assert.assertFalse("Index writes must not notify the container", changed.await(1, TimeUnit.SECONDS));
+         Assert.assertFalse(checker.isDirty());
+
+         // Any other change is still detected
+         java.nio.file.Files.write(new File(dir, "installed.xml").toPath(), new byte[] { 1 });
+         Assert.assertTrue(changed.await(10, TimeUnit.SECONDS));
+         Assert.assertTrue(checker.isDirty());
+      }
+      finally
+      {
+         checker.close();
+         Files.delete(dir, true);
+      }
+   }
+
+   @Test
+   public void testReplacedJarMarksItsAddonDirty() throws Exception
+   {
+      File dir = createTempDirectory();
+      AddonId addon = AddonId.from("org.example:addon", "1.0.0.Final");
+      AddonId other = AddonId.from("org.example:other", "1.0.0.Final");
+      AddonRepositoryImpl repository = (AddonRepositoryImpl) AddonRepositoryImpl.forDirectory(new FurnaceImpl(), dir);
+      repository.enable(addon);
+      repository.enable(other);
+      File slot = repository.getAddonBaseDir(addon);
+      slot.mkdirs();
+      repository.getAddonBaseDir(other).mkdirs();
+      File jar = new File(slot, "addon.jar");
+      java.nio.file.Files.write(jar.toPath(), new byte[] { 1 });
+
+      DirtyChecker checker = repository.createDirtyChecker();
+      try
+      {
+         // Starts watching; the registry version checker may already report the enabled addons
+         checker.isDirty();
+         Assert.assertTrue(checker.pollDirtyAddons().isEmpty());
+
+         Assert.assertTrue(jar.delete());
+         java.nio.file.Files.write(jar.toPath(), new byte[] { 2 });
+
+         Assert.assertEquals(Collections.singleton(addon), awaitDirtyAddons(checker));
+      }
+      finally
+      {
+         checker.close();
+         Files.delete(dir, true);
+      }
+   }
+
+   @Test
+   public void testSlotCreatedAfterStartupIsWatched() throws Exception
+   {
+      File dir = createTempDirectory();
+      AddonId addon = AddonId.from("org.example:addon", "1.0.0.Final");
+      Map<String, AddonId> slots = new ConcurrentHashMap<>();
+      FileSystemDirtyChecker checker = new FileSystemDirtyChecker(dir, slots::get);
+      try
+      {
+         Assert.assertFalse(checker.isDirty());
+
+         File slot = new File(dir, "addon-slot");
+         slots.put(slot.getName(), addon);
+         Assert.assertTrue(slot.mkdir());
+         Assert.assertEquals(Collections.singleton(addon), awaitDirtyAddons(checker));
+
+         // Only seen if the new slot directory itself is now being watched
+         java.nio.file.Files.write(new File(slot, "addon.jar").toPath(), new byte[] { 1 });
+         Assert.assertEquals(Collections.singleton(addon), awaitDirtyAddons(checker));
+      }
+      finally
+      {
+         checker.close();
+         Files.delete(dir, true);
+      }
+   }
+
+   private static File createTempDirectory() throws Exception
+   {
+      File dir = File.createTempFile("furnace", "watch");
+      dir.delete();
+      dir.mkdirs();
+      return dir;
+   }
+
+   /**
+    * Poll the given {@link DirtyChecker} until it reports dirty addons, or give up after ten seconds.
+    */
+   private static Set<AddonId> awaitDirtyAddons(DirtyChecker checker) throws InterruptedException
+   {
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      Set<AddonId> result = checker.pollDirtyAddons();
+      while (result.isEmpty() && System.currentTimeMillis() < deadline)
+      {
+         Thread.sleep(50);
+         result = checker.pollDirtyAddons();
+      }
+      return result;
+   }
+}
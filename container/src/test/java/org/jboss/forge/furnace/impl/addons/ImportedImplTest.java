@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.mock.MockAddon;
+import org.jboss.forge.furnace.mock.MockAddonRegistry;
+import org.jboss.forge.furnace.mock.MockExportedInstance;
+import org.jboss.forge.furnace.mock.MockLockManager;
+import org.jboss.forge.furnace.mock.MockServiceRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImportedImplTest
+{
+   private final MockAddonRegistry registry = new MockAddonRegistry();
+
+   @Test
+   public void testReleaseAfterSecondProviderAppears() throws Exception
+   {
+      MockExportedInstance<Runnable> first = provide("1.0.0.Final");
+      ImportedImpl<Runnable> imported = new ImportedImpl<>(registry, new MockLockManager(), Runnable.class);
+
+      Runnable instance = imported.get();
+      MockExportedInstance<Runnable> second = provide("2.0.0.Final");
+      Assert.assertTrue(imported.isAmbiguous());
+
+      imported.release(instance);
+      Assert.assertEquals(Collections.singletonList(instance), first.getReleased());
+      Assert.assertTrue(second.getReleased().isEmpty());
+   }
+
+   @Test
+   public void testReleaseAfterProviderIsReplaced() throws Exception
+   {
+      MockExportedInstance<Runnable> first = provide("1.0.0.Final");
+      ImportedImpl<Runnable> imported = new ImportedImpl<>(registry, new MockLockManager(), Runnable.class);
+
+      Runnable instance = imported.get();
+      registry.remove(first.getSourceAddon());
+      MockExportedInstance<Runnable> second = provide("2.0.0.Final");
+      Runnable replacement = imported.get();
+
+      imported.release(instance);
+      imported.release(replacement);
+      Assert.assertEquals(Collections.singletonList(instance), first.getReleased());
+      Assert.assertEquals(Collections.singletonList(replacement), second.getReleased());
+
+      // Releasing twice, or releasing an instance that did not come from this Imported, does nothing
+      imported.release(instance);
+      imported.release(new Task());
+      Assert.assertEquals(Arrays.asList(instance), first.getReleased());
+      Assert.assertEquals(Arrays.asList(replacement), second.getReleased());
+   }
+
+   @Test
+   public void testReleaseOfSingletonObtainedRepeatedly() throws Exception
+   {
+      Task singleton = new Task();
+      MockExportedInstance<Runnable> exported = provide("1.0.0.Final", () -> singleton);
+      ImportedImpl<Runnable> imported = new ImportedImpl<>(registry, new MockLockManager(), Runnable.class);
+
+      Assert.assertSame(singleton, imported.get());
+      Assert.assertSame(singleton, imported.get());
+      Assert.assertSame(singleton, imported.iterator().next());
+      imported.release(singleton);
+      imported.release(singleton);
+      Assert.assertEquals(Arrays.asList(singleton), exported.getReleased());
+
+      // Obtaining it again after a release tracks it again
+      Assert.assertSame(singleton, imported.get());
+      imported.release(singleton);
+      Assert.assertEquals(Arrays.asList(singleton, singleton), exported.getReleased());
+   }
+
+   private MockExportedInstance<Runnable> provide(String version)
+   {
+      return provide(version, Task::new);
+   }
+
+   private MockExportedInstance<Runnable> provide(String version, Supplier<Runnable> supplier)
+   {
+      MockAddon addon = new MockAddon(AddonId.from("org.example:service", version)).setStatus(AddonStatus.STARTED);
+      MockExportedInstance<Runnable> exported = new MockExportedInstance<>(addon, Task.class, supplier);
+      addon.setServiceRegistry(new MockServiceRegistry().add(Runnable.class, exported));
+      registry.add(addon);
+      return exported;
+   }
+
+   public static class Task implements Runnable
+   {
+      @Override
+      public void run()
+      {
+      }
+   }
+}
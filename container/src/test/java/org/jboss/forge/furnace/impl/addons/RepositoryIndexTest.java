@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.impl.util.Files;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RepositoryIndexTest
+{
+   @Test
+   public void testIndexSurvivesReload() throws Exception
+   {
+      File dir = createTempDir();
+      try
+      {
+         AddonId first = AddonId.from("org.example:first", "1.0.0.Final", "2.0.0.Final");
+         AddonId second = AddonId.from("org.example:second", "2.0.0.Final");
+         Set<AddonDependencyEntry> dependencies = new LinkedHashSet<>(Arrays.asList(
+                  AddonDependencyEntry.create("org.example:second", "[2,3)", true, false)));
+
+         RepositoryIndex index = new RepositoryIndex(dir);
+         index.putInstalled(10, 20, Arrays.asList(first, second));
+         index.putDependencies(first, 30, 40, dependencies);
+         index.putResources(first, 50, Collections.singletonList(new File(dir, "first.jar")));
+         index.flush();
+
+         RepositoryIndex reloaded = new RepositoryIndex(dir);
+         Assert.assertEquals(Arrays.asList(first, second), reloaded.getInstalled(10, 20));
+         Assert.assertEquals(first.getApiVersion(), reloaded.getInstalled(10, 20).get(0).getApiVersion());
+
+         Set<AddonDependencyEntry> reloadedDependencies = reloaded.getDependencies(first, 30, 40);
+         Assert.assertEquals(1, reloadedDependencies.size());
+         AddonDependencyEntry dependency = reloadedDependencies.iterator().next();
+         Assert.assertEquals("org.example:second", dependency.getName());
+         Assert.assertTrue(dependency.isExported());
+         Assert.assertFalse(dependency.isOptional());
+
+         List<File> resources = reloaded.getResources(first, dir, 50);
+         Assert.assertEquals(Collections.singletonList(new File(dir, "first.jar")), resources);
+      }
+      finally
+      {
+         Files.delete(dir, true);
+      }
+   }
+
+   @Test
+   public void testCloseWritesPendingChanges() throws Exception
+   {
+      File dir = createTempDir();
+      try
+      {
+         AddonId addon = AddonId.from("org.example:addon", "1.0.0.Final");
+         RepositoryIndex index = new RepositoryIndex(dir);
+         index.putInstalled(10, 20, Collections.singletonList(addon));
+         index.close();
+
+         Assert.assertEquals(Collections.singletonList(addon), new RepositoryIndex(dir).getInstalled(10, 20));
+         Assert.assertTrue(RepositoryIndex.isIndexFile("repository.idx"));
+         Assert.assertTrue(RepositoryIndex.isIndexFile("repository.idx4711.tmp"));
+         Assert.assertFalse(RepositoryIndex.isIndexFile("installed.xml"));
+      }
+      finally
+      {
+         Files.delete(dir, true);
+      }
+   }
+
+   @Test
+   public void testStaleEntriesAreIgnored() throws Exception
+   {
+      File dir = createTempDir();
+      try
+      {
+         AddonId addon = AddonId.from("org.example:addon", "1.0.0.Final");
+         RepositoryIndex index = new RepositoryIndex(dir);
+         index.putInstalled(10, 20, Collections.singletonList(addon));
+         index.putDependencies(addon, 30, 40, Collections.<AddonDependencyEntry> emptySet());
+
+         Assert.assertNull(index.getInstalled(11, 20));
+         Assert.assertNull(index.getInstalled(10, 21));
+         Assert.assertNull(index.getDependencies(addon, 31, 40));
+
+         index.remove(addon);
+         Assert.assertNull(index.getDependencies(addon, 30, 40));
+      }
+      finally
+      {
+         Files.delete(dir, true);
+      }
+   }
+
+   @Test
+   public void testCorruptIndexIsIgnored() throws Exception
+   {
+      File dir = createTempDir();
+      try
+      {
+         java.nio.file.Files.write(new File(dir, "repository.idx").toPath(), new byte[] { 1, 2, 3 });
+         RepositoryIndex index = new RepositoryIndex(dir);
+         Assert.assertNull(index.getInstalled(0, 0));
+      }
+      finally
+      {
+         Files.delete(dir, true);
+      }
+   }
+
+   private File createTempDir() throws Exception
+   {
+      File dir = File.createTempFile("furnace", "index");
+      dir.delete();
+      dir.mkdirs();
+      return dir;
+   }
+}
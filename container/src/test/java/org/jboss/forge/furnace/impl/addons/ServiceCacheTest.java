@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import org.jboss.forge.furnace.services.Imported;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceCacheTest
+{
+   @Test
+   public void testLeastRecentlyUsedEntryIsEvicted() throws Exception
+   {
+      ServiceCache cache = new ServiceCache(2);
+      Imported<String> strings = imported();
+      cache.put(String.class, strings, false);
+      cache.put(Integer.class, this.<Integer> imported(), false);
+      Assert.assertSame(strings, cache.get(String.class));
+
+      cache.put(Long.class, this.<Long> imported(), false);
+      Assert.assertEquals(2, cache.size());
+      Assert.assertNull(cache.get(Integer.class));
+      Assert.assertSame(strings, cache.get(String.class));
+
+      Assert.assertEquals(2, cache.getHitCount());
+      Assert.assertEquals(1, cache.getMissCount());
+      Assert.assertEquals(1, cache.getEvictionCount());
+   }
+
+   @Test
+   public void testEntriesOfUnusedAddonLoadersAreEvicted() throws Exception
+   {
+      ServiceCache cache = new ServiceCache(16);
+      cache.put(String.class, this.<String> imported(), true);
+      cache.put(Integer.class, this.<Integer> imported(), false);
+
+      cache.retainLoaders(Collections.<ClassLoader> emptySet());
+      Assert.assertNull(cache.get(String.class));
+      Assert.assertNotNull(cache.get(Integer.class));
+      Assert.assertEquals(1, cache.getEvictionCount());
+   }
+
+   @SuppressWarnings("unchecked")
+   private <T> Imported<T> imported()
+   {
+      return (Imported<T>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Imported.class },
+               new InvocationHandler()
+               {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                  {
+                     if ("equals".equals(method.getName()))
+                        return proxy == args[0];
+                     if ("hashCode".equals(method.getName()))
+                        return System.identityHashCode(proxy);
+                     return null;
+                  }
+               });
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.addons;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.mock.MockAddon;
+import org.jboss.forge.furnace.mock.MockAddonRegistry;
+import org.jboss.forge.furnace.mock.MockServiceRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceTypeIndexTest
+{
+   private final MockAddonRegistry registry = new MockAddonRegistry();
+   private final ServiceTypeIndex index = new ServiceTypeIndex(registry);
+
+   @Test
+   public void testSupertypesAndInterfacesAreIndexed() throws Exception
+   {
+      MockAddon addon = started("list", ArrayList.class);
+
+      for (Class<?> type : Arrays.asList(ArrayList.class, AbstractList.class, List.class, Collection.class,
+               Iterable.class, RandomAccess.class, Object.class))
+      {
+         Assert.assertEquals(type.getName(), Collections.singleton(addon), index.getProviders(type.getName()));
+      }
+      Assert.assertTrue(index.getProviders(Set.class.getName()).isEmpty());
+      Assert.assertEquals(Collections.singleton(addon), index.getProviders());
+   }
+
+   @Test
+   public void testStoppedAddonIsRemoved() throws Exception
+   {
+      MockAddon arrayList = started("array", ArrayList.class);
+      MockAddon linkedList = started("linked", LinkedList.class);
+      Assert.assertEquals(providers(arrayList, linkedList), index.getProviders(List.class.getName()));
+
+      linkedList.setStatus(AddonStatus.LOADED);
+      registry.changed();
+      Assert.assertEquals(providers(arrayList), index.getProviders(List.class.getName()));
+      Assert.assertTrue(index.getProviders(LinkedList.class.getName()).isEmpty());
+      Assert.assertEquals(providers(arrayList), index.getProviders());
+
+      registry.remove(arrayList);
+      Assert.assertTrue(index.getProviders(List.class.getName()).isEmpty());
+      Assert.assertTrue(index.getProviders().isEmpty());
+   }
+
+   @Test
+   public void testReplacedServiceRegistryIsReindexed() throws Exception
+   {
+      MockAddon addon = started("list", ArrayList.class);
+      MockAddon other = started("other", LinkedList.class);
+      Assert.assertEquals(providers(addon), index.getProviders(RandomAccess.class.getName()));
+
+      addon.setServiceRegistry(new MockServiceRegistry().addTypes(HashSet.class));
+      registry.changed();
+      Assert.assertTrue(index.getProviders(RandomAccess.class.getName()).isEmpty());
+      Assert.assertEquals(providers(addon), index.getProviders(Set.class.getName()));
+      Assert.assertEquals(providers(addon, other), index.getProviders(Collection.class.getName()));
+      Assert.assertEquals(providers(other), index.getProviders(List.class.getName()));
+   }
+
+   @Test
+   public void testIndexIsOnlyRefreshedWhenVersionChanges() throws Exception
+   {
+      MockAddon addon = started("list", ArrayList.class);
+      Assert.assertEquals(providers(addon), index.getProviders(List.class.getName()));
+
+      addon.setStatus(AddonStatus.LOADED);
+      Assert.assertEquals(providers(addon), index.getProviders(List.class.getName()));
+
+      registry.changed();
+      Assert.assertTrue(index.getProviders(List.class.getName()).isEmpty());
+   }
+
+   private MockAddon started(String name, Class<?>... exportedTypes)
+   {
+      MockAddon addon = new MockAddon(name).setStatus(AddonStatus.STARTED)
+               .setServiceRegistry(new MockServiceRegistry().addTypes(exportedTypes));
+      registry.add(addon);
+      return addon;
+   }
+
+   private static Set<Addon> providers(Addon... addons)
+   {
+      return new HashSet<Addon>(Arrays.asList(addons));
+   }
+}
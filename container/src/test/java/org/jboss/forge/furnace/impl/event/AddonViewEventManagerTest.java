@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.event;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.event.AsyncEventManager.Delivery;
+import org.jboss.forge.furnace.event.EventException;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.impl.lock.LockManagerImpl;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.jboss.forge.furnace.mock.MockAddon;
+import org.jboss.forge.furnace.mock.MockAddonRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddonViewEventManagerTest
+{
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+   private final LockManagerImpl lock = new LockManagerImpl();
+   private final MockAddonRegistry view = new MockAddonRegistry();
+   private final AddonViewEventManager manager = new AddonViewEventManager(view, lock, executor);
+
+   @After
+   public void tearDown()
+   {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void testOrderedDeliveryIsSequentialInAddonOrder() throws Exception
+   {
+      final List<String> received = new CopyOnWriteArrayList<>();
+      final Set<Thread> threads = new HashSet<>();
+      final AtomicInteger active = new AtomicInteger();
+      for (final String name : Arrays.asList("c", "a", "b"))
+      {
+         observe(name, (event, qualifiers) -> {
+            Assert.assertEquals("Deliveries must not overlap", 1, active.incrementAndGet());
+            threads.add(Thread.currentThread());
+            received.add(name);
+            active.decrementAndGet();
+         });
+      }
+
+      manager.fireEventAsync("event", Delivery.ORDERED).get(5, TimeUnit.SECONDS);
+      Assert.assertEquals(Arrays.asList("a", "b", "c"), received);
+      Assert.assertEquals(1, threads.size());
+      Assert.assertFalse(threads.contains(Thread.currentThread()));
+   }
+
+   @Test
+   public void testUnorderedDeliveryIsParallel() throws Exception
+   {
+      final CyclicBarrier barrier = new CyclicBarrier(3);
+      for (String name : Arrays.asList("a", "b", "c"))
+      {
+         // Only completes if all observers are notified at the same time
+         observe(name, (event, qualifiers) -> await(barrier));
+      }
+      manager.fireEventAsync("event", Delivery.UNORDERED).get(5, TimeUnit.SECONDS);
+   }
+
+   @Test
+   public void testFailuresAreAggregated() throws Exception
+   {
+      final RuntimeException first = new IllegalStateException("first");
+      final RuntimeException second = new IllegalArgumentException("second");
+      final List<String> received = new CopyOnWriteArrayList<>();
+      observe("a", (event, qualifiers) -> {
+         throw first;
+      });
+      observe("b", (event, qualifiers) -> received.add("b"));
+      observe("c", (event, qualifiers) -> {
+         throw second;
+      });
+
+      CompletableFuture<Void> future = manager.fireEventAsync("event", Delivery.ORDERED);
+      Throwable failure = future.handle((result, error) -> error).get(5, TimeUnit.SECONDS);
+      Assert.assertTrue("Future must fail with the EventException itself: " + failure,
+               failure instanceof EventException);
+      Assert.assertSame(first, failure.getCause());
+      Assert.assertEquals(Arrays.asList(second), Arrays.asList(failure.getSuppressed()));
+      Assert.assertEquals("A failing observer must not prevent delivery", Arrays.asList("b"), received);
+
+      try
+      {
+         future.get();
+         Assert.fail("Delivery should have failed");
+      }
+      catch (ExecutionException e)
+      {
+         Assert.assertSame(failure, e.getCause());
+      }
+   }
+
+   @Test
+   public void testNoLockIsHeldDuringDelivery() throws Exception
+   {
+      final CountDownLatch delivering = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      observe("a", (event, qualifiers) -> {
+         delivering.countDown();
+         await(release);
+      });
+
+      CompletableFuture<Void> future = manager.fireEventAsync("event", Delivery.UNORDERED);
+      try
+      {
+         Assert.assertTrue(delivering.await(5, TimeUnit.SECONDS));
+         // Another thread can take the WRITE lock while the observer is still being notified
+         Assert.assertTrue(executor.submit(() -> lock.performLocked(LockMode.WRITE, () -> true))
+                  .get(5, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         release.countDown();
+      }
+      future.get(5, TimeUnit.SECONDS);
+   }
+
+   private void observe(String name, final Observer observer)
+   {
+      view.add(new MockAddon(name).setStatus(AddonStatus.STARTED).setEventManager(new EventManager()
+      {
+         @Override
+         public void fireEvent(Object event, Annotation... qualifiers) throws EventException
+         {
+            observer.observe(event, qualifiers);
+         }
+      }));
+   }
+
+   private static void await(CyclicBarrier barrier)
+   {
+      try
+      {
+         barrier.await(5, TimeUnit.SECONDS);
+      }
+      catch (Exception e)
+      {
+         throw new IllegalStateException("Observers were not notified in parallel", e);
+      }
+   }
+
+   private static void await(CountDownLatch latch)
+   {
+      try
+      {
+         latch.await(5, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private interface Observer
+   {
+      void observe(Object event, Annotation... qualifiers);
+   }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.event;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.event.EventException;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.event.ObservedEvent;
+import org.jboss.forge.furnace.event.ObservingEventManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EventRoutingTableTest
+{
+   @Retention(RetentionPolicy.RUNTIME)
+   public @interface Important
+   {
+   }
+
+   @Important
+   private static final Object QUALIFIED = new Object();
+
+   @Test
+   public void testEventsAreRoutedToInterestedAddons() throws Exception
+   {
+      EventManager broadcast = NullEventManager.INSTANCE;
+      EventManager numbers = new ObservingStub(new ObservedEvent(Number.class));
+      EventManager important = new ObservingStub(new ObservedEvent(CharSequence.class, Important.class));
+
+      AddonView view = view(addon("a", broadcast), addon("b", numbers), addon("c", important));
+      EventRoutingTable table = new EventRoutingTable(view, () -> 0L);
+
+      Assert.assertEquals(Arrays.asList(broadcast, numbers), table.getTargets(Integer.class));
+      Assert.assertEquals(Arrays.asList(broadcast), table.getTargets(String.class));
+      Assert.assertEquals(Arrays.asList(broadcast, important), table.getTargets(String.class, important()));
+   }
+
+   private static Annotation important() throws Exception
+   {
+      return EventRoutingTableTest.class.getDeclaredField("QUALIFIED").getAnnotation(Important.class);
+   }
+
+   private static AddonView view(Addon... addons)
+   {
+      final Set<Addon> set = new HashSet<>(Arrays.asList(addons));
+      return proxy(AddonView.class, Collections.<String, Object> singletonMap("getAddons", set));
+   }
+
+   private static Addon addon(String name, EventManager eventManager)
+   {
+      Map<String, Object> values = new HashMap<>();
+      values.put("getId", AddonId.from(name, "1.0"));
+      values.put("getStatus", AddonStatus.STARTED);
+      values.put("getEventManager", eventManager);
+      return proxy(Addon.class, values);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <T> T proxy(Class<T> type, final Map<String, Object> values)
+   {
+      return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler()
+      {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+         {
+            if ("equals".equals(method.getName()))
+               return proxy == args[0];
+            if ("hashCode".equals(method.getName()))
+               return System.identityHashCode(proxy);
+            return values.get(method.getName());
+         }
+      });
+   }
+
+   private static class ObservingStub implements ObservingEventManager
+   {
+      private final ObservedEvent[] observed;
+
+      public ObservingStub(ObservedEvent... observed)
+      {
+         this.observed = observed;
+      }
+
+      @Override
+      public void fireEvent(Object event, Annotation... qualifiers) throws EventException
+      {
+      }
+
+      @Override
+      public Iterable<ObservedEvent> getObservedEvents()
+      {
+         return Arrays.asList(observed);
+      }
+   }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.repositories.AddonDependencyEntry;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.versions.EmptyVersion;
+import org.jboss.forge.furnace.versions.Version;
+import org.jgrapht.DirectedGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that {@link CompleteAddonGraph#update(Collection)} always yields the same graph as building it from scratch.
+ */
+public class CompleteAddonGraphTest
+{
+   private final TestAddonRepository repository = new TestAddonRepository();
+   private final List<AddonRepository> repositories = Collections.<AddonRepository> singletonList(repository);
+
+   @Test
+   public void testAddAddon() throws Exception
+   {
+      repository.put("a", "1.0", AddonDependencyEntry.create("b", "[1.0,2.0)"));
+      repository.put("b", "1.0");
+      CompleteAddonGraph graph = new CompleteAddonGraph(repositories);
+
+      repository.put("c", "1.0", AddonDependencyEntry.create("a", "[1.0,)", true));
+      assertUpdatedAsFromScratch(graph);
+      Assert.assertTrue(hasEdge(graph, "c:1.0", "a:1.0"));
+   }
+
+   @Test
+   public void testRemoveAddon() throws Exception
+   {
+      repository.put("a", "1.0", AddonDependencyEntry.create("b", "[1.0,2.0)"));
+      repository.put("b", "1.0");
+      repository.put("c", "1.0", AddonDependencyEntry.create("a", "[1.0,)"));
+      CompleteAddonGraph graph = new CompleteAddonGraph(repositories);
+
+      repository.remove("c", "1.0");
+      assertUpdatedAsFromScratch(graph);
+
+      // Removing a dependency leaves its dependents pointing at a missing vertex
+      repository.remove("b", "1.0");
+      assertUpdatedAsFromScratch(graph);
+      Assert.assertTrue(isMissing(graph, "b"));
+   }
+
+   @Test
+   public void testVersionChange() throws Exception
+   {
+      repository.put("a", "1.0", AddonDependencyEntry.create("b", "[1.0,3.0)"));
+      repository.put("b", "1.0");
+      CompleteAddonGraph graph = new CompleteAddonGraph(repositories);
+
+      repository.remove("b", "1.0");
+      repository.put("b", "2.0");
+      assertUpdatedAsFromScratch(graph);
+      Assert.assertTrue(hasEdge(graph, "a:1.0", "b:2.0"));
+
+      // A dependency range that no longer matches
+      repository.put("a", "1.0", AddonDependencyEntry.create("b", "[1.0,2.0)"));
+      assertUpdatedAsFromScratch(graph);
+
+      repository.remove("a", "1.0");
+      repository.put("a", "2.0", AddonDependencyEntry.create("b", "[2.0,3.0)"));
+      assertUpdatedAsFromScratch(graph);
+      Assert.assertTrue(hasEdge(graph, "a:2.0", "b:2.0"));
+   }
+
+   @Test
+   public void testMissingAddonReappears() throws Exception
+   {
+      repository.put("a", "1.0", AddonDependencyEntry.create("b", "[1.0,)"));
+      repository.put("c", "1.0", AddonDependencyEntry.create("b", "[1.0,)"),
+               AddonDependencyEntry.create("a", "[1.0,)"));
+      CompleteAddonGraph graph = new CompleteAddonGraph(repositories);
+      Assert.assertTrue(isMissing(graph, "b"));
+
+      repository.put("b", "1.0");
+      assertUpdatedAsFromScratch(graph);
+      Assert.assertFalse(isMissing(graph, "b"));
+
+      repository.remove("b", "1.0");
+      assertUpdatedAsFromScratch(graph);
+      Assert.assertTrue(isMissing(graph, "b"));
+   }
+
+   @Test
+   public void testCycleIntroducedByUpdate() throws Exception
+   {
+      repository.put("a", "1.0", AddonDependencyEntry.create("b", "[1.0,)"));
+      repository.put("b", "1.0", AddonDependencyEntry.create("c", "[1.0,)"));
+      repository.put("c", "1.0");
+      CompleteAddonGraph graph = new CompleteAddonGraph(repositories);
+
+      repository.put("c", "1.0", AddonDependencyEntry.create("a", "[1.0,)"));
+      try
+      {
+         new CompleteAddonGraph(repositories);
+         Assert.fail("Cycle should be detected when building from scratch");
+      }
+      catch (IllegalStateException e)
+      {
+         // expected
+      }
+
+      try
+      {
+         graph.update(repositories);
+         Assert.fail("Cycle should be detected when updating");
+      }
+      catch (IllegalStateException e)
+      {
+         // expected
+      }
+   }
+
+   private void assertUpdatedAsFromScratch(CompleteAddonGraph graph)
+   {
+      graph.update(repositories);
+      Assert.assertEquals(describe(new CompleteAddonGraph(repositories)), describe(graph));
+   }
+
+   private static boolean hasEdge(CompleteAddonGraph graph, String source, String target)
+   {
+      DirectedGraph<AddonVertex, AddonDependencyEdge> g = graph.getGraph();
+      for (AddonDependencyEdge edge : g.edgeSet())
+      {
+         if (describe(g.getEdgeSource(edge)).equals(source) && describe(g.getEdgeTarget(edge)).equals(target))
+            return true;
+      }
+      return false;
+   }
+
+   private static boolean isMissing(CompleteAddonGraph graph, String name)
+   {
+      for (AddonVertex vertex : graph.getGraph().vertexSet())
+      {
+         if (vertex.getName().equals(name) && vertex.getVersion() instanceof EmptyVersion)
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Describe the vertices and edges of the given graph, independently of insertion order.
+    */
+   private static Set<String> describe(CompleteAddonGraph graph)
+   {
+      DirectedGraph<AddonVertex, AddonDependencyEdge> g = graph.getGraph();
+      Set<String> result = new TreeSet<>();
+      for (AddonVertex vertex : g.vertexSet())
+      {
+         result.add(describe(vertex));
+      }
+      for (AddonDependencyEdge edge : g.edgeSet())
+      {
+         result.add(describe(g.getEdgeSource(edge)) + " -> " + describe(g.getEdgeTarget(edge)) + " " + edge);
+      }
+      return result;
+   }
+
+   private static String describe(AddonVertex vertex)
+   {
+      return vertex.getName() + ":" + vertex.getVersion();
+   }
+
+   private static class TestAddonRepository implements AddonRepository
+   {
+      private final Map<AddonId, Set<AddonDependencyEntry>> addons = new LinkedHashMap<>();
+
+      public void put(String name, String version, AddonDependencyEntry... dependencies)
+      {
+         addons.put(AddonId.from(name, version), new LinkedHashSet<>(Arrays.asList(dependencies)));
+      }
+
+      public void remove(String name, String version)
+      {
+         addons.remove(AddonId.from(name, version));
+      }
+
+      @Override
+      public File getAddonBaseDir(AddonId addon)
+      {
+         return null;
+      }
+
+      @Override
+      public Set<AddonDependencyEntry> getAddonDependencies(AddonId addon)
+      {
+         return addons.get(addon);
+      }
+
+      @Override
+      public File getAddonDescriptor(AddonId addon)
+      {
+         return null;
+      }
+
+      @Override
+      public List<File> getAddonResources(AddonId addon)
+      {
+         return Collections.emptyList();
+      }
+
+      @Override
+      public File getRootDirectory()
+      {
+         return new File("target");
+      }
+
+      @Override
+      public boolean isDeployed(AddonId addon)
+      {
+         return addons.containsKey(addon);
+      }
+
+      @Override
+      public boolean isEnabled(AddonId addon)
+      {
+         return addons.containsKey(addon);
+      }
+
+      @Override
+      public List<AddonId> listAll()
+      {
+         return new ArrayList<>(addons.keySet());
+      }
+
+      @Override
+      public List<AddonId> listEnabled()
+      {
+         return new ArrayList<>(addons.keySet());
+      }
+
+      @Override
+      public List<AddonId> listEnabledCompatibleWithVersion(Version version)
+      {
+         return listEnabled();
+      }
+
+      @Override
+      public Date getLastModified()
+      {
+         return new Date();
+      }
+
+      @Override
+      public int getVersion()
+      {
+         return addons.hashCode();
+      }
+   }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.mock.MockAddon;
+import org.jboss.forge.furnace.mock.MockAddonRegistry;
+import org.jboss.forge.furnace.versions.EmptyVersionRange;
+import org.jboss.forge.furnace.versions.SingleVersion;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the name index of {@link MasterGraph} follows every change to the underlying graph.
+ */
+public class MasterGraphTest
+{
+   private static final AddonId A = AddonId.from("a", "1.0");
+   private static final AddonId B = AddonId.from("b", "1.0");
+
+   private final AddonView first = new MockAddonRegistry();
+   private final AddonView second = new MockAddonRegistry();
+
+   @Test
+   public void testIndexAfterMerge() throws Exception
+   {
+      MasterGraph graph = new MasterGraph();
+      graph.merge(new OptimizedAddonGraph(first, completeGraph()));
+
+      AddonVertex a = graph.getVertex(A, first);
+      AddonVertex b = graph.getVertex(B, first);
+      Assert.assertNotNull(a);
+      Assert.assertNotNull(b);
+      Assert.assertEquals(Collections.singleton(a), graph.getVertices("a"));
+      Assert.assertEquals(Collections.singleton(b), graph.getVertices("b", B.getVersion()));
+      Assert.assertTrue(graph.getVertices("b", new SingleVersion("2.0")).isEmpty());
+      Assert.assertTrue(graph.getVertices("c").isEmpty());
+      Assert.assertNull(graph.getVertex(A, second));
+   }
+
+   @Test
+   public void testIndexAfterReplaceVertex() throws Exception
+   {
+      MasterGraph graph = new MasterGraph();
+      graph.merge(new OptimizedAddonGraph(first, completeGraph()));
+      AddonVertex original = graph.getVertex(A, first);
+
+      // An equivalent subtree from another view replaces the existing vertices with ones visible in both views
+      graph.merge(new OptimizedAddonGraph(second, completeGraph()));
+
+      AddonVertex replaced = graph.getVertex(A, second);
+      Assert.assertNotNull(replaced);
+      Assert.assertNotSame(original, replaced);
+      Assert.assertSame(replaced, graph.getVertex(A, first));
+      Assert.assertEquals(new HashSet<>(Arrays.asList(first, second)), replaced.getViews());
+      Assert.assertEquals(Collections.singleton(replaced), graph.getVertices("a"));
+      Assert.assertEquals(1, graph.getVertices("b").size());
+      Assert.assertEquals(2, graph.getGraph().vertexSet().size());
+   }
+
+   @Test
+   public void testIndexAfterDirectGraphChanges() throws Exception
+   {
+      MasterGraph graph = new MasterGraph();
+      graph.merge(new OptimizedAddonGraph(first, completeGraph()));
+
+      MockAddon addon = new MockAddon(A);
+      AddonVertex added = new AddonVertex(new AddonVertex("a", A.getVersion()), second);
+      added.setAddon(addon);
+      graph.getGraph().addVertex(added);
+
+      Assert.assertEquals(2, graph.getVertices("a").size());
+      Assert.assertTrue(graph.getVertices("a").contains(added));
+      Assert.assertSame(added, graph.getVertex(A, second));
+      Assert.assertSame(added, graph.getVertex(addon));
+
+      graph.getGraph().removeVertex(added);
+      Assert.assertEquals(1, graph.getVertices("a").size());
+      Assert.assertFalse(graph.getVertices("a").contains(added));
+      Assert.assertNull(graph.getVertex(A, second));
+      Assert.assertNull(graph.getVertex(addon));
+
+      graph.getGraph().removeVertex(graph.getVertex(B, first));
+      Assert.assertTrue(graph.getVertices("b").isEmpty());
+   }
+
+   /**
+    * a:1.0 depending on b:1.0
+    */
+   private static DirectedGraph<AddonVertex, AddonDependencyEdge> completeGraph()
+   {
+      DirectedGraph<AddonVertex, AddonDependencyEdge> result = new SimpleDirectedGraph<>(AddonDependencyEdge.class);
+      AddonVertex a = new AddonVertex(A.getName(), A.getVersion());
+      AddonVertex b = new AddonVertex(B.getName(), B.getVersion());
+      result.addVertex(a);
+      result.addVertex(b);
+      result.addEdge(a, b, new AddonDependencyEdge(new EmptyVersionRange(), false));
+      return result;
+   }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.lock;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.forge.furnace.addons.AddonView;
+import org.jboss.forge.furnace.lock.LockMode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LockManagerImplTest
+{
+   @Test
+   public void testDifferentStripesDoNotBlock() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      final CountDownLatch entered = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+
+      Thread holder = new Thread(() -> lock.performLocked("first", LockMode.WRITE, () -> {
+         entered.countDown();
+         release.await();
+         return null;
+      }));
+      holder.start();
+      Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+      try
+      {
+         Assert.assertEquals("second", lock.performLocked("second", LockMode.WRITE, () -> "second"));
+      }
+      finally
+      {
+         release.countDown();
+         holder.join();
+      }
+   }
+
+   @Test
+   public void testWriteLockDoesNotExcludeOtherStripes() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      String result = lock.performLocked(LockMode.WRITE, () -> {
+         ExecutorService executor = Executors.newSingleThreadExecutor();
+         try
+         {
+            return executor.submit(() -> lock.performLocked("stripe", LockMode.WRITE, () -> "striped"))
+                     .get(5, TimeUnit.SECONDS);
+         }
+         finally
+         {
+            executor.shutdownNow();
+         }
+      });
+      Assert.assertEquals("striped", result);
+   }
+
+   @Test
+   public void testWriteLockOwnerAcquiresStripes() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch finished = new CountDownLatch(1);
+
+      lock.performLocked(LockMode.WRITE, () -> lock.performLocked("stripe", LockMode.WRITE, () -> {
+         Thread striped = new Thread(() -> {
+            started.countDown();
+            lock.performLocked("stripe", LockMode.READ, () -> null);
+            finished.countDown();
+         });
+         striped.start();
+         Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+         Assert.assertFalse(finished.await(100, TimeUnit.MILLISECONDS));
+         return null;
+      }));
+      Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+   }
+
+   @Test
+   public void testStripeHolderMayNotWaitForContainerLock() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      try
+      {
+         lock.performLocked("stripe", LockMode.READ, () -> lock.performLocked(LockMode.READ, () -> null));
+         Assert.fail("Container-wide lock must not be acquired while holding a stripe");
+      }
+      catch (DeadlockError e)
+      {
+         // expected
+      }
+
+      Assert.assertEquals("done", lock.performLocked(LockMode.READ, () -> lock.performLocked("stripe",
+               LockMode.READ, () -> lock.performLocked(LockMode.READ, () -> "done"))));
+   }
+
+   @Test
+   public void testDelegatedTasksLockWhileOwnerHoldsWrite() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      final ExecutorService executor = Executors.newFixedThreadPool(2);
+      try
+      {
+         String result = lock.performLocked(LockMode.WRITE, () -> {
+            Future<String> read = executor.submit(lock.delegate(() -> lock.performLocked(LockMode.READ,
+                     () -> "read")));
+            Future<String> write = executor.submit(lock.delegate(() -> lock.performLocked(LockMode.WRITE,
+                     () -> "write")));
+            return read.get(5, TimeUnit.SECONDS) + write.get(5, TimeUnit.SECONDS);
+         });
+         Assert.assertEquals("readwrite", result);
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testOnlyWriteLockOwnerMayDelegate() throws Exception
+   {
+      new LockManagerImpl().delegate(() -> null);
+   }
+
+   @Test
+   public void testOptimisticReadRetriesUnderLockOnFailure() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      final AtomicInteger attempts = new AtomicInteger();
+      String result = lock.performOptimisticRead(() -> {
+         if (attempts.incrementAndGet() == 1)
+            throw new IllegalStateException("Inconsistent read");
+         return "read";
+      });
+      Assert.assertEquals("read", result);
+      Assert.assertEquals(2, attempts.get());
+   }
+
+   @Test
+   public void testOptimisticReadDuringWriteTakesLock() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      final AtomicInteger attempts = new AtomicInteger();
+      lock.performLocked(LockMode.WRITE, () -> lock.performOptimisticRead(() -> attempts.incrementAndGet()));
+      Assert.assertEquals(1, attempts.get());
+      Assert.assertEquals(Integer.valueOf(2), lock.performOptimisticRead(() -> attempts.incrementAndGet()));
+   }
+
+   @Test
+   public void testOptimisticReadOverlappingWriteIsRetried() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      final AtomicInteger attempts = new AtomicInteger();
+      String result = lock.performOptimisticRead(() -> {
+         if (attempts.incrementAndGet() == 1)
+         {
+            Thread writer = new Thread(() -> lock.performLocked(LockMode.WRITE, () -> null));
+            writer.start();
+            join(writer);
+         }
+         return "attempt " + attempts.get();
+      });
+      Assert.assertEquals("attempt 2", result);
+   }
+
+   @Test
+   public void testStatisticsRecordCallSite() throws Exception
+   {
+      System.setProperty(LockStatistics.LOCK_STATISTICS_PROPERTY, "true");
+      LockManagerImpl lock;
+      try
+      {
+         lock = new LockManagerImpl();
+      }
+      finally
+      {
+         System.clearProperty(LockStatistics.LOCK_STATISTICS_PROPERTY);
+      }
+
+      try
+      {
+         lock.performLocked(LockMode.WRITE, () -> null);
+         lock.performLocked(LockMode.WRITE, () -> null);
+         lock.performLocked("stripe", LockMode.READ, () -> null);
+
+         List<LockSiteStatistics> snapshot = lock.getStatistics().getSnapshot();
+         Assert.assertEquals(2, snapshot.size());
+         for (LockSiteStatistics site : snapshot)
+         {
+            Assert.assertEquals(getClass().getName() + "#testStatisticsRecordCallSite", site.getSite());
+            Assert.assertEquals(LockMode.WRITE.name().equals(site.getMode()) ? 2 : 1, site.getCount());
+         }
+      }
+      finally
+      {
+         lock.dispose();
+      }
+      Assert.assertNull(new LockManagerImpl().getStatistics());
+   }
+
+   @Test
+   public void testStatisticsAreRegisteredUnderDocumentedName() throws Exception
+   {
+      System.setProperty(LockStatistics.LOCK_STATISTICS_PROPERTY, "true");
+      LockManagerImpl first;
+      LockManagerImpl second;
+      try
+      {
+         first = new LockManagerImpl();
+         second = new LockManagerImpl();
+      }
+      finally
+      {
+         System.clearProperty(LockStatistics.LOCK_STATISTICS_PROPERTY);
+      }
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(LockStatistics.OBJECT_NAME);
+      try
+      {
+         Assert.assertEquals(name, first.getStatistics().getObjectName());
+         Assert.assertTrue(server.isRegistered(name));
+
+         ObjectName other = second.getStatistics().getObjectName();
+         Assert.assertEquals("LockStatistics", other.getKeyProperty("type"));
+         Assert.assertNotNull(other.getKeyProperty("id"));
+         Assert.assertTrue(server.isRegistered(other));
+      }
+      finally
+      {
+         first.dispose();
+         second.dispose();
+      }
+      Assert.assertFalse(server.isRegistered(name));
+   }
+
+   @Test(expected = DeadlockError.class)
+   public void testStripesMustBeAcquiredInOrder() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      lock.performLocked("first", LockMode.READ, () -> null);
+      lock.performLocked("second", LockMode.READ, () -> lock.performLocked("first", LockMode.READ, () -> null));
+   }
+
+   @Test
+   public void testStripeOrderDoesNotDependOnFirstUse() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      lock.performLocked("second", LockMode.READ, () -> null);
+      Assert.assertEquals("done", lock.performLocked("first", LockMode.READ,
+               () -> lock.performLocked("second", LockMode.READ, () -> "done")));
+   }
+
+   @Test
+   public void testViewStripesPrecedeRepositoryStripes() throws Exception
+   {
+      final LockManagerImpl lock = new LockManagerImpl();
+      final File repository = new File("repository");
+      final AddonView view = createView("view");
+      lock.performLocked(repository, LockMode.READ, () -> null);
+
+      Assert.assertEquals("done", lock.performLocked(view, LockMode.WRITE,
+               () -> lock.performLocked(repository, LockMode.READ, () -> "done")));
+      try
+      {
+         lock.performLocked(repository, LockMode.READ, () -> lock.performLocked(view, LockMode.READ, () -> null));
+         Assert.fail("View stripe must not be acquired while holding a repository stripe");
+      }
+      catch (DeadlockError e)
+      {
+         // expected
+      }
+   }
+
+   private static void join(Thread thread)
+   {
+      try
+      {
+         thread.join();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private static AddonView createView(final String name)
+   {
+      return (AddonView) Proxy.newProxyInstance(AddonView.class.getClassLoader(), new Class<?>[] { AddonView.class },
+               (proxy, method, args) -> {
+                  if ("getName".equals(method.getName()))
+                     return name;
+                  if ("hashCode".equals(method.getName()))
+                     return System.identityHashCode(proxy);
+                  if ("equals".equals(method.getName()))
+                     return proxy == args[0];
+                  return null;
+               });
+   }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RescanCoalescerTest
+{
+   private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+   @Test
+   public void testRescanIsDueAfterQuietPeriod() throws Exception
+   {
+      RescanCoalescer coalescer = new RescanCoalescer(100, TimeUnit.MILLISECONDS);
+      Assert.assertFalse(coalescer.isPending());
+
+      coalescer.markDirty(0);
+      Assert.assertTrue(coalescer.isPending());
+      Assert.assertFalse(coalescer.isDue(99 * MILLIS));
+      Assert.assertEquals(1, coalescer.getRemainingMillis(99 * MILLIS));
+      Assert.assertTrue(coalescer.isDue(100 * MILLIS));
+
+      coalescer.rescanned();
+      Assert.assertFalse(coalescer.isPending());
+      Assert.assertEquals(0, coalescer.getRemainingMillis(100 * MILLIS));
+      Assert.assertEquals(1, coalescer.getRescanCount());
+   }
+
+   @Test
+   public void testChangesDuringQuietPeriodAreMerged() throws Exception
+   {
+      RescanCoalescer coalescer = new RescanCoalescer(100, TimeUnit.MILLISECONDS);
+      coalescer.markDirty(0);
+      coalescer.markDirty(50 * MILLIS);
+      coalescer.markDirty(120 * MILLIS);
+
+      Assert.assertFalse(coalescer.isDue(200 * MILLIS));
+      Assert.assertTrue(coalescer.isDue(220 * MILLIS));
+      coalescer.rescanned();
+
+      Assert.assertEquals(1, coalescer.getRescanCount());
+      Assert.assertEquals(2, coalescer.getMergedRescanCount());
+   }
+
+   @Test
+   public void testZeroQuietPeriodIsImmediatelyDue() throws Exception
+   {
+      RescanCoalescer coalescer = new RescanCoalescer(0, TimeUnit.MILLISECONDS);
+      coalescer.markDirty(42);
+      Assert.assertTrue(coalescer.isDue(42));
+   }
+}
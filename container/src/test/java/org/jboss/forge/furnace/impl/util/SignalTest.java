@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.impl.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SignalTest
+{
+   @Test
+   public void testAwaitTimesOutWithoutSignal() throws Exception
+   {
+      Signal signal = new Signal();
+      Assert.assertFalse(signal.await(signal.getGeneration(), 10, TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void testSignalBeforeAwaitIsNotLost() throws Exception
+   {
+      Signal signal = new Signal();
+      long seen = signal.getGeneration();
+      signal.signal();
+      Assert.assertTrue(signal.await(seen, 0, TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void testSignalWakesWaitingThread() throws Exception
+   {
+      final Signal signal = new Signal();
+      final long seen = signal.getGeneration();
+      final CountDownLatch woken = new CountDownLatch(1);
+      Thread waiter = new Thread(() -> {
+         try
+         {
+            if (signal.await(seen, 0, TimeUnit.MILLISECONDS))
+               woken.countDown();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+      });
+      waiter.start();
+      signal.signal();
+      Assert.assertTrue(woken.await(5, TimeUnit.SECONDS));
+   }
+}
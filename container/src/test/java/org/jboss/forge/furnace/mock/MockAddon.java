@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonDependency;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonStatus;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * An {@link Addon} whose status, dependencies, {@link ServiceRegistry} and {@link EventManager} are set by the test.
+ */
+public class MockAddon implements Addon
+{
+   private final AddonId id;
+   private volatile AddonStatus status = AddonStatus.NEW;
+   private volatile ServiceRegistry serviceRegistry;
+   private volatile EventManager eventManager;
+   private volatile Set<AddonDependency> dependencies = Collections.emptySet();
+   private volatile Future<Void> future;
+
+   public MockAddon(String name)
+   {
+      this(AddonId.from(name, "1.0.0.Final"));
+   }
+
+   public MockAddon(AddonId id)
+   {
+      this.id = id;
+   }
+
+   @Override
+   public AddonId getId()
+   {
+      return id;
+   }
+
+   @Override
+   public ClassLoader getClassLoader()
+   {
+      return getClass().getClassLoader();
+   }
+
+   @Override
+   public EventManager getEventManager()
+   {
+      return eventManager;
+   }
+
+   public MockAddon setEventManager(EventManager eventManager)
+   {
+      this.eventManager = eventManager;
+      return this;
+   }
+
+   @Override
+   public ServiceRegistry getServiceRegistry()
+   {
+      return serviceRegistry;
+   }
+
+   public MockAddon setServiceRegistry(ServiceRegistry serviceRegistry)
+   {
+      this.serviceRegistry = serviceRegistry;
+      return this;
+   }
+
+   @Override
+   public AddonRepository getRepository()
+   {
+      return null;
+   }
+
+   @Override
+   public AddonStatus getStatus()
+   {
+      return status;
+   }
+
+   public MockAddon setStatus(AddonStatus status)
+   {
+      this.status = status;
+      return this;
+   }
+
+   @Override
+   public Set<AddonDependency> getDependencies()
+   {
+      return dependencies;
+   }
+
+   public MockAddon setDependencies(Set<AddonDependency> dependencies)
+   {
+      this.dependencies = dependencies;
+      return this;
+   }
+
+   @Override
+   public Future<Void> getFuture()
+   {
+      return future;
+   }
+
+   public MockAddon setFuture(Future<Void> future)
+   {
+      this.future = future;
+      return this;
+   }
+
+   @Override
+   public String toString()
+   {
+      return id.toString();
+   }
+}
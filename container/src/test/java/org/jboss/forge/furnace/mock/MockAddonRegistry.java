@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.addons.AddonFilter;
+import org.jboss.forge.furnace.addons.AddonId;
+import org.jboss.forge.furnace.addons.AddonRegistry;
+import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.impl.addons.ImportedImpl;
+import org.jboss.forge.furnace.repositories.AddonRepository;
+import org.jboss.forge.furnace.services.Imported;
+
+/**
+ * An {@link AddonRegistry} over the {@link Addon} instances added by the test. Its version changes whenever an addon
+ * is added or removed, or {@link #changed()} is called.
+ */
+public class MockAddonRegistry implements AddonRegistry
+{
+   private final Set<Addon> addons = new LinkedHashSet<>();
+   private volatile long version = 0;
+
+   public synchronized MockAddonRegistry add(Addon addon)
+   {
+      addons.add(addon);
+      changed();
+      return this;
+   }
+
+   public synchronized MockAddonRegistry remove(Addon addon)
+   {
+      addons.remove(addon);
+      changed();
+      return this;
+   }
+
+   public void changed()
+   {
+      version++;
+   }
+
+   @Override
+   public String getName()
+   {
+      return "mock";
+   }
+
+   @Override
+   public void dispose()
+   {
+   }
+
+   @Override
+   public synchronized Addon getAddon(AddonId id)
+   {
+      for (Addon addon : addons)
+      {
+         if (addon.getId().equals(id))
+            return addon;
+      }
+      return null;
+   }
+
+   @Override
+   public synchronized Set<Addon> getAddons()
+   {
+      return new LinkedHashSet<>(addons);
+   }
+
+   @Override
+   public synchronized Set<Addon> getAddons(AddonFilter filter)
+   {
+      Set<Addon> result = new LinkedHashSet<>();
+      for (Addon addon : addons)
+      {
+         if (filter.accept(addon))
+            result.add(addon);
+      }
+      return result;
+   }
+
+   @Override
+   public Set<AddonRepository> getRepositories()
+   {
+      return Collections.emptySet();
+   }
+
+   @Override
+   public <T> Imported<T> getServices(Class<T> clazz)
+   {
+      return new ImportedImpl<>(this, new MockLockManager(), clazz);
+   }
+
+   @Override
+   public <T> Imported<T> getServices(String clazz)
+   {
+      throw new UnsupportedOperationException("Services can only be looked up by type.");
+   }
+
+   @Override
+   public Set<Class<?>> getExportedTypes()
+   {
+      Set<Class<?>> result = new LinkedHashSet<>();
+      for (Addon addon : getAddons())
+      {
+         if (addon.getServiceRegistry() != null)
+            result.addAll(addon.getServiceRegistry().getExportedTypes());
+      }
+      return result;
+   }
+
+   @Override
+   public <T> Set<Class<T>> getExportedTypes(Class<T> type)
+   {
+      Set<Class<T>> result = new LinkedHashSet<>();
+      for (Addon addon : getAddons())
+      {
+         if (addon.getServiceRegistry() != null)
+            result.addAll(addon.getServiceRegistry().getExportedTypes(type));
+      }
+      return result;
+   }
+
+   @Override
+   public long getVersion()
+   {
+      return version;
+   }
+
+   @Override
+   public EventManager getEventManager()
+   {
+      return null;
+   }
+}
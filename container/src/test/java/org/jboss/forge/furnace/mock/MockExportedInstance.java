@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.jboss.forge.furnace.addons.Addon;
+import org.jboss.forge.furnace.spi.ExportedInstance;
+
+/**
+ * An {@link ExportedInstance} that creates instances with a {@link Supplier} and records the released ones.
+ */
+public class MockExportedInstance<T> implements ExportedInstance<T>
+{
+   private final Addon sourceAddon;
+   private final Class<? extends T> actualType;
+   private final Supplier<? extends T> supplier;
+   private final List<T> released = new CopyOnWriteArrayList<>();
+
+   public MockExportedInstance(Addon sourceAddon, Class<? extends T> actualType, Supplier<? extends T> supplier)
+   {
+      this.sourceAddon = sourceAddon;
+      this.actualType = actualType;
+      this.supplier = supplier;
+   }
+
+   @Override
+   public T get()
+   {
+      return supplier.get();
+   }
+
+   @Override
+   public void release(T instance)
+   {
+      released.add(instance);
+   }
+
+   public List<T> getReleased()
+   {
+      return released;
+   }
+
+   @Override
+   public Class<? extends T> getActualType()
+   {
+      return actualType;
+   }
+
+   @Override
+   public Addon getSourceAddon()
+   {
+      return sourceAddon;
+   }
+}
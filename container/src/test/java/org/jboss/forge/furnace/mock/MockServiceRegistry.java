@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.mock;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.forge.furnace.spi.ExportedInstance;
+import org.jboss.forge.furnace.spi.ServiceRegistry;
+
+/**
+ * A {@link ServiceRegistry} exporting the {@link ExportedInstance} objects added by the test, by exact type.
+ */
+public class MockServiceRegistry implements ServiceRegistry
+{
+   private final Map<Class<?>, Set<ExportedInstance<?>>> instances = new LinkedHashMap<>();
+
+   public <T> MockServiceRegistry add(Class<T> type, ExportedInstance<T> instance)
+   {
+      Set<ExportedInstance<?>> set = instances.get(type);
+      if (set == null)
+      {
+         set = new LinkedHashSet<>();
+         instances.put(type, set);
+      }
+      set.add(instance);
+      return this;
+   }
+
+   /**
+    * Export the given types without any instances.
+    */
+   public MockServiceRegistry addTypes(Class<?>... types)
+   {
+      for (Class<?> type : types)
+      {
+         if (!instances.containsKey(type))
+            instances.put(type, new LinkedHashSet<ExportedInstance<?>>());
+      }
+      return this;
+   }
+
+   @Override
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public <T> Set<ExportedInstance<T>> getExportedInstances(Class<T> clazz)
+   {
+      Set result = instances.get(clazz);
+      return result == null ? Collections.<ExportedInstance<T>> emptySet() : new LinkedHashSet<>(result);
+   }
+
+   @Override
+   public <T> Set<ExportedInstance<T>> getExportedInstances(String clazz)
+   {
+      for (Class<?> type : instances.keySet())
+      {
+         if (type.getName().equals(clazz))
+         {
+            @SuppressWarnings("unchecked")
+            Class<T> found = (Class<T>) type;
+            return getExportedInstances(found);
+         }
+      }
+      return Collections.emptySet();
+   }
+
+   @Override
+   public <T> ExportedInstance<T> getExportedInstance(Class<T> type)
+   {
+      Set<ExportedInstance<T>> result = getExportedInstances(type);
+      return result.isEmpty() ? null : result.iterator().next();
+   }
+
+   @Override
+   public <T> ExportedInstance<T> getExportedInstance(String type)
+   {
+      Set<ExportedInstance<T>> result = getExportedInstances(type);
+      return result.isEmpty() ? null : result.iterator().next();
+   }
+
+   @Override
+   public Set<Class<?>> getExportedTypes()
+   {
+      return new LinkedHashSet<>(instances.keySet());
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public <T> Set<Class<T>> getExportedTypes(Class<T> type)
+   {
+      Set<Class<T>> result = new HashSet<>();
+      for (Class<?> exported : instances.keySet())
+      {
+         if (type.isAssignableFrom(exported))
+            result.add((Class<T>) exported);
+      }
+      return result;
+   }
+
+   @Override
+   public boolean hasService(Class<?> clazz)
+   {
+      return !getExportedTypes(clazz).isEmpty();
+   }
+
+   @Override
+   public boolean hasService(String clazz)
+   {
+      return !getExportedInstances(clazz).isEmpty();
+   }
+
+   @Override
+   public void close()
+   {
+   }
+}
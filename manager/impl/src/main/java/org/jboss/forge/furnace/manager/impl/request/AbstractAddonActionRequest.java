@@ -49,12 +49,27 @@ public abstract class AbstractAddonActionRequest implements AddonActionRequest
 
    @Override
    public final void perform()
+   {
+      performAndAwaitConfigurationScan(furnace, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            execute();
+         }
+      });
+   }
+
+   /**
+    * Run the given task, then block until the given {@link Furnace} has re-scanned its configuration.
+    */
+   static void performAndAwaitConfigurationScan(Furnace furnace, Runnable task)
    {
       ConfigurationScanListener listener = new ConfigurationScanListener();
       ListenerRegistration<ContainerLifecycleListener> reg = furnace.addContainerLifecycleListener(listener);
       try
       {
-         execute();
+         task.run();
          if (!furnace.getStatus().isStopped())
          {
             while (furnace.getStatus().isStarting() || !listener.isConfigurationScanned())
@@ -7,12 +7,19 @@
 
 package org.jboss.forge.furnace.manager.impl.request;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+
+import org.jboss.forge.furnace.Furnace;
 
 import org.jboss.forge.furnace.manager.request.AddonActionRequest;
 import org.jboss.forge.furnace.manager.request.InstallRequest;
+import org.jboss.forge.furnace.manager.request.UpdateRequest;
 import org.jboss.forge.furnace.manager.spi.AddonInfo;
+import org.jboss.forge.furnace.repositories.MutableAddonRepository;
 
 /**
  * Implementation of the {@link InstallRequest} interface
@@ -31,13 +38,116 @@ class InstallRequestImpl implements InstallRequest
       this.actions = Collections.unmodifiableList(actions);
    }
 
+   /**
+    * Performs all actions as one batch per target repository, so that the repository registry is written once and the
+    * container re-scans its configuration once for the whole installation.
+    */
    @Override
    public void perform()
+   {
+      final List<AbstractAddonActionRequest> requests = new ArrayList<>();
+      if (!flatten(actions, requests) || requests.isEmpty())
+      {
+         for (AddonActionRequest action : actions)
+         {
+            action.perform();
+         }
+         return;
+      }
+
+      final Set<MutableAddonRepository> repositories = new LinkedHashSet<>();
+      for (AbstractAddonActionRequest request : requests)
+      {
+         if (request.repository != null)
+            repositories.add(request.repository);
+      }
+
+      Furnace furnace = requests.get(0).furnace;
+      AbstractAddonActionRequest.performAndAwaitConfigurationScan(furnace, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            List<MutableAddonRepository> begun = new ArrayList<>();
+            try
+            {
+               for (MutableAddonRepository repository : repositories)
+               {
+                  repository.beginBatch();
+                  begun.add(repository);
+               }
+               for (AbstractAddonActionRequest request : requests)
+               {
+                  request.execute();
+               }
+            }
+            catch (RuntimeException | Error e)
+            {
+               for (MutableAddonRepository repository : begun)
+               {
+                  repository.rollbackBatch();
+               }
+               throw e;
+            }
+            commitBatches(begun);
+         }
+      });
+   }
+
+   /**
+    * Commit the batch of every given repository, even if committing one of them fails, so that no batch is left open
+    * in the calling thread. The first failure is rethrown once all batches have ended.
+    */
+   private static void commitBatches(List<MutableAddonRepository> repositories)
+   {
+      Throwable failure = null;
+      for (MutableAddonRepository repository : repositories)
+      {
+         try
+         {
+            repository.commitBatch();
+         }
+         catch (RuntimeException | Error e)
+         {
+            if (failure == null)
+               failure = e;
+            else
+               failure.addSuppressed(e);
+         }
+      }
+      if (failure instanceof Error)
+         throw (Error) failure;
+      if (failure != null)
+         throw (RuntimeException) failure;
+   }
+
+   /**
+    * Collects the given actions into the result, expanding updates into their removal and deployment. Returns
+    * <code>false</code> if any action cannot be executed as part of a batch.
+    */
+   private static boolean flatten(List<? extends AddonActionRequest> actions, List<AbstractAddonActionRequest> result)
    {
       for (AddonActionRequest action : actions)
       {
-         action.perform();
+         if (action instanceof UpdateRequest)
+         {
+            UpdateRequest update = (UpdateRequest) action;
+            List<AddonActionRequest> steps = new ArrayList<>();
+            steps.add(update.getRemoveRequest());
+            steps.add(update.getDeployRequest());
+            if (!flatten(steps, result))
+               return false;
+         }
+         else if (action instanceof AbstractAddonActionRequest)
+         {
+            result.add((AbstractAddonActionRequest) action);
+         }
+         else
+         {
+            return false;
+         }
       }
+      return true;
    }
 
    @Override
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches how {@link ClassLoaderAdapterCallback} adapts parameter values and results crossing a {@link ClassLoader}
+ * boundary, so that the type inspection deciding whether and how a value is wrapped happens once per call site and
+ * runtime value type, instead of on every call.
+ * <p>
+ * Plans are cached per delegate {@link Class}, and released along with it. Keys and plans only hold weak references
+ * to classes and class loaders, so that they never keep the calling side reachable; a plan referring to a collected
+ * class is discarded and computed again.
+ */
+final class AdaptationPlans
+{
+   private static final int PURGE_INTERVAL = 64;
+
+   private static final ClassValue<Map<Key, Object>> plans = new ClassValue<Map<Key, Object>>()
+   {
+      @Override
+      protected Map<Key, Object> computeValue(Class<?> type)
+      {
+         return new ConcurrentHashMap<>();
+      }
+   };
+
+   private AdaptationPlans()
+   {
+   }
+
+   /**
+    * Get the plan cached for the given delegate type and key parts, or <code>null</code> if none is cached or the
+    * cached plan is no longer valid.
+    */
+   static <T extends Plan> T get(Class<?> delegateType, Class<T> planType, Object... parts)
+   {
+      Object result = plans.get(delegateType).get(new Key(parts, false));
+      if (planType.isInstance(result) && ((Plan) result).isValid())
+         return planType.cast(result);
+      return null;
+   }
+
+   static <T extends Plan> T put(Class<?> delegateType, T plan, Object... parts)
+   {
+      Map<Key, Object> cache = plans.get(delegateType);
+      cache.put(new Key(parts, true), plan);
+      if (cache.size() % PURGE_INTERVAL == 0)
+      {
+         cache.keySet().removeIf(Key::isStale);
+      }
+      return plan;
+   }
+
+   /**
+    * A cached adaptation decision.
+    */
+   abstract static class Plan
+   {
+      /**
+       * Returns <code>false</code> if any class this plan refers to has been collected.
+       */
+      abstract boolean isValid();
+
+      @SuppressWarnings("unchecked")
+      static WeakReference<Class<?>>[] weak(Class<?>[] types)
+      {
+         if (types == null)
+            return null;
+         WeakReference<Class<?>>[] result = new WeakReference[types.length];
+         for (int i = 0; i < types.length; i++)
+         {
+            result[i] = new WeakReference<Class<?>>(types[i]);
+         }
+         return result;
+      }
+
+      static Class<?>[] strong(WeakReference<Class<?>>[] types)
+      {
+         if (types == null)
+            return null;
+         Class<?>[] result = new Class<?>[types.length];
+         for (int i = 0; i < types.length; i++)
+         {
+            result[i] = types[i].get();
+            if (result[i] == null)
+               return null;
+         }
+         return result;
+      }
+
+      static boolean isValid(WeakReference<Class<?>>[] types)
+      {
+         if (types != null)
+         {
+            for (WeakReference<Class<?>> type : types)
+            {
+               if (type.get() == null)
+                  return false;
+            }
+         }
+         return true;
+      }
+   }
+
+   /**
+    * How a non-<code>null</code> parameter value that is not a {@link Class} is adapted.
+    */
+   static final class ParameterPlan extends Plan
+   {
+      private final boolean passthrough;
+      private final WeakReference<Class<?>> unwrappedValueType;
+      private final boolean methodLoaderDelegate;
+      private final boolean valueLoaderCaller;
+      private final boolean proxied;
+      private final WeakReference<Class<?>>[] hierarchy;
+
+      /**
+       * A plan passing the unwrapped value as is.
+       */
+      ParameterPlan()
+      {
+         this(true, null, false, false, false, null);
+      }
+
+      ParameterPlan(boolean passthrough, Class<?> unwrappedValueType, boolean methodLoaderDelegate,
+               boolean valueLoaderCaller, boolean proxied, Class<?>[] hierarchy)
+      {
+         this.passthrough = passthrough;
+         this.unwrappedValueType = unwrappedValueType == null ? null : new WeakReference<Class<?>>(
+                  unwrappedValueType);
+         this.methodLoaderDelegate = methodLoaderDelegate;
+         this.valueLoaderCaller = valueLoaderCaller;
+         this.proxied = proxied;
+         this.hierarchy = weak(hierarchy);
+      }
+
+      /**
+       * Returns <code>true</code> if the unwrapped value can be passed to the delegate as is.
+       */
+      boolean isPassthrough()
+      {
+         return passthrough;
+      }
+
+      Class<?> getUnwrappedValueType()
+      {
+         return unwrappedValueType.get();
+      }
+
+      /**
+       * Returns <code>true</code> if the value is adapted for the {@link ClassLoader} of the delegate method, rather
+       * than the delegate loader.
+       */
+      boolean isMethodLoaderDelegate()
+      {
+         return methodLoaderDelegate;
+      }
+
+      /**
+       * Returns <code>true</code> if the value is adapted from the {@link ClassLoader} of its own type, rather than
+       * the calling loader.
+       */
+      boolean isValueLoaderCaller()
+      {
+         return valueLoaderCaller;
+      }
+
+      /**
+       * Returns <code>true</code> if a value of a type other than primitive, enum, array or {@link java.util.Optional}
+       * must be wrapped in a proxy of {@link #getHierarchy()}.
+       */
+      boolean isProxied()
+      {
+         return proxied;
+      }
+
+      Class<?>[] getHierarchy()
+      {
+         return strong(hierarchy);
+      }
+
+      @Override
+      boolean isValid()
+      {
+         return (unwrappedValueType == null || unwrappedValueType.get() != null) && isValid(hierarchy);
+      }
+   }
+
+   /**
+    * How a non-<code>null</code> result of a method not returning {@link Class} is adapted.
+    */
+   static final class ResultPlan extends Plan
+   {
+      private final WeakReference<Class<?>> instanceLoaderType;
+      private final boolean enhanced;
+      private final WeakReference<Class<?>>[] returnTypeHierarchy;
+
+      ResultPlan(Class<?> instanceLoaderType, boolean enhanced, Class<?>[] returnTypeHierarchy)
+      {
+         this.instanceLoaderType = instanceLoaderType == null ? null : new WeakReference<Class<?>>(
+                  instanceLoaderType);
+         this.enhanced = enhanced;
+         this.returnTypeHierarchy = weak(returnTypeHierarchy);
+      }
+
+      /**
+       * Get the type whose {@link ClassLoader} the result instance belongs to, or <code>null</code> if it belongs to
+       * the delegate loader.
+       */
+      Class<?> getInstanceLoaderType()
+      {
+         return instanceLoaderType == null ? null : instanceLoaderType.get();
+      }
+
+      /**
+       * Returns <code>true</code> if the result needs to be adapted for the calling loader.
+       */
+      boolean isEnhanced()
+      {
+         return enhanced;
+      }
+
+      /**
+       * Get the compatible hierarchy of the method return type, which is empty if the method returns {@link Object}.
+       * Returns <code>null</code> if the result is not enhanced, or if any class of the hierarchy has been collected.
+       */
+      Class<?>[] getReturnTypeHierarchy()
+      {
+         return strong(returnTypeHierarchy);
+      }
+
+      @Override
+      boolean isValid()
+      {
+         return (instanceLoaderType == null || instanceLoaderType.get() != null) && isValid(returnTypeHierarchy);
+      }
+   }
+
+   /**
+    * Compares its parts by identity. Stored keys only hold weak references to their parts.
+    */
+   private static final class Key
+   {
+      private final Object[] parts;
+      private final WeakReference<?>[] weakParts;
+      private final int hash;
+
+      public Key(Object[] parts, boolean weak)
+      {
+         int hash = parts.length;
+         for (Object part : parts)
+         {
+            hash = 31 * hash + System.identityHashCode(part);
+         }
+         this.hash = hash;
+
+         if (weak)
+         {
+            this.parts = null;
+            this.weakParts = new WeakReference<?>[parts.length];
+            for (int i = 0; i < parts.length; i++)
+            {
+               weakParts[i] = new WeakReference<Object>(parts[i]);
+            }
+         }
+         else
+         {
+            this.parts = parts;
+            this.weakParts = null;
+         }
+      }
+
+      private int size()
+      {
+         return parts != null ? parts.length : weakParts.length;
+      }
+
+      private Object get(int index)
+      {
+         return parts != null ? parts[index] : weakParts[index].get();
+      }
+
+      public boolean isStale()
+      {
+         for (int i = 0; i < size(); i++)
+         {
+            if (get(i) == null)
+               return true;
+         }
+         return false;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof Key))
+            return false;
+         Key other = (Key) obj;
+         if (hash != other.hash || size() != other.size())
+            return false;
+         for (int i = 0; i < size(); i++)
+         {
+            Object part = get(i);
+            if (part == null || part != other.get(i))
+               return false;
+         }
+         return true;
+      }
+   }
+}
@@ -7,7 +7,6 @@
 package org.jboss.forge.furnace.proxy;
 
 import java.lang.ref.WeakReference;
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -24,6 +23,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.forge.furnace.exception.ContainerException;
+import org.jboss.forge.furnace.proxy.AdaptationPlans.ParameterPlan;
+import org.jboss.forge.furnace.proxy.AdaptationPlans.ResultPlan;
 import org.jboss.forge.furnace.proxy.javassist.util.proxy.MethodFilter;
 import org.jboss.forge.furnace.proxy.javassist.util.proxy.MethodHandler;
 import org.jboss.forge.furnace.proxy.javassist.util.proxy.Proxy;
@@ -43,6 +44,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
    private static final Map<String, Boolean> returnTypeNeedsEnhancementCache = new ConcurrentHashMap<>();
    private static final Map<String, List<WeakReference<Class<?>>>> resultHierarchyCache = new ConcurrentHashMap<>();
    private static final Map<String, List<WeakReference<Class<?>>>> returnTypeHierarchyCache = new ConcurrentHashMap<>();
+   private static final Object NULL_CLASS_LOADER_KEY = new Object();
 
    private final Object delegate;
 
@@ -113,15 +115,15 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
             {
             }
 
-            final Method delegateMethod = getDelegateMethod(thisMethod);
+            final DelegateInvoker invoker = getDelegateInvoker(thisMethod);
+            final Method delegateMethod = invoker.getMethod();
 
             final List<Object> parameterValues = enhanceParameterValues(args, delegateMethod);
 
-            AccessibleObject.setAccessible(new AccessibleObject[] { delegateMethod }, true);
             try
             {
                final Object[] parameterValueArray = parameterValues.toArray();
-               final Object result = delegateMethod.invoke(delegate, parameterValueArray);
+               final Object result = invoker.invoke(delegate, parameterValueArray);
                return enhanceResult(thisMethod, result);
             }
             catch (final InvocationTargetException e)
@@ -133,6 +135,16 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
 
          }
 
+         private DelegateInvoker getDelegateInvoker(final Method proxy) throws ClassNotFoundException,
+                  NoSuchMethodException
+         {
+            final Class<?> delegateType = delegate.getClass();
+            DelegateInvoker invoker = DelegateInvoker.get(delegateType, proxy);
+            if (invoker == null)
+               invoker = DelegateInvoker.put(delegateType, proxy, getDelegateMethod(proxy));
+            return invoker;
+         }
+
          private Method getDelegateMethod(final Method proxy) throws ClassNotFoundException, NoSuchMethodException
          {
 
@@ -197,18 +209,6 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
          if (getCallingLoader().equals(delegateLoader))
             callingLoader = getInitialCallingLoader();
 
-         ClassLoader resultInstanceLoader = delegateLoader;
-         if (!ClassLoaders.containsClass(delegateLoader, unwrappedResultType))
-         {
-            resultInstanceLoader = Proxies.unwrapProxyTypes(unwrappedResultType, getCallingLoader(), delegateLoader,
-                     unwrappedResultType.getClassLoader()).getClassLoader();
-            // FORGE-928: java.util.ArrayList.class.getClassLoader() returns null
-            if (resultInstanceLoader == null)
-            {
-               resultInstanceLoader = getClass().getClassLoader();
-            }
-         }
-
          final Class<?> returnType = method.getReturnType();
          if (Class.class.equals(returnType))
          {
@@ -239,8 +239,24 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                }
             }
          }
-         else if (returnTypeNeedsEnhancement(method, returnType, unwrappedResultType))
+         else
          {
+            final ResultPlan plan = getResultPlan(method, unwrappedResultType, callingLoader);
+            if (!plan.isEnhanced())
+               return stripClassLoaderAdapters(result);
+
+            ClassLoader resultInstanceLoader = delegateLoader;
+            final Class<?> instanceLoaderType = plan.getInstanceLoaderType();
+            if (instanceLoaderType != null)
+            {
+               resultInstanceLoader = instanceLoaderType.getClassLoader();
+               // FORGE-928: java.util.ArrayList.class.getClassLoader() returns null
+               if (resultInstanceLoader == null)
+               {
+                  resultInstanceLoader = getClass().getClassLoader();
+               }
+            }
+
             result = stripClassLoaderAdapters(result);
 
             if (!Modifier.isFinal(returnType.getModifiers()))
@@ -253,7 +269,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                }
                else
                {
-                  Class<?>[] returnTypeHierarchy = calculateReturnTypeHierarchy(callingLoader, returnType);
+                  Class<?>[] returnTypeHierarchy = getReturnTypeHierarchy(plan, callingLoader, returnType);
                   if (returnTypeHierarchy.length == 0)
                   {
                      returnTypeHierarchy = new Class[] { returnType };
@@ -309,7 +325,7 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                   }
                   else
                   {
-                     Class<?>[] returnTypeHierarchy = calculateReturnTypeHierarchy(callingLoader, returnType);
+                     Class<?>[] returnTypeHierarchy = getReturnTypeHierarchy(plan, callingLoader, returnType);
                      if (returnTypeHierarchy.length > 0)
                      {
                         result = enhance(whitelist, callingLoader, resultInstanceLoader, method, returnTypeHierarchy);
@@ -318,14 +334,65 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                }
             }
          }
-         else
-         {
-            result = stripClassLoaderAdapters(result);
-         }
       }
       return result;
    }
 
+   /**
+    * Get the cached {@link ResultPlan} for returning a value of the given type from the given method, computing it if
+    * needed.
+    */
+   private ResultPlan getResultPlan(final Method method, final Class<?> unwrappedResultType,
+            final ClassLoader callingLoader)
+   {
+      final Class<?> delegateType = delegate.getClass();
+      final Object[] key = { method, unwrappedResultType, getCallingLoader(), callingLoader,
+               getDelegateLoaderKey() };
+
+      ResultPlan plan = AdaptationPlans.get(delegateType, ResultPlan.class, key);
+      if (plan == null)
+      {
+         plan = AdaptationPlans.put(delegateType, computeResultPlan(method, unwrappedResultType, callingLoader), key);
+      }
+      return plan;
+   }
+
+   private ResultPlan computeResultPlan(final Method method, final Class<?> unwrappedResultType,
+            final ClassLoader callingLoader)
+   {
+      final Class<?> returnType = method.getReturnType();
+      if (!returnTypeNeedsEnhancement(method, returnType, unwrappedResultType))
+      {
+         return new ResultPlan(null, false, null);
+      }
+
+      Class<?> instanceLoaderType = null;
+      if (!ClassLoaders.containsClass(delegateLoader, unwrappedResultType))
+      {
+         instanceLoaderType = Proxies.unwrapProxyTypes(unwrappedResultType, getCallingLoader(), delegateLoader,
+                  unwrappedResultType.getClassLoader());
+      }
+
+      Class<?>[] returnTypeHierarchy = new Class<?>[0];
+      if (!Object.class.equals(returnType))
+      {
+         returnTypeHierarchy = calculateReturnTypeHierarchy(callingLoader, returnType);
+      }
+      return new ResultPlan(instanceLoaderType, true, returnTypeHierarchy);
+   }
+
+   /**
+    * Get the return type hierarchy of the given enhanced {@link ResultPlan}, calculating it again if any of its
+    * classes has been collected since the plan was retrieved.
+    */
+   private Class<?>[] getReturnTypeHierarchy(ResultPlan plan, ClassLoader callingLoader, Class<?> returnType)
+   {
+      Class<?>[] result = plan.getReturnTypeHierarchy();
+      if (result == null)
+         result = calculateReturnTypeHierarchy(callingLoader, returnType);
+      return result;
+   }
+
    private Class<?>[] calculateReturnTypeHierarchy(ClassLoader callingLoader, final Class<?> returnType)
    {
       String key = getReturnTypeHierarchyCacheKey(callingLoader, returnType);
@@ -723,34 +790,20 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
          else
          {
             final Object unwrappedValue = stripClassLoaderAdapters(parameterValue);
-            if (delegateParameterType.isAssignableFrom(unwrappedValue.getClass())
-                     && !Proxies.isLanguageType(unwrappedValue.getClass())
-                     && (!isEquals(delegateMethod) || (isEquals(delegateMethod) && ClassLoaders.containsClass(
-                              delegateLoader, unwrappedValue.getClass()))))
+            final ParameterPlan plan = getParameterPlan(delegateMethod, delegateParameterType, parameterValue,
+                     unwrappedValue);
+            if (plan.isPassthrough())
             {
                // https://issues.jboss.org/browse/FORGE-939
                return unwrappedValue;
             }
             else
             {
-               final Class<?> unwrappedValueType = Proxies.unwrapProxyTypes(unwrappedValue.getClass(), delegateMethod
-                        .getDeclaringClass().getClassLoader(), getCallingLoader(),
-                        delegateLoader, unwrappedValue.getClass()
-                                 .getClassLoader());
-
-               ClassLoader valueDelegateLoader = delegateLoader;
+               final Class<?> unwrappedValueType = plan.getUnwrappedValueType();
                final ClassLoader methodLoader = delegateMethod.getDeclaringClass().getClassLoader();
-               if (methodLoader != null && ClassLoaders.containsClass(methodLoader, unwrappedValueType))
-               {
-                  valueDelegateLoader = methodLoader;
-               }
-
-               ClassLoader valueCallingLoader = getCallingLoader();
-               final ClassLoader unwrappedValueLoader = unwrappedValueType.getClassLoader();
-               if (unwrappedValueLoader != null && !ClassLoaders.containsClass(getCallingLoader(), unwrappedValueType))
-               {
-                  valueCallingLoader = unwrappedValueLoader;
-               }
+               final ClassLoader valueDelegateLoader = plan.isMethodLoaderDelegate() ? methodLoader : delegateLoader;
+               final ClassLoader valueCallingLoader = plan.isValueLoaderCaller() ? unwrappedValueType.getClassLoader()
+                        : getCallingLoader();
 
                // If it is a class, use the delegateLoader loaded version
 
@@ -800,19 +853,9 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
                }
                else
                {
-                  final Class<?> parameterType = parameterValue.getClass();
-                  if ((!Proxies.isPassthroughType(delegateParameterType)
-                           && Proxies.isLanguageType(delegateParameterType))
-                           || !delegateParameterType.isAssignableFrom(parameterType)
-                           || isEquals(delegateMethod))
+                  if (plan.isProxied())
                   {
-                     Class<?>[] compatibleClassHierarchy = ProxyTypeInspector.getCompatibleClassHierarchy(
-                              valueDelegateLoader, unwrappedValueType);
-
-                     if (compatibleClassHierarchy.length == 0)
-                     {
-                        compatibleClassHierarchy = new Class[] { delegateParameterType };
-                     }
+                     final Class<?>[] compatibleClassHierarchy = plan.getHierarchy();
 
                      Object delegateObject = parameterValue;
                      if (parameterValue instanceof ForgeProxy)
@@ -847,6 +890,90 @@ public class ClassLoaderAdapterCallback implements MethodHandler, ForgeProxy
       return null;
    }
 
+   /**
+    * Get the cached {@link ParameterPlan} for passing a value of the given type as the given delegate parameter type,
+    * computing it if needed.
+    */
+   private ParameterPlan getParameterPlan(final Method delegateMethod, final Class<?> delegateParameterType,
+            final Object parameterValue, final Object unwrappedValue)
+   {
+      final Class<?> delegateType = delegate.getClass();
+      final Object[] key = { delegateMethod, delegateParameterType, parameterValue.getClass(),
+               unwrappedValue.getClass(), getCallingLoader(), getDelegateLoaderKey() };
+
+      ParameterPlan plan = AdaptationPlans.get(delegateType, ParameterPlan.class, key);
+      if (plan == null)
+      {
+         plan = AdaptationPlans.put(delegateType,
+                  computeParameterPlan(delegateMethod, delegateParameterType, parameterValue.getClass(),
+                           unwrappedValue.getClass()),
+                  key);
+      }
+      return plan;
+   }
+
+   private ParameterPlan computeParameterPlan(final Method delegateMethod, final Class<?> delegateParameterType,
+            final Class<?> parameterType, final Class<?> unwrappedType)
+   {
+      if (delegateParameterType.isAssignableFrom(unwrappedType)
+               && !Proxies.isLanguageType(unwrappedType)
+               && (!isEquals(delegateMethod) || (isEquals(delegateMethod) && ClassLoaders.containsClass(
+                        delegateLoader, unwrappedType))))
+      {
+         return new ParameterPlan();
+      }
+
+      final Class<?> unwrappedValueType = Proxies.unwrapProxyTypes(unwrappedType, delegateMethod
+               .getDeclaringClass().getClassLoader(), getCallingLoader(),
+               delegateLoader, unwrappedType.getClassLoader());
+
+      ClassLoader valueDelegateLoader = delegateLoader;
+      final ClassLoader methodLoader = delegateMethod.getDeclaringClass().getClassLoader();
+      boolean methodLoaderDelegate = false;
+      if (methodLoader != null && ClassLoaders.containsClass(methodLoader, unwrappedValueType))
+      {
+         valueDelegateLoader = methodLoader;
+         methodLoaderDelegate = true;
+      }
+
+      final ClassLoader unwrappedValueLoader = unwrappedValueType.getClassLoader();
+      final boolean valueLoaderCaller = unwrappedValueLoader != null
+               && !ClassLoaders.containsClass(getCallingLoader(), unwrappedValueType);
+
+      boolean proxied = false;
+      Class<?>[] compatibleClassHierarchy = null;
+      if (!delegateParameterType.isPrimitive() && !delegateParameterType.isEnum()
+               && !delegateParameterType.isArray() && delegateParameterType != Optional.class)
+      {
+         if ((!Proxies.isPassthroughType(delegateParameterType)
+                  && Proxies.isLanguageType(delegateParameterType))
+                  || !delegateParameterType.isAssignableFrom(parameterType)
+                  || isEquals(delegateMethod))
+         {
+            proxied = true;
+            compatibleClassHierarchy = ProxyTypeInspector.getCompatibleClassHierarchy(
+                     valueDelegateLoader, unwrappedValueType);
+
+            if (compatibleClassHierarchy.length == 0)
+            {
+               compatibleClassHierarchy = new Class[] { delegateParameterType };
+            }
+         }
+      }
+
+      return new ParameterPlan(false, unwrappedValueType, methodLoaderDelegate, valueLoaderCaller, proxied,
+               compatibleClassHierarchy);
+   }
+
+   /**
+    * The delegate loader as part of an {@link AdaptationPlans} key. All null class loaders behave the same, so they
+    * share their plans.
+    */
+   private Object getDelegateLoaderKey()
+   {
+      return delegateLoader == nullClassLoader ? NULL_CLASS_LOADER_KEY : delegateLoader;
+   }
+
    private static boolean isEquals(Method method)
    {
       if (boolean.class.equals(method.getReturnType())
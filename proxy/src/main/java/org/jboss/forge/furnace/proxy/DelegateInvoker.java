@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Invokes the delegate {@link Method} resolved for a proxy {@link Method} through a {@link MethodHandle}, so that the
+ * delegate method is looked up and made accessible only once per delegate type.
+ * <p>
+ * Invokers are cached per delegate {@link Class}, and keyed by the name and parameter type names of the proxy method,
+ * since the proxy method may belong to a type loaded by a different {@link ClassLoader}. The cache is released along
+ * with the delegate {@link Class}.
+ */
+final class DelegateInvoker
+{
+   private static final ClassValue<Map<String, DelegateInvoker>> invokers = //
+            new ClassValue<Map<String, DelegateInvoker>>()
+   {
+      @Override
+      protected Map<String, DelegateInvoker> computeValue(Class<?> type)
+      {
+         return new ConcurrentHashMap<>();
+      }
+   };
+
+   private static final ClassValue<Map<Method, String>> signatures = new ClassValue<Map<Method, String>>()
+   {
+      @Override
+      protected Map<Method, String> computeValue(Class<?> type)
+      {
+         return new ConcurrentHashMap<>();
+      }
+   };
+
+   /**
+    * The primitive types each primitive type can be widened to, boxed values of which are accepted by
+    * {@link Method#invoke(Object, Object...)}.
+    */
+   private static final Map<Class<?>, List<Class<?>>> widenings = new HashMap<>();
+
+   static
+   {
+      widenings.put(Boolean.class, Arrays.<Class<?>> asList(boolean.class));
+      widenings.put(Character.class, Arrays.<Class<?>> asList(char.class, int.class, long.class, float.class,
+               double.class));
+      widenings.put(Byte.class, Arrays.<Class<?>> asList(byte.class, short.class, int.class, long.class, float.class,
+               double.class));
+      widenings.put(Short.class, Arrays.<Class<?>> asList(short.class, int.class, long.class, float.class,
+               double.class));
+      widenings.put(Integer.class, Arrays.<Class<?>> asList(int.class, long.class, float.class, double.class));
+      widenings.put(Long.class, Arrays.<Class<?>> asList(long.class, float.class, double.class));
+      widenings.put(Float.class, Arrays.<Class<?>> asList(float.class, double.class));
+      widenings.put(Double.class, Arrays.<Class<?>> asList(double.class));
+   }
+
+   private final Method method;
+   private final MethodHandle handle;
+
+   private DelegateInvoker(Method method)
+   {
+      this.method = method;
+      this.handle = createHandle(method);
+   }
+
+   /**
+    * Get the cached {@link DelegateInvoker} of the given delegate type for the given proxy {@link Method}, or
+    * <code>null</code> if none has been cached yet.
+    */
+   static DelegateInvoker get(Class<?> delegateType, Method proxyMethod)
+   {
+      return invokers.get(delegateType).get(getSignature(proxyMethod));
+   }
+
+   /**
+    * Cache and return a {@link DelegateInvoker} calling the given delegate {@link Method} for the given proxy
+    * {@link Method}.
+    */
+   static DelegateInvoker put(Class<?> delegateType, Method proxyMethod, Method delegateMethod)
+   {
+      DelegateInvoker invoker = new DelegateInvoker(delegateMethod);
+      DelegateInvoker existing = invokers.get(delegateType).putIfAbsent(getSignature(proxyMethod), invoker);
+      return existing == null ? invoker : existing;
+   }
+
+   public Method getMethod()
+   {
+      return method;
+   }
+
+   /**
+    * Invoke the delegate {@link Method} on the given target. Like {@link Method#invoke(Object, Object...)}, anything
+    * thrown by the method is wrapped in an {@link InvocationTargetException}, while a target or arguments the method
+    * cannot be called with are rejected with an {@link IllegalArgumentException}.
+    */
+   public Object invoke(Object target, Object[] args) throws Exception
+   {
+      if (handle == null)
+         return method.invoke(target, args);
+
+      if (args == null)
+         args = new Object[0];
+      checkArguments(target, args);
+      try
+      {
+         return (Object) handle.invokeExact(target, args);
+      }
+      catch (Throwable e)
+      {
+         throw new InvocationTargetException(e);
+      }
+   }
+
+   /**
+    * Reject the given target and arguments with the exceptions {@link Method#invoke(Object, Object...)} would throw,
+    * so that anything thrown by the {@link MethodHandle} afterwards comes from the method itself.
+    */
+   private void checkArguments(Object target, Object[] args)
+   {
+      if (!Modifier.isStatic(method.getModifiers()))
+      {
+         if (target == null)
+            throw new NullPointerException("Cannot invoke [" + method + "] on a null target");
+         if (!method.getDeclaringClass().isInstance(target))
+            throw new IllegalArgumentException("Object [" + target.getClass().getName()
+                     + "] is not an instance of the declaring class of [" + method + "]");
+      }
+
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      if (args.length != parameterTypes.length)
+         throw new IllegalArgumentException("Wrong number of arguments for [" + method + "]: expected "
+                  + parameterTypes.length + " but was " + args.length);
+
+      for (int i = 0; i < args.length; i++)
+      {
+         if (!isAssignable(parameterTypes[i], args[i]))
+            throw new IllegalArgumentException("Argument " + i + " of [" + method + "] cannot be ["
+                     + (args[i] == null ? null : args[i].getClass().getName()) + "]");
+      }
+   }
+
+   private static boolean isAssignable(Class<?> parameterType, Object arg)
+   {
+      if (!parameterType.isPrimitive())
+         return arg == null || parameterType.isInstance(arg);
+      if (arg == null)
+         return false;
+      List<Class<?>> primitives = widenings.get(arg.getClass());
+      return primitives != null && primitives.contains(parameterType);
+   }
+
+   /**
+    * Create a {@link MethodHandle} of type <code>(Object, Object[])Object</code> for the given {@link Method}, or
+    * <code>null</code> if the method cannot be made accessible, in which case it is called reflectively. Public methods
+    * of inaccessible classes are looked up through a public supertype declaring them.
+    */
+   private static MethodHandle createHandle(Method method)
+   {
+      MethodHandle result = unreflect(method);
+      if (result == null)
+         result = unreflectPublicSupertype(method.getDeclaringClass(), method);
+      if (result == null)
+         return null;
+
+      if (Modifier.isStatic(method.getModifiers()))
+         result = MethodHandles.dropArguments(result, 0, Object.class);
+
+      int parameterCount = method.getParameterTypes().length;
+      return result.asType(MethodType.genericMethodType(parameterCount + 1))
+               .asSpreader(Object[].class, parameterCount);
+   }
+
+   private static MethodHandle unreflect(Method method)
+   {
+      try
+      {
+         method.setAccessible(true);
+         return MethodHandles.lookup().unreflect(method);
+      }
+      catch (IllegalAccessException | RuntimeException e)
+      {
+         return null;
+      }
+   }
+
+   private static MethodHandle unreflectPublicSupertype(Class<?> type, Method method)
+   {
+      if (type == null || !Modifier.isPublic(method.getModifiers()))
+         return null;
+
+      List<Class<?>> supertypes = new ArrayList<>();
+      Collections.addAll(supertypes, type.getInterfaces());
+      if (type.getSuperclass() != null)
+         supertypes.add(type.getSuperclass());
+
+      for (Class<?> supertype : supertypes)
+      {
+         if (Modifier.isPublic(supertype.getModifiers()))
+         {
+            try
+            {
+               return MethodHandles.publicLookup().unreflect(
+                        supertype.getMethod(method.getName(), method.getParameterTypes()));
+            }
+            catch (NoSuchMethodException | IllegalAccessException | RuntimeException e)
+            {
+               // try the next supertype
+            }
+         }
+         MethodHandle result = unreflectPublicSupertype(supertype, method);
+         if (result != null)
+            return result;
+      }
+      return null;
+   }
+
+   /**
+    * Get the name and parameter type names of the given {@link Method}, cached on its declaring {@link Class}.
+    */
+   private static String getSignature(Method method)
+   {
+      Map<Method, String> cache = signatures.get(method.getDeclaringClass());
+      String result = cache.get(method);
+      if (result == null)
+      {
+         result = computeSignature(method);
+         cache.put(method, result);
+      }
+      return result;
+   }
+
+   private static String computeSignature(Method method)
+   {
+      StringBuilder result = new StringBuilder(method.getName()).append('(');
+      for (Class<?> type : method.getParameterTypes())
+      {
+         result.append(type.getName()).append(';');
+      }
+      return result.append(')').toString();
+   }
+}
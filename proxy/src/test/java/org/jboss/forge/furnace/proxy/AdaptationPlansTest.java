@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.forge.furnace.proxy.AdaptationPlans.ParameterPlan;
+import org.jboss.forge.furnace.proxy.AdaptationPlans.ResultPlan;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptationPlansTest
+{
+   private static class Delegate
+   {
+   }
+
+   @Test
+   public void testPlansAreKeyedByIdentity() throws Exception
+   {
+      Object loaderKey = new Object();
+      ClassLoader loader = getClass().getClassLoader();
+      ParameterPlan plan = new ParameterPlan(false, ArrayList.class, false, true, true,
+               new Class<?>[] { List.class });
+
+      Assert.assertSame(plan, AdaptationPlans.put(Delegate.class, plan, ArrayList.class, loader, loaderKey));
+      Assert.assertSame(plan, AdaptationPlans.get(Delegate.class, ParameterPlan.class, ArrayList.class, loader,
+               loaderKey));
+      Assert.assertTrue(plan.isValueLoaderCaller());
+      Assert.assertArrayEquals(new Class<?>[] { List.class }, plan.getHierarchy());
+
+      Assert.assertNull(AdaptationPlans.get(Delegate.class, ParameterPlan.class, ArrayList.class, loader,
+               new Object()));
+      Assert.assertNull(AdaptationPlans.get(Object.class, ParameterPlan.class, ArrayList.class, loader, loaderKey));
+   }
+
+   @Test
+   public void testPlansAreTyped() throws Exception
+   {
+      Object loaderKey = new Object();
+      ResultPlan plan = new ResultPlan(null, false, null);
+      AdaptationPlans.put(Delegate.class, plan, String.class, loaderKey);
+
+      Assert.assertSame(plan, AdaptationPlans.get(Delegate.class, ResultPlan.class, String.class, loaderKey));
+      Assert.assertNull(AdaptationPlans.get(Delegate.class, ParameterPlan.class, String.class, loaderKey));
+      Assert.assertNull(plan.getInstanceLoaderType());
+      Assert.assertFalse(plan.isEnhanced());
+   }
+
+   @Test
+   public void testEmptyReturnTypeHierarchyIsKept() throws Exception
+   {
+      ResultPlan plan = new ResultPlan(null, true, new Class<?>[0]);
+      Assert.assertTrue(plan.isValid());
+      Assert.assertArrayEquals(new Class<?>[0], plan.getReturnTypeHierarchy());
+
+      plan = new ResultPlan(null, true, new Class<?>[] { List.class, ArrayList.class });
+      Assert.assertArrayEquals(new Class<?>[] { List.class, ArrayList.class }, plan.getReturnTypeHierarchy());
+   }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.furnace.proxy;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DelegateInvokerTest
+{
+   public interface Service
+   {
+      int add(int left, Integer right);
+
+      void fail(String message) throws IOException;
+   }
+
+   private final Service service = new Service()
+   {
+      @Override
+      public int add(int left, Integer right)
+      {
+         return left + right;
+      }
+
+      @Override
+      public void fail(String message) throws IOException
+      {
+         throw new IOException(message);
+      }
+   };
+
+   @Test
+   public void testInvokerIsCachedPerDelegateType() throws Exception
+   {
+      Method proxyMethod = Service.class.getMethod("add", int.class, Integer.class);
+      Assert.assertNull(DelegateInvoker.get(ArrayList.class, proxyMethod));
+
+      DelegateInvoker invoker = invoker(service, proxyMethod);
+      Assert.assertSame(invoker, DelegateInvoker.get(service.getClass(), proxyMethod));
+      Assert.assertEquals(3, invoker.invoke(service, new Object[] { 1, 2 }));
+   }
+
+   @Test
+   public void testExceptionsAreWrapped() throws Exception
+   {
+      DelegateInvoker invoker = invoker(service, Service.class.getMethod("fail", String.class));
+      try
+      {
+         invoker.invoke(service, new Object[] { "boom" });
+         Assert.fail("Should have thrown");
+      }
+      catch (InvocationTargetException e)
+      {
+         Assert.assertTrue(e.getCause() instanceof IOException);
+         Assert.assertEquals("boom", e.getCause().getMessage());
+      }
+   }
+
+   @Test
+   public void testMismatchedArgumentsAreRejectedLikeReflection() throws Exception
+   {
+      Method proxyMethod = Service.class.getMethod("add", int.class, Integer.class);
+      DelegateInvoker invoker = invoker(service, proxyMethod);
+      Assert.assertEquals(3, invoker.invoke(service, new Object[] { (short) 1, 2 }));
+
+      for (Object[] args : new Object[][] { {}, { 1 }, { 1, 2, 3 }, { null, 2 }, { 1L, 2 }, { "1", 2 }, { 1, 2L } })
+      {
+         try
+         {
+            proxyMethod.invoke(service, args);
+            Assert.fail("Reflection should have rejected " + Arrays.toString(args));
+         }
+         catch (IllegalArgumentException e)
+         {
+            // expected
+         }
+
+         try
+         {
+            invoker.invoke(service, args);
+            Assert.fail("Should have rejected " + Arrays.toString(args));
+         }
+         catch (IllegalArgumentException e)
+         {
+            // expected
+         }
+      }
+
+      try
+      {
+         invoker.invoke(new Object(), new Object[] { 1, 2 });
+         Assert.fail("Should have rejected the target");
+      }
+      catch (IllegalArgumentException e)
+      {
+         // expected
+      }
+   }
+
+   @Test
+   public void testPublicMethodOfInaccessibleClass() throws Exception
+   {
+      List<String> list = new ArrayList<>();
+      list.add("a");
+      Iterator<String> iterator = list.iterator();
+
+      DelegateInvoker invoker = invoker(iterator, Iterator.class.getMethod("next"));
+      Assert.assertEquals("a", invoker.invoke(iterator, new Object[0]));
+   }
+
+   private static DelegateInvoker invoker(Object delegate, Method proxyMethod) throws NoSuchMethodException
+   {
+      Method delegateMethod = delegate.getClass().getMethod(proxyMethod.getName(), proxyMethod.getParameterTypes());
+      return DelegateInvoker.put(delegate.getClass(), proxyMethod, delegateMethod);
+   }
+}
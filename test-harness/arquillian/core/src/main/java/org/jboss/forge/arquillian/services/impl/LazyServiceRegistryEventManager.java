@@ -7,10 +7,13 @@
 package org.jboss.forge.arquillian.services.impl;
 
 import java.lang.annotation.Annotation;
+import java.util.Collections;
 
 import org.jboss.forge.furnace.addons.Addon;
 import org.jboss.forge.furnace.event.EventException;
 import org.jboss.forge.furnace.event.EventManager;
+import org.jboss.forge.furnace.event.ObservedEvent;
+import org.jboss.forge.furnace.event.ObservingEventManager;
 import org.jboss.forge.furnace.spi.ExportedInstance;
 import org.jboss.forge.furnace.spi.ServiceRegistry;
 
@@ -18,7 +21,7 @@ import org.jboss.forge.furnace.spi.ServiceRegistry;
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  * 
  */
-public class LazyServiceRegistryEventManager implements EventManager
+public class LazyServiceRegistryEventManager implements ObservingEventManager
 {
    private Addon addon;
 
@@ -40,4 +43,28 @@ public class LazyServiceRegistryEventManager implements EventManager
       }
    }
 
+   /**
+    * Advertise the events observed by the exported {@link EventManager}, or all events if it does not say.
+    */
+   @Override
+   public Iterable<ObservedEvent> getObservedEvents()
+   {
+      ServiceRegistry registry = addon.getServiceRegistry();
+      ExportedInstance<EventManager> instance = registry.getExportedInstance(EventManager.class);
+      if (instance == null)
+         return Collections.emptySet();
+
+      EventManager manager = instance.get();
+      try
+      {
+         if (manager instanceof ObservingEventManager)
+            return ((ObservingEventManager) manager).getObservedEvents();
+         return Collections.singleton(new ObservedEvent(Object.class));
+      }
+      finally
+      {
+         instance.release(manager);
+      }
+   }
+
 }